@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.moss.usbanknumbers.AbaNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbaNumberBenchmark {
+	
+	@Param({Inputs.VALID, Inputs.INVALID, Inputs.PADDED})
+	public String input;
+	
+	private String abaNumber;
+	private String fractionalRoutingNumber;
+	private int prefix;
+	
+	@Setup
+	public void setup() {
+		abaNumber = Inputs.pick(input, "56-7209", "56-720a");
+		fractionalRoutingNumber = Inputs.pick(input, "56-7209/2441", "56-7209/244a");
+		
+		/*
+		 * A prefix number has no whitespace to pad, so the third case looks up
+		 * the last prefix in the table instead; an unknown prefix is the invalid case.
+		 */
+		if (Inputs.VALID.equals(input)) {
+			prefix = 56;
+		} else if (Inputs.INVALID.equals(input)) {
+			prefix = 89;
+		} else {
+			prefix = 101;
+		}
+	}
+	
+	@Benchmark
+	public Object abaNumber() {
+		try {
+			return new AbaNumber(abaNumber);
+		} catch (Exception e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object fractionalRoutingNumber() {
+		try {
+			return new FractionalRoutingNumber(fractionalRoutingNumber);
+		} catch (Exception e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object prefixForNumber() {
+		return AbaNumber.Prefix.forNumber(prefix);
+	}
+}
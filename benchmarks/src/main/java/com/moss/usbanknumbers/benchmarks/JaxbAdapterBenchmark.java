@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.jaxb.AccountNumberAdapter;
+import com.moss.usbanknumbers.jaxb.CheckNumberAdapter;
+import com.moss.usbanknumbers.jaxb.RoutingNumberAdapter;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JaxbAdapterBenchmark {
+	
+	private static final RoutingNumberAdapter ROUTING_NUMBER_ADAPTER = new RoutingNumberAdapter();
+	private static final AccountNumberAdapter ACCOUNT_NUMBER_ADAPTER = new AccountNumberAdapter();
+	private static final CheckNumberAdapter CHECK_NUMBER_ADAPTER = new CheckNumberAdapter();
+	
+	/**
+	 * Unmarshalling is measured against every input shape.
+	 */
+	@State(Scope.Benchmark)
+	public static class Text {
+		
+		@Param({Inputs.VALID, Inputs.INVALID, Inputs.PADDED})
+		public String input;
+		
+		String routingNumber;
+		String accountNumber;
+		String checkNumber;
+		
+		@Setup
+		public void setup() {
+			routingNumber = Inputs.pick(input, "076401251", "076401250");
+			accountNumber = Inputs.pick(input, "00012345678901234", "0001234567890123x");
+			checkNumber = Inputs.pick(input, "000000001234", "00000000123-");
+		}
+	}
+	
+	/**
+	 * Marshalling only ever sees values that have already been validated.
+	 * They are kept packed and rebuilt on every call, because a number that
+	 * has rendered its text once just hands back the cached String; the
+	 * rebuild is a small constant next to the rendering being measured.
+	 */
+	@State(Scope.Benchmark)
+	public static class Values {
+		
+		int routingNumber;
+		long accountNumber;
+		long checkNumber;
+		
+		@Setup
+		public void setup() throws Exception {
+			routingNumber = new RoutingNumber("076401251").toInt();
+			accountNumber = new AccountNumber("00012345678901234").toLong();
+			checkNumber = new CheckNumber("000000001234").toLong();
+		}
+	}
+	
+	@Benchmark
+	public Object unmarshalRoutingNumber(Text text) {
+		try {
+			return ROUTING_NUMBER_ADAPTER.unmarshal(text.routingNumber);
+		} catch (Exception e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object unmarshalAccountNumber(Text text) {
+		try {
+			return ACCOUNT_NUMBER_ADAPTER.unmarshal(text.accountNumber);
+		} catch (Exception e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object unmarshalCheckNumber(Text text) {
+		try {
+			return CHECK_NUMBER_ADAPTER.unmarshal(text.checkNumber);
+		} catch (Exception e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public String marshalRoutingNumber(Values values) throws Exception {
+		return ROUTING_NUMBER_ADAPTER.marshal(RoutingNumber.fromInt(values.routingNumber));
+	}
+	
+	@Benchmark
+	public String marshalAccountNumber(Values values) throws Exception {
+		return ACCOUNT_NUMBER_ADAPTER.marshal(AccountNumber.fromLong(values.accountNumber));
+	}
+	
+	@Benchmark
+	public String marshalCheckNumber(Values values) throws Exception {
+		return CHECK_NUMBER_ADAPTER.marshal(CheckNumber.fromLong(values.checkNumber));
+	}
+}
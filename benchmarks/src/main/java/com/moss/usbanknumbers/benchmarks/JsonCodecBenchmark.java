@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.json.BankNumberJsonReader;
+import com.moss.usbanknumbers.json.BankNumberJsonWriter;
+
+/**
+ * Reads and writes a batch of payment objects with the JSON codec, binding
+ * the fields straight to the number types, against the path it replaces:
+ * taking each field as a String and going through the String constructors
+ * and toString().
+ * <p>
+ * The number types cache their text once rendered, so the write benchmarks
+ * get freshly built values for every invocation; otherwise toString() would
+ * only be rendering on the first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+	
+	private static final String[] FIELDS = {"routing", "account", "check", "amount"};
+	
+	@State(Scope.Benchmark)
+	public static class Batch {
+		
+		@Param({"1000"})
+		public int size;
+		
+		byte[] json;
+		int[] routingNumbers;
+		long[] accountNumbers;
+		long[] checkNumbers;
+		
+		@Setup
+		public void setup() throws Exception {
+			routingNumbers = new int[size];
+			accountNumbers = new long[size];
+			checkNumbers = new long[size];
+			
+			StringBuilder text = new StringBuilder("[");
+			for (int i=0; i<size; i++) {
+				String account = String.format("%017d", 12345678901234L + i);
+				String check = String.format("%012d", 1000 + i);
+				text.append(i == 0 ? "" : ",")
+					.append("{\"routing\":\"").append("076401251")
+					.append("\",\"account\":\"").append(account)
+					.append("\",\"check\":\"").append(check)
+					.append("\",\"amount\":").append(i * 100)
+					.append('}');
+				routingNumbers[i] = new RoutingNumber("076401251").toInt();
+				accountNumbers[i] = new AccountNumber(account).toLong();
+				checkNumbers[i] = new CheckNumber(check).toLong();
+			}
+			json = text.append(']').toString().getBytes("UTF-8");
+		}
+	}
+	
+	/**
+	 * The batch's numbers as objects that have never rendered their text.
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+		
+		RoutingNumber[] routingNumbers;
+		AccountNumber[] accountNumbers;
+		CheckNumber[] checkNumbers;
+		
+		@Setup(Level.Invocation)
+		public void setup(Batch batch) throws Exception {
+			if (routingNumbers == null) {
+				routingNumbers = new RoutingNumber[batch.size];
+				accountNumbers = new AccountNumber[batch.size];
+				checkNumbers = new CheckNumber[batch.size];
+			}
+			for (int i=0; i<batch.size; i++) {
+				routingNumbers[i] = RoutingNumber.fromInt(batch.routingNumbers[i]);
+				accountNumbers[i] = AccountNumber.fromLong(batch.accountNumbers[i]);
+				checkNumbers[i] = CheckNumber.fromLong(batch.checkNumbers[i]);
+			}
+		}
+	}
+	
+	@Benchmark
+	public void readTyped(Batch batch, Blackhole bh) throws IOException {
+		BankNumberJsonReader reader = new BankNumberJsonReader(new ByteArrayInputStream(batch.json));
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName(FIELDS)) {
+				case 0:
+					bh.consume(reader.nextRoutingNumber());
+					break;
+				case 1:
+					bh.consume(reader.nextAccountNumber());
+					break;
+				case 2:
+					bh.consume(reader.nextCheckNumber());
+					break;
+				case 3:
+					bh.consume(reader.nextLong());
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+	}
+	
+	@Benchmark
+	public void readViaStrings(Batch batch, Blackhole bh) throws Exception {
+		BankNumberJsonReader reader = new BankNumberJsonReader(new ByteArrayInputStream(batch.json));
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("routing")) {
+					bh.consume(new RoutingNumber(reader.nextString()));
+				} else if (name.equals("account")) {
+					bh.consume(new AccountNumber(reader.nextString()));
+				} else if (name.equals("check")) {
+					bh.consume(new CheckNumber(reader.nextString()));
+				} else if (name.equals("amount")) {
+					bh.consume(reader.nextLong());
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+	}
+	
+	@Benchmark
+	public int writeTyped(Batch batch, Fresh fresh) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.json.length);
+		BankNumberJsonWriter writer = new BankNumberJsonWriter(bytes);
+		writer.beginArray();
+		for (int i=0; i<batch.size; i++) {
+			writer.beginObject()
+				.name("routing").value(fresh.routingNumbers[i])
+				.name("account").value(fresh.accountNumbers[i])
+				.name("check").value(fresh.checkNumbers[i])
+				.name("amount").value(i * 100L)
+				.endObject();
+		}
+		writer.endArray();
+		writer.flush();
+		return bytes.size();
+	}
+	
+	@Benchmark
+	public int writeViaStrings(Batch batch, Fresh fresh) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.json.length);
+		BankNumberJsonWriter writer = new BankNumberJsonWriter(bytes);
+		writer.beginArray();
+		for (int i=0; i<batch.size; i++) {
+			writer.beginObject()
+				.name("routing").value(fresh.routingNumbers[i].toString())
+				.name("account").value(fresh.accountNumbers[i].toString())
+				.name("check").value(fresh.checkNumbers[i].toString())
+				.name("amount").value(i * 100L)
+				.endObject();
+		}
+		writer.endArray();
+		writer.flush();
+		return bytes.size();
+	}
+}
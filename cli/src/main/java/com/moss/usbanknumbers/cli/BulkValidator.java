@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.cli;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Validates the bank number columns of a delimited file.
+ * <p>
+ * The input is read through a FileChannel in chunks of whole lines.  Each
+ * chunk is validated as a task on a fork-join pool, and results are
+ * written back in input order: every line followed by a result field that
+ * is either <code>OK</code> or the failed checks, e.g.
+ * <code>routing=CHECKSUM;account=EMPTY</code>.  Only a bounded number of
+ * chunks is in flight at once, so memory use doesn't depend on the size of
+ * the file.  A throughput summary goes to standard error.
+ */
+public final class BulkValidator {
+	
+	private static final String USAGE =
+		"usage: java -jar validate.jar [options] input [output]\n" +
+		"  -r COLUMN    routing number column\n" +
+		"  -a COLUMN    account number column\n" +
+		"  -c COLUMN    check number column\n" +
+		"  -f COLUMN    fractional routing number column\n" +
+		"  -d DELIM     field delimiter (default: tab for .tsv files, otherwise ',')\n" +
+		"  -H           the first line is a header; columns may be given by name\n" +
+		"  -t THREADS   worker threads (default: all cores)\n" +
+		"COLUMN is a 1-based column number or, with -H, a header name.\n" +
+		"Results are written to standard output if no output file is given.\n" +
+		"Exits 0 if every row is valid, 1 if any isn't, 2 on error.";
+	
+	private static final int CHUNK_BYTES = 1 << 20;
+	
+	private final List<Column> columns = new ArrayList<Column>();
+	private final List<String> columnNames = new ArrayList<String>();
+	int chunkBytes = CHUNK_BYTES;
+	private Byte delimiter;
+	private boolean header;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private File input;
+	private File output;
+	
+	public static void main(String[] args) {
+		BulkValidator validator = new BulkValidator();
+		try {
+			validator.parse(args);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		try {
+			Summary summary = validator.run();
+			System.err.println(summary);
+			System.exit(summary.invalid == 0 ? 0 : 1);
+		}
+		catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+	
+	void parse(String[] args) {
+		List<String> files = new ArrayList<String>();
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-H")) {
+				header = true;
+			}
+			else if (arg.equals("-d")) {
+				String value = value(args, ++i, arg);
+				if (value.equals("\\t")) {
+					value = "\t";
+				}
+				if (value.length() != 1) {
+					throw new IllegalArgumentException("The delimiter must be a single character");
+				}
+				delimiter = Byte.valueOf((byte)value.charAt(0));
+			}
+			else if (arg.equals("-t")) {
+				try {
+					threads = Integer.parseInt(value(args, ++i, arg));
+				}
+				catch (NumberFormatException e) {
+					throw new IllegalArgumentException("-t needs a number of threads");
+				}
+				if (threads < 1) {
+					throw new IllegalArgumentException("-t needs at least one thread");
+				}
+			}
+			else if (arg.startsWith("-") && arg.length() > 1) {
+				Column column = null;
+				for (Column c : Column.values()) {
+					if (c.option.equals(arg)) {
+						column = c;
+					}
+				}
+				if (column == null) {
+					throw new IllegalArgumentException("Unknown option " + arg);
+				}
+				columns.add(column);
+				columnNames.add(value(args, ++i, arg));
+			}
+			else {
+				files.add(arg);
+			}
+		}
+		
+		if (files.isEmpty() || files.size() > 2) {
+			throw new IllegalArgumentException("Give an input file and, optionally, an output file");
+		}
+		if (columns.isEmpty()) {
+			throw new IllegalArgumentException("Nothing to validate: give at least one of -r, -a, -c or -f");
+		}
+		input = new File(files.get(0));
+		output = files.size() == 2 ? new File(files.get(1)) : null;
+		if (delimiter == null) {
+			delimiter = Byte.valueOf((byte)(input.getName().toLowerCase().endsWith(".tsv") ? '\t' : ','));
+		}
+	}
+	
+	private static String value(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(option + " needs a value");
+		}
+		return args[i];
+	}
+	
+	Summary run() throws IOException {
+		
+		long started = System.nanoTime();
+		Summary summary = new Summary();
+		byte delimiter = this.delimiter.byteValue();
+		
+		FileInputStream in = new FileInputStream(input);
+		WritableByteChannel out = output == null ? Channels.newChannel(System.out) : new FileOutputStream(output).getChannel();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			FileChannel channel = in.getChannel();
+			summary.bytes = channel.size();
+			
+			ArrayDeque<ForkJoinTask<ValidationTask>> pending = new ArrayDeque<ForkJoinTask<ValidationTask>>();
+			int maxPending = threads * 2;
+			
+			Column[] columns = this.columns.toArray(new Column[this.columns.size()]);
+			int[] indexes = null;
+			
+			byte[] buf = new byte[chunkBytes];
+			int filled = 0;
+			boolean eof = false;
+			
+			while (!eof || filled > 0) {
+				
+				// fill the buffer, growing it if a single line won't fit
+				while (!eof && filled < buf.length) {
+					int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+					if (n < 0) {
+						eof = true;
+					}
+					else {
+						filled += n;
+					}
+				}
+				
+				if (eof && filled == 0) {
+					break;
+				}
+				
+				int end = filled;
+				if (!eof) {
+					end = lastLineEnd(buf, filled);
+					if (end == 0) {
+						buf = Arrays.copyOf(buf, buf.length * 2);
+						continue;
+					}
+				}
+				
+				int start = 0;
+				if (indexes == null) {
+					if (header) {
+						int newline = 0;
+						while (newline < end && buf[newline] != '\n') {
+							newline++;
+						}
+						int lineEnd = newline > 0 && buf[newline - 1] == '\r' ? newline - 1 : newline;
+						indexes = resolve(buf, lineEnd, delimiter);
+						write(out, buf, 0, lineEnd);
+						write(out, new byte[] {delimiter}, 0, 1);
+						write(out, Column.ascii("validation"), 0, 10);
+						start = Math.min(newline + 1, end);
+						write(out, buf, lineEnd, start - lineEnd);
+					}
+					else {
+						indexes = resolve(null, 0, delimiter);
+					}
+				}
+				
+				byte[] chunk = Arrays.copyOfRange(buf, start, end);
+				if (pending.size() == maxPending) {
+					write(out, pending.removeFirst().join(), summary);
+				}
+				pending.addLast(pool.submit(new ValidationTask(chunk, chunk.length, delimiter, columns, indexes)));
+				
+				System.arraycopy(buf, end, buf, 0, filled - end);
+				filled -= end;
+			}
+			
+			while (!pending.isEmpty()) {
+				write(out, pending.removeFirst().join(), summary);
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			in.close();
+			if (output != null) {
+				out.close();
+			}
+		}
+		
+		summary.nanos = System.nanoTime() - started;
+		return summary;
+	}
+	
+	/**
+	 * The end of the last complete line in the first <code>filled</code>
+	 * bytes, or 0 if there isn't one.
+	 */
+	private static int lastLineEnd(byte[] buf, int filled) {
+		for (int i=filled - 1; i>=0; i--) {
+			if (buf[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Turns the column arguments into zero based indexes, looking names up in
+	 * the header line if there is one.
+	 */
+	private int[] resolve(byte[] headerLine, int headerEnd, byte delimiter) {
+		List<String> names = new ArrayList<String>();
+		if (headerLine != null) {
+			int start = 0;
+			for (int i=0; i<=headerEnd; i++) {
+				if (i == headerEnd || headerLine[i] == delimiter) {
+					String name = new ByteField().set(headerLine, start, i).toString().trim();
+					if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+						name = name.substring(1, name.length() - 1);
+					}
+					names.add(name);
+					start = i + 1;
+				}
+			}
+		}
+		
+		int[] indexes = new int[columnNames.size()];
+		for (int i=0; i<indexes.length; i++) {
+			String name = columnNames.get(i);
+			int index = names.indexOf(name);
+			if (index == -1) {
+				try {
+					index = Integer.parseInt(name) - 1;
+				}
+				catch (NumberFormatException e) {
+					throw new IllegalArgumentException("No column named \"" + name + "\"");
+				}
+				if (index < 0) {
+					throw new IllegalArgumentException("Column numbers start at 1");
+				}
+			}
+			indexes[i] = index;
+		}
+		return indexes;
+	}
+	
+	private static void write(WritableByteChannel out, ValidationTask task, Summary summary) throws IOException {
+		write(out, task.output(), 0, task.outputLength());
+		summary.rows += task.rows;
+		summary.invalid += task.invalid;
+	}
+	
+	private static void write(WritableByteChannel out, byte[] bytes, int off, int len) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(bytes, off, len);
+		while (buf.hasRemaining()) {
+			out.write(buf);
+		}
+	}
+	
+	static final class Summary {
+		
+		long rows;
+		long invalid;
+		long bytes;
+		long nanos;
+		
+		@Override
+		public String toString() {
+			double seconds = nanos / 1e9;
+			return String.format(
+				"%,d rows (%,d invalid) in %.2f s: %,.0f rows/s, %.1f MB/s",
+				rows, invalid, seconds, rows / seconds, bytes / seconds / (1 << 20)
+			);
+		}
+	}
+}
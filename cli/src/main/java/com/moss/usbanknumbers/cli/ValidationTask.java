@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.cli;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+import com.moss.usbanknumbers.BankNumberError;
+
+/**
+ * Validates one chunk of whole lines, producing the chunk's output: each
+ * line with a result field appended.
+ */
+final class ValidationTask extends RecursiveTask<ValidationTask> {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final byte[] OK = Column.ascii("OK");
+	
+	private final byte[] input;
+	private final int length;
+	private final byte delimiter;
+	private final Column[] columns;
+	private final int[] indexes;
+	
+	private byte[] output;
+	private int outputLength;
+	long rows;
+	long invalid;
+	
+	/**
+	 * @param indexes the zero based index in each line of each column
+	 */
+	ValidationTask(byte[] input, int length, byte delimiter, Column[] columns, int[] indexes) {
+		this.input = input;
+		this.length = length;
+		this.delimiter = delimiter;
+		this.columns = columns;
+		this.indexes = indexes;
+	}
+	
+	byte[] output() {
+		return output;
+	}
+	
+	int outputLength() {
+		return outputLength;
+	}
+	
+	@Override
+	protected ValidationTask compute() {
+		
+		output = new byte[length + length / 4 + 64];
+		
+		int last = 0;
+		for (int index : indexes) {
+			last = Math.max(last, index);
+		}
+		int[] starts = new int[last + 1];
+		int[] ends = new int[last + 1];
+		ByteField field = new ByteField();
+		
+		int lineStart = 0;
+		while (lineStart < length) {
+			
+			int newline = lineStart;
+			while (newline < length && input[newline] != '\n') {
+				newline++;
+			}
+			int lineEnd = newline > lineStart && input[newline - 1] == '\r' ? newline - 1 : newline;
+			int next = newline < length ? newline + 1 : length;
+			
+			append(input, lineStart, lineEnd - lineStart);
+			
+			if (lineEnd > lineStart) {
+				rows++;
+				split(lineStart, lineEnd, starts, ends);
+				
+				append(delimiter);
+				int errors = 0;
+				for (int i=0; i<columns.length; i++) {
+					int index = indexes[i];
+					BankNumberError error = columns[i].check(field.set(input, starts[index], ends[index]));
+					if (error != null) {
+						if (errors++ > 0) {
+							append((byte)';');
+						}
+						byte[] message = columns[i].message(error);
+						append(message, 0, message.length);
+					}
+				}
+				if (errors == 0) {
+					append(OK, 0, OK.length);
+				}
+				else {
+					invalid++;
+				}
+			}
+			
+			append(input, lineEnd, next - lineEnd);
+			lineStart = next;
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Finds the fields of [lineStart, lineEnd) up to the last one needed.
+	 * Quoted fields are given without their quotes; fields the line doesn't
+	 * have are left empty.
+	 */
+	private void split(int lineStart, int lineEnd, int[] starts, int[] ends) {
+		int pos = lineStart;
+		for (int i=0; i<starts.length; i++) {
+			if (pos > lineEnd) {
+				starts[i] = ends[i] = lineEnd;
+				continue;
+			}
+			if (pos < lineEnd && input[pos] == '"') {
+				int close = pos + 1;
+				while (close < lineEnd && !(input[close] == '"' && (close + 1 == lineEnd || input[close + 1] != '"'))) {
+					close += input[close] == '"' ? 2 : 1;
+				}
+				starts[i] = pos + 1;
+				ends[i] = Math.min(close, lineEnd);
+				pos = close + 1;
+				while (pos < lineEnd && input[pos] != delimiter) {
+					pos++;
+				}
+			}
+			else {
+				starts[i] = pos;
+				while (pos < lineEnd && input[pos] != delimiter) {
+					pos++;
+				}
+				ends[i] = pos;
+			}
+			pos++;
+		}
+	}
+	
+	private void append(byte b) {
+		ensure(1);
+		output[outputLength++] = b;
+	}
+	
+	private void append(byte[] bytes, int off, int len) {
+		ensure(len);
+		System.arraycopy(bytes, off, output, outputLength, len);
+		outputLength += len;
+	}
+	
+	private void ensure(int more) {
+		if (outputLength + more > output.length) {
+			output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + more));
+		}
+	}
+}
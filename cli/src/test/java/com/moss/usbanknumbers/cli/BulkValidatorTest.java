@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+public class BulkValidatorTest extends TestCase {
+	
+	private File input;
+	private File output;
+	
+	@Override
+	protected void setUp() throws Exception {
+		input = File.createTempFile("rows", ".csv");
+		output = File.createTempFile("rows", ".out");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		input.delete();
+		output.delete();
+	}
+	
+	public void testQuotedDelimiters() throws Exception {
+		write(
+			"\"Smith, John\",076401251,\"0012\"\n" +
+			"\"a \"\"quoted\"\", name\",076401250,12-3\n" +
+			"\"unterminated, 076401251\n"
+		);
+		BulkValidator.Summary summary = run("-r", "2", "-a", "3");
+		assertEquals(
+			"\"Smith, John\",076401251,\"0012\",OK\n" +
+			"\"a \"\"quoted\"\", name\",076401250,12-3,routing=CHECKSUM;account=NON_NUMERIC\n" +
+			"\"unterminated, 076401251,routing=EMPTY;account=EMPTY\n",
+			read()
+		);
+		assertEquals(3, summary.rows);
+		assertEquals(2, summary.invalid);
+	}
+	
+	public void testHeaderIsSkipped() throws Exception {
+		write("name\t\"routing\"\r\nSmith\t076401251\r\nJones\t076401250\r\n");
+		BulkValidator.Summary summary = run("-H", "-d", "\\t", "-r", "routing");
+		assertEquals("name\t\"routing\"\tvalidation\r\nSmith\t076401251\tOK\r\nJones\t076401250\trouting=CHECKSUM\r\n", read());
+		assertEquals(2, summary.rows);
+		assertEquals(1, summary.invalid);
+	}
+	
+	public void testRowsStraddlingChunksKeepTheirOrder() throws Exception {
+		StringBuilder in = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i=0; i<500; i++) {
+			String row = i + ",076401251," + (i % 7 == 0 ? "x" : "") + i;
+			in.append(row).append('\n');
+			expected.append(row).append(i % 7 == 0 ? ",check=NON_NUMERIC\n" : ",OK\n");
+		}
+		// a single row longer than a chunk, and no newline at the end
+		String longRow = "long,076401251," + repeat('9', 15) + "," + repeat('x', 200);
+		in.append(longRow);
+		expected.append(longRow).append(",OK");
+		write(in.toString());
+		
+		BulkValidator.Summary summary = run(64, "-t", "4", "-r", "2", "-c", "3");
+		assertEquals(expected.toString(), read());
+		assertEquals(501, summary.rows);
+		assertEquals(72, summary.invalid);
+	}
+	
+	private BulkValidator.Summary run(String... options) throws IOException {
+		return run(0, options);
+	}
+	
+	private BulkValidator.Summary run(int chunkBytes, String... options) throws IOException {
+		String[] args = new String[options.length + 2];
+		System.arraycopy(options, 0, args, 0, options.length);
+		args[options.length] = input.getPath();
+		args[options.length + 1] = output.getPath();
+		BulkValidator validator = new BulkValidator();
+		validator.parse(args);
+		if (chunkBytes > 0) {
+			validator.chunkBytes = chunkBytes;
+		}
+		return validator.run();
+	}
+	
+	private void write(String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(input);
+		try {
+			out.write(text.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+	}
+	
+	private String read() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		InputStream in = new FileInputStream(output);
+		try {
+			byte[] buf = new byte[4096];
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				bytes.write(buf, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes.toString("US-ASCII");
+	}
+	
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		for (int i=0; i<count; i++) {
+			chars[i] = c;
+		}
+		return new String(chars);
+	}
+}
@@ -62,40 +62,26 @@ public class AbaNumber {
 		
 		this.prefix = prefix;
 		
-		String num = routingNumber.toString();
-		int end = num.length();
-		if(end>8)
-			end = 8;
-		
-		this.suffix = ParseUtil.stripLeadingZeros(num.substring(4, end));
+		// the 5th through 8th digits, leading zeros removed
+		int digits = routingNumber.dfiIdentity() % 10000;
+		this.suffix = digits==0 ? "" : Integer.toString(digits);
 		
 	}
 	
 	public AbaNumber(String text) throws AbaNumberException {
 		if(text==null)
 			throw new NullPointerException("null aba text");
-		text = text.trim();
-		if(text.length()==0)
-			throw new AbaNumberException("Emtpy aba text");
-		
-		String[] parts = text.split("-");
-		if(parts.length!=2)
-			throw new AbaNumberException("\"" + text + "\" is not a valid aba number.");
-		
-		int prefixNum;
-		try {
-			prefixNum = Integer.parseInt(parts[0]);
-		} catch (NumberFormatException e) {
-			throw new AbaNumberException("\"" + text + "\" is not a valid aba number.  The prefix is not a number.");
-		}
-		
-		Prefix prefix = Prefix.forNumber(prefixNum);
-		
-		if(prefix==null)
-			throw new AbaNumberException("\"" + text + "\" is not a valid aba number.  \"" + prefixNum + "\" is not a known prefix.");
-		init(prefix, parts[1]);
+		int code = scan(text, 0, text.length());
+		if(code<0)
+			throw new AbaNumberException(ParseUtil.error(code), text.trim());
+		decode(code);
+	}
+	
+	AbaNumber(int code) {
+		decode(code);
 	}
 	
+	private static final int[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
 	
 	public AbaNumber(Prefix prefix, String suffix) throws AbaNumberException {
 		init(prefix, suffix);
@@ -103,18 +89,124 @@ public class AbaNumber {
 	private void init(Prefix prefix, String suffix) throws AbaNumberException {
 		this.prefix = prefix;
 		if(suffix==null)
-			throw new AbaNumberException("Null Suffix");
-		suffix = suffix.trim();
-		if(suffix.length()==0)
-			throw new AbaNumberException("Empty Suffix");
-		if(suffix.length()>4)
-			throw new AbaNumberException("\"" + suffix + "\"is not a valid suffix (too long)");
-		try{
-			Integer.parseInt(suffix);
-		}catch(NumberFormatException e){
-			throw new AbaNumberException("\"" + suffix + "\"is not a valid suffix (not numeric)");
+			throw new AbaNumberException(BankNumberError.EMPTY, null);
+		int field = ParseUtil.scanShortField(suffix, 0, suffix.length());
+		if(field<0)
+			throw new AbaNumberException(ParseUtil.error(field), suffix.trim());
+		this.suffix = suffix.trim();
+	}
+	
+	/**
+	 * Decodes a value returned by {@link #toInt()}.
+	 */
+	public static AbaNumber fromInt(int code) throws AbaNumberException {
+		int count = (code>>>14) & 0x7;
+		int value = code & 0x3FFF;
+		if(code<0 || Prefix.forNumber(code>>>17)==null)
+			throw new AbaNumberException(BankNumberError.UNKNOWN_PREFIX, Integer.toString(code));
+		if(count>ParseUtil.SHORT_FIELD_DIGITS || value>=POWERS_OF_TEN[count])
+			throw new AbaNumberException(BankNumberError.MALFORMED, Integer.toString(code));
+		return new AbaNumber(code);
+	}
+	
+	private void decode(int code) {
+		this.prefix = Prefix.forNumber(code>>>17);
+		this.suffix = ParseUtil.renderShortField(code & 0x1FFFF);
+	}
+	
+	/**
+	 * Parses the text without throwing; rejected text allocates nothing.
+	 */
+	public static ParseResult<AbaNumber> tryParse(CharSequence text) {
+		int code = text==null ? ParseUtil.fail(BankNumberError.EMPTY) : scan(text, 0, text.length());
+		if(code<0)
+			return ParseUtil.error(code).failure();
+		return ParseResult.success(new AbaNumber(code));
+	}
+	
+	/**
+	 * Returns why the text is not a valid aba number, or null if it is one.
+	 */
+	public static BankNumberError check(CharSequence text) {
+		return text==null ? BankNumberError.EMPTY : ParseUtil.error(scan(text, 0, text.length()));
+	}
+	
+	/**
+	 * Scans "prefix-suffix" in [start, end) in a single pass, surrounding
+	 * whitespace allowed.  Returns the prefix number in bits 17 and up and the
+	 * suffix (as encoded by {@link ParseUtil#scanShortField}) below that, or a
+	 * negative error code.
+	 */
+	static int scan(CharSequence text, int start, int end) {
+		start = ParseUtil.trimStart(text, start, end);
+		end = ParseUtil.trimEnd(text, start, end);
+		if(start==end)
+			return ParseUtil.fail(BankNumberError.EMPTY);
+		
+		int dash = -1;
+		int prefixNum = 0;
+		boolean prefixNumeric = true;
+		int suffixStart = -1;
+		int suffixValue = 0;
+		boolean suffixNumeric = true;
+		
+		for(int x=start;x<end;x++){
+			char c = text.charAt(x);
+			if(c=='-'){
+				if(dash!=-1)
+					return ParseUtil.fail(BankNumberError.MALFORMED);
+				dash = x;
+				continue;
+			}
+			int digit = c-'0';
+			if(dash==-1){
+				if(digit<0 || digit>9)
+					prefixNumeric = false;
+				else if(prefixNum<1000)
+					prefixNum = prefixNum*10+digit;
+			}
+			else{
+				if(suffixStart==-1){
+					if(c<=' ')
+						continue;
+					suffixStart = x;
+				}
+				if(digit<0 || digit>9)
+					suffixNumeric = false;
+				else if(suffixValue<10000)
+					suffixValue = suffixValue*10+digit;
+			}
 		}
-		this.suffix = suffix;
+		
+		if(dash==-1)
+			return ParseUtil.fail(BankNumberError.MALFORMED);
+		if(dash==start || !prefixNumeric)
+			return ParseUtil.fail(BankNumberError.NON_NUMERIC);
+		if(Prefix.forNumber(prefixNum)==null)
+			return ParseUtil.fail(BankNumberError.UNKNOWN_PREFIX);
+		
+		if(suffixStart==-1)
+			return ParseUtil.fail(BankNumberError.EMPTY);
+		int count = end-suffixStart;
+		if(count>ParseUtil.SHORT_FIELD_DIGITS)
+			return ParseUtil.fail(BankNumberError.TOO_LONG);
+		if(!suffixNumeric)
+			return ParseUtil.fail(BankNumberError.NON_NUMERIC);
+		return (prefixNum<<17) | (count<<14) | suffixValue;
+	}
+	
+	/**
+	 * Encodes this number as a single int for compact storage: the prefix
+	 * number in bits 17 and up, the suffix's digit count (so that leading
+	 * zeros survive) in bits 14-16 and its value below that.
+	 *
+	 * @see #fromInt(int)
+	 */
+	public int toInt() {
+		int value = 0;
+		for(int x=0;x<suffix.length();x++)
+			value = value*10+(suffix.charAt(x)-'0');
+		return (prefix.number<<17) | (suffix.length()<<14) | value;
 	}
 
 	public Prefix prefix() {
@@ -231,18 +323,26 @@ public class AbaNumber {
 		Wyoming(99),
 		Assigned(101);
 		
+		private static final Prefix[] BY_NUMBER = new Prefix[102];
+		static{
+			for(Prefix p :Prefix.values())
+				BY_NUMBER[p.number] = p;
+		}
+		
 		int number;
 		
 		Prefix(int number){
 			this.number = number;
 		}
 		
+		public int number(){
+			return number;
+		}
+		
 		public static Prefix forNumber(int number){
-			for(Prefix p :Prefix.values()){
-				if(p.number==number)
-					return p;
-			}
-			return null;
+			if(number<0 || number>=BY_NUMBER.length)
+				return null;
+			return BY_NUMBER[number];
 		}
 		
 	}
@@ -40,6 +40,9 @@ package com.moss.usbanknumbers;
 @SuppressWarnings("serial")
 public class AbaNumberException extends Exception {
 
+	private BankNumberError error;
+	private String text;
+
 	public AbaNumberException() {
 		super();
 	}
@@ -55,5 +58,49 @@ public class AbaNumberException extends Exception {
 	public AbaNumberException(Throwable cause) {
 		super(cause);
 	}
-	
+
+	/**
+	 * The message is only built if asked for.
+	 */
+	public AbaNumberException(BankNumberError error, String text) {
+		this.error = error;
+		this.text = text;
+	}
+
+	/**
+	 * Why the text was rejected, or null if this exception was built from a
+	 * plain message.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+
+	@Override
+	public String getMessage() {
+		String message = super.getMessage();
+		if (message != null || error == null) {
+			return message;
+		}
+		return describe();
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return ParseUtil.STACKLESS_EXCEPTIONS ? this : super.fillInStackTrace();
+	}
+
+	private String describe() {
+		switch (error) {
+		case EMPTY:
+			return "Empty aba text";
+		case NON_NUMERIC:
+			return "\"" + text + "\" is not a valid aba number (not numeric).";
+		case TOO_LONG:
+			return "\"" + text + "\" is not a valid aba number (suffix too long).";
+		case UNKNOWN_PREFIX:
+			return "\"" + text + "\" is not a valid aba number (unknown prefix).";
+		default:
+			return "\"" + text + "\" is not a valid aba number.";
+		}
+	}
 }
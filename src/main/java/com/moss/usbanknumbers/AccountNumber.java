@@ -37,6 +37,11 @@
  */
 package com.moss.usbanknumbers;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
@@ -44,10 +49,29 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import com.moss.usbanknumbers.jaxb.AccountNumberAdapter;
 
 @XmlJavaTypeAdapter(AccountNumberAdapter.class)
-@SuppressWarnings("serial")
 public class AccountNumber implements Serializable {
 	
-	private String number;
+	private static final long serialVersionUID = 8041362728643276000L;
+	
+	/**
+	 * Instances are written as a {@link SerialForm}; this single "number"
+	 * string field is what earlier versions wrote, and is still read.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("number", String.class)
+	};
+	
+	/**
+	 * The longest account number accepted, the width of the ACH DFI account number field.
+	 */
+	public static final int MAX_LENGTH = 17;
+	
+	/**
+	 * The digit count and value, packed by {@link ParseUtil#scanLongField}.
+	 */
+	private long field;
+	
+	private transient String text;
 	
 	public AccountNumber(String number) throws AccountNumberException {
 		
@@ -55,24 +79,82 @@ public class AccountNumber implements Serializable {
 			throw new NullPointerException();
 		}
 		
-		number = number.trim();
-		
-		if (number.length() == 0) {
-			throw new AccountNumberException("An account number must be greater than 0 digits in length");
+		long field = ParseUtil.scanLongField(number, 0, number.length(), MAX_LENGTH);
+		if (field < 0) {
+			throw new AccountNumberException(ParseUtil.error(field));
 		}
 		
-		if (!isNumeric(number)) {
-			throw new AccountNumberException("An account number must be entirely numeric.");
+		this.field = field;
+	}
+	
+	AccountNumber(long field) {
+		this.field = field;
+	}
+	
+	/**
+	 * Parses the text without throwing; rejected text allocates nothing.
+	 */
+	public static ParseResult<AccountNumber> tryParse(CharSequence text) {
+		long field = text == null ? ParseUtil.fail(BankNumberError.EMPTY) : ParseUtil.scanLongField(text, 0, text.length(), MAX_LENGTH);
+		if (field < 0) {
+			return ParseUtil.error(field).failure();
 		}
+		return ParseResult.success(new AccountNumber(field));
+	}
+	
+	/**
+	 * Returns why the text, ignoring surrounding whitespace, is not a valid
+	 * account number, or null if it is one.
+	 */
+	public static BankNumberError check(CharSequence text) {
 		
-		int[] digits = new int[number.length()];
-		{
-			for (int i=0; i<number.length(); i++) {
-				digits[i] = Integer.parseInt(number.substring(i, i + 1));
-			}
+		if (text == null) {
+			return BankNumberError.EMPTY;
 		}
 		
-		this.number = number;
+		return ParseUtil.error(ParseUtil.scanLongField(text, 0, text.length(), MAX_LENGTH));
+	}
+	
+	/**
+	 * Decodes a value returned by {@link #toLong()}.
+	 */
+	public static AccountNumber fromLong(long value) throws AccountNumberException {
+		if (!ParseUtil.isLongField(value, MAX_LENGTH)) {
+			throw new AccountNumberException(BankNumberError.MALFORMED);
+		}
+		return new AccountNumber(value);
+	}
+	
+	/**
+	 * Encodes this number as a single long for compact storage: the digit
+	 * count (so that leading zeros survive) in bits 57 and up and the value
+	 * below that.
+	 *
+	 * @see #fromLong(long)
+	 */
+	public long toLong() {
+		return field;
+	}
+	
+	/**
+	 * The digits as a number, e.g. 12 for "0012".
+	 */
+	public long longValue() {
+		return ParseUtil.longFieldValue(field);
+	}
+	
+	/**
+	 * The number of digits, including leading zeros.
+	 */
+	public int length() {
+		return ParseUtil.longFieldLength(field);
+	}
+	
+	/**
+	 * The digit at the index, counting from the left.
+	 */
+	public int digit(int index) {
+		return ParseUtil.longFieldDigit(field, index);
 	}
 	
 	public boolean equals(Object o) {
@@ -81,25 +163,36 @@ public class AccountNumber implements Serializable {
 			&&
 			o instanceof AccountNumber
 			&&
-			((AccountNumber)o).number.equals(number);
+			((AccountNumber)o).field == field;
 	}
 	
 	public String toString() {
-		return number;
+		String text = this.text;
+		if (text == null) {
+			text = ParseUtil.renderLongField(field);
+			this.text = text;
+		}
+		return text;
 	}
 	
 	public int hashCode() {
-		return number.hashCode();
+		return (int)(field ^ (field >>> 32));
 	}
 	
-	private boolean isNumeric(String number) {
-		
-		for (char c : number.toCharArray()) {
-			if (c < '0' || c > '9') {
-				return false;
-			}
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerialForm(this);
+	}
+	
+	/**
+	 * Reads the plain "number" field that earlier versions wrote.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		String number = (String)fields.get("number", null);
+		long field = number == null ? ParseUtil.fail(BankNumberError.EMPTY) : ParseUtil.scanLongField(number, 0, number.length(), MAX_LENGTH);
+		if (field < 0) {
+			throw new InvalidObjectException("Invalid account number: " + ParseUtil.error(field));
 		}
-		
-		return true;
+		this.field = field;
 	}
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encodings of the number types, for storing them in
+ * buffers without going through Java serialization.  The same encodings
+ * are what the types write when they are serialized.
+ * <ul>
+ * <li>A routing number is its packed value as a 4 byte int.</li>
+ * <li>An account or check number is its digit count as a byte followed by
+ * the digits as packed BCD, two to a byte, high nibble first, so that leading
+ * zeros survive.  An odd digit count leaves the last low nibble as 0xF.</li>
+ * </ul>
+ * Decoding validates what it reads, so corrupt input fails the same way bad
+ * text does.
+ */
+public final class BankNumberCodec {
+	
+	public static final int ROUTING_NUMBER_BYTES = 4;
+	
+	private BankNumberCodec() {
+	}
+	
+	public static void encode(RoutingNumber number, ByteBuffer buf) {
+		buf.putInt(number.toInt());
+	}
+	
+	public static RoutingNumber decodeRoutingNumber(ByteBuffer buf) throws RoutingNumberException {
+		return RoutingNumber.fromInt(buf.getInt());
+	}
+	
+	public static int encodedLength(AccountNumber number) {
+		return 1 + bcdLength(number.length());
+	}
+	
+	public static void encode(AccountNumber number, ByteBuffer buf) {
+		put(number.toLong(), buf);
+	}
+	
+	public static AccountNumber decodeAccountNumber(ByteBuffer buf) throws AccountNumberException {
+		long field = get(buf, AccountNumber.MAX_LENGTH);
+		if (field < 0) {
+			throw new AccountNumberException(ParseUtil.error(field));
+		}
+		return new AccountNumber(field);
+	}
+	
+	public static int encodedLength(CheckNumber number) {
+		return 1 + bcdLength(number.length());
+	}
+	
+	public static void encode(CheckNumber number, ByteBuffer buf) {
+		put(number.toLong(), buf);
+	}
+	
+	public static CheckNumber decodeCheckNumber(ByteBuffer buf) throws CheckNumberException {
+		long field = get(buf, CheckNumber.MAX_LENGTH);
+		if (field < 0) {
+			throw new CheckNumberException(ParseUtil.error(field));
+		}
+		return new CheckNumber(field);
+	}
+	
+	static int bcdLength(int digits) {
+		return (digits + 1) >>> 1;
+	}
+	
+	/**
+	 * Writes a field from {@link ParseUtil#scanLongField} as its digit count
+	 * and packed digits.  The digits come off the value lowest first, so they
+	 * are written backwards into place.
+	 */
+	static void put(long field, ByteBuffer buf) {
+		int length = ParseUtil.longFieldLength(field);
+		long value = ParseUtil.longFieldValue(field);
+		int start = buf.position();
+		int end = start + 1 + bcdLength(length);
+		if (buf.remaining() < end - start) {
+			throw new BufferOverflowException();
+		}
+		int x = end;
+		if ((length & 1) != 0) {
+			buf.put(--x, (byte)((value % 10) << 4 | 0xF));
+			value /= 10;
+		}
+		while (x > start + 1) {
+			int low = (int)(value % 10);
+			value /= 10;
+			buf.put(--x, (byte)((value % 10) << 4 | low));
+			value /= 10;
+		}
+		buf.put(start, (byte)length);
+		buf.position(end);
+	}
+	
+	private static long get(ByteBuffer buf, int maxDigits) {
+		int count = buf.get() & 0xFF;
+		if (count > maxDigits) {
+			return ParseUtil.fail(BankNumberError.TOO_LONG);
+		}
+		return fromBcd(buf, count);
+	}
+	
+	/**
+	 * Unpacks <code>count</code> digits into a field, or returns a negative
+	 * error code.
+	 */
+	static long fromBcd(ByteBuffer buf, int count) {
+		if (count == 0) {
+			return ParseUtil.fail(BankNumberError.EMPTY);
+		}
+		if (buf.remaining() < bcdLength(count)) {
+			throw new BufferUnderflowException();
+		}
+		long value = 0;
+		int b = 0;
+		for (int i=0; i<count; i++) {
+			int digit;
+			if ((i & 1) == 0) {
+				b = buf.get();
+				digit = (b >>> 4) & 0xF;
+			} else {
+				digit = b & 0xF;
+			}
+			if (digit > 9) {
+				return ParseUtil.fail(BankNumberError.NON_NUMERIC);
+			}
+			value = value * 10 + digit;
+		}
+		return ParseUtil.longField(count, value);
+	}
+}
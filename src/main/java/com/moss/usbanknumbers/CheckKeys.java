@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+/**
+ * Hashes the key of a check, its routing, account and check numbers, for
+ * the features that index checks (duplicate presentment filtering, positive
+ * pay matching).  Keeping one function means a check lands in the same
+ * place in each.
+ */
+public final class CheckKeys {
+	
+	private CheckKeys() {
+	}
+	
+	public static long hash(RoutingNumber routing, AccountNumber account, CheckNumber check) {
+		return hash(routing.toInt(), account.toLong(), check.longValue());
+	}
+	
+	/**
+	 * Hashes a key in packed form: {@link RoutingNumber#toInt()},
+	 * {@link AccountNumber#toLong()} and {@link CheckNumber#longValue()}.
+	 */
+	public static long hash(int routing, long account, long check) {
+		long h = account * 0x9E3779B97F4A7C15L;
+		h = (h ^ (h >>> 32) ^ check) * 0xC2B2AE3D27D4EB4FL;
+		h = (h ^ (h >>> 29) ^ routing) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+	
+	/**
+	 * Derives a second hash from one returned by {@link #hash}, with every
+	 * bit of it mixed into the low bits of the result: for double hashing,
+	 * or for indexing by low bits after partitioning on the first hash.
+	 */
+	public static long rehash(long h) {
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		return h ^ (h >>> 33);
+	}
+}
@@ -37,6 +37,11 @@
  */
 package com.moss.usbanknumbers;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
@@ -44,10 +49,29 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import com.moss.usbanknumbers.jaxb.CheckNumberAdapter;
 
 @XmlJavaTypeAdapter(CheckNumberAdapter.class)
-@SuppressWarnings("serial")
 public class CheckNumber implements Serializable {
 	
-	private String number;
+	private static final long serialVersionUID = -6605960913028607465L;
+	
+	/**
+	 * Instances are written as a {@link SerialForm}; this single "number"
+	 * string field is what earlier versions wrote, and is still read.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("number", String.class)
+	};
+	
+	/**
+	 * The longest check number accepted, the width of the ACH check serial number field.
+	 */
+	public static final int MAX_LENGTH = 15;
+	
+	/**
+	 * The digit count and value, packed by {@link ParseUtil#scanLongField}.
+	 */
+	private long field;
+	
+	private transient String text;
 	
 	public CheckNumber(String number) throws CheckNumberException {
 		
@@ -55,24 +79,82 @@ public class CheckNumber implements Serializable {
 			throw new NullPointerException();
 		}
 		
-		number = number.trim();
-		
-		if (number.length() == 0) {
-			throw new CheckNumberException("A check number must be greater than 0 digits in length");
+		long field = ParseUtil.scanLongField(number, 0, number.length(), MAX_LENGTH);
+		if (field < 0) {
+			throw new CheckNumberException(ParseUtil.error(field));
 		}
 		
-		if (!isNumeric(number)) {
-			throw new CheckNumberException("A check number must be entirely numeric.");
+		this.field = field;
+	}
+	
+	CheckNumber(long field) {
+		this.field = field;
+	}
+	
+	/**
+	 * Parses the text without throwing; rejected text allocates nothing.
+	 */
+	public static ParseResult<CheckNumber> tryParse(CharSequence text) {
+		long field = text == null ? ParseUtil.fail(BankNumberError.EMPTY) : ParseUtil.scanLongField(text, 0, text.length(), MAX_LENGTH);
+		if (field < 0) {
+			return ParseUtil.error(field).failure();
 		}
+		return ParseResult.success(new CheckNumber(field));
+	}
+	
+	/**
+	 * Returns why the text, ignoring surrounding whitespace, is not a valid
+	 * check number, or null if it is one.
+	 */
+	public static BankNumberError check(CharSequence text) {
 		
-		int[] digits = new int[number.length()];
-		{
-			for (int i=0; i<number.length(); i++) {
-				digits[i] = Integer.parseInt(number.substring(i, i + 1));
-			}
+		if (text == null) {
+			return BankNumberError.EMPTY;
 		}
 		
-		this.number = number;
+		return ParseUtil.error(ParseUtil.scanLongField(text, 0, text.length(), MAX_LENGTH));
+	}
+	
+	/**
+	 * Decodes a value returned by {@link #toLong()}.
+	 */
+	public static CheckNumber fromLong(long value) throws CheckNumberException {
+		if (!ParseUtil.isLongField(value, MAX_LENGTH)) {
+			throw new CheckNumberException(BankNumberError.MALFORMED);
+		}
+		return new CheckNumber(value);
+	}
+	
+	/**
+	 * Encodes this number as a single long for compact storage: the digit
+	 * count (so that leading zeros survive) in bits 57 and up and the value
+	 * below that.
+	 *
+	 * @see #fromLong(long)
+	 */
+	public long toLong() {
+		return field;
+	}
+	
+	/**
+	 * The digits as a number, e.g. 12 for "0012".
+	 */
+	public long longValue() {
+		return ParseUtil.longFieldValue(field);
+	}
+	
+	/**
+	 * The number of digits, including leading zeros.
+	 */
+	public int length() {
+		return ParseUtil.longFieldLength(field);
+	}
+	
+	/**
+	 * The digit at the index, counting from the left.
+	 */
+	public int digit(int index) {
+		return ParseUtil.longFieldDigit(field, index);
 	}
 	
 	public boolean equals(Object o) {
@@ -81,25 +163,36 @@ public class CheckNumber implements Serializable {
 			&&
 			o instanceof CheckNumber
 			&&
-			((CheckNumber)o).number.equals(number);
+			((CheckNumber)o).field == field;
 	}
 	
 	public String toString() {
-		return number;
+		String text = this.text;
+		if (text == null) {
+			text = ParseUtil.renderLongField(field);
+			this.text = text;
+		}
+		return text;
 	}
 	
 	public int hashCode() {
-		return number.hashCode();
+		return (int)(field ^ (field >>> 32));
 	}
 	
-	private boolean isNumeric(String number) {
-		
-		for (char c : number.toCharArray()) {
-			if (c < '0' || c > '9') {
-				return false;
-			}
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerialForm(this);
+	}
+	
+	/**
+	 * Reads the plain "number" field that earlier versions wrote.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		String number = (String)fields.get("number", null);
+		long field = number == null ? ParseUtil.fail(BankNumberError.EMPTY) : ParseUtil.scanLongField(number, 0, number.length(), MAX_LENGTH);
+		if (field < 0) {
+			throw new InvalidObjectException("Invalid check number: " + ParseUtil.error(field));
 		}
-		
-		return true;
+		this.field = field;
 	}
 }
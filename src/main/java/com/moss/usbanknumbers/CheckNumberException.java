@@ -40,7 +40,49 @@ package com.moss.usbanknumbers;
 @SuppressWarnings("serial")
 public class CheckNumberException extends Exception {
 
+	private BankNumberError error;
+
 	public CheckNumberException(String message) {
 		super(message);
 	}
+
+	/**
+	 * The message is only built if asked for.
+	 */
+	public CheckNumberException(BankNumberError error) {
+		this.error = error;
+	}
+
+	/**
+	 * Why the text was rejected, or null if this exception was built from a
+	 * plain message.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+
+	@Override
+	public String getMessage() {
+		String message = super.getMessage();
+		if (message != null || error == null) {
+			return message;
+		}
+		return describe();
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return ParseUtil.STACKLESS_EXCEPTIONS ? this : super.fillInStackTrace();
+	}
+
+	private String describe() {
+		switch (error) {
+		case EMPTY:
+			return "A check number must be greater than 0 digits in length";
+		case NON_NUMERIC:
+			return "A check number must be entirely numeric.";
+		default:
+			return "This check number is not valid.";
+		}
+	}
 }
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stop-payment orders by account, as ranges of check numbers: "checks 1001
+ * to 1250 on this account".  Check numbers are compared by value, so "0042"
+ * and "42" are the same check; accounts are matched as written, leading zeros
+ * included, as {@link AccountNumber#equals(Object)} does.
+ * <p>
+ * Each order carries an expiry time, and {@link #expire(long)} drops the
+ * orders that have lapsed.  Overlapping orders are merged, each check keeping
+ * the latest expiry of the orders covering it, so the ranges held for an
+ * account never overlap and {@link #isStopped} is a binary search.
+ * <p>
+ * Lookups never lock or allocate.  Changes are serialized against each other
+ * and replace an account's ranges as a whole, so a lookup running
+ * concurrently with a change sees the ranges either before or after it.
+ */
+public final class CheckNumberRangeIndex {
+	
+	/**
+	 * The expiry time of orders that never expire.
+	 */
+	public static final long NEVER = Long.MAX_VALUE;
+	
+	private static final long[] NONE = new long[0];
+	
+	private volatile AtomicReferenceArray<Ranges> slots = new AtomicReferenceArray<Ranges>(16);
+	private int accounts;
+	
+	public void add(RoutingNumber routing, AccountNumber account, CheckNumber check, long expires) {
+		add(routing, account, check, check, expires);
+	}
+	
+	/**
+	 * Stops the checks from <code>first</code> to <code>last</code>, inclusive,
+	 * until <code>expires</code> (as passed to {@link #expire(long)}).
+	 */
+	public synchronized void add(RoutingNumber routing, AccountNumber account, CheckNumber first, CheckNumber last, long expires) {
+		long low = first.longValue();
+		long high = last.longValue();
+		if (low > high) {
+			throw new IllegalArgumentException(first + " is after " + last);
+		}
+		
+		int routingValue = routing.toInt();
+		long accountValue = account.toLong();
+		AtomicReferenceArray<Ranges> slots = this.slots;
+		int slot = slot(slots, routingValue, accountValue);
+		Ranges ranges = slots.get(slot);
+		if (ranges == null) {
+			if ((accounts + 1) * 2 > slots.length()) {
+				slots = rehash(slots.length() * 2);
+				this.slots = slots;
+				slot = slot(slots, routingValue, accountValue);
+			}
+			ranges = new Ranges(routingValue, accountValue, NONE, NONE, NONE, 0);
+			accounts++;
+		}
+		slots.set(slot, ranges.with(low, high, expires));
+	}
+	
+	public boolean isStopped(RoutingNumber routing, AccountNumber account, CheckNumber check) {
+		AtomicReferenceArray<Ranges> slots = this.slots;
+		Ranges ranges = slots.get(slot(slots, routing.toInt(), account.toLong()));
+		return ranges != null && ranges.contains(check.longValue());
+	}
+	
+	/**
+	 * Drops the orders expiring at or before <code>now</code>, returning the
+	 * number of ranges removed.
+	 */
+	public synchronized int expire(long now) {
+		AtomicReferenceArray<Ranges> slots = this.slots;
+		int removed = 0;
+		int remaining = 0;
+		for (int i=0; i<slots.length(); i++) {
+			Ranges ranges = slots.get(i);
+			if (ranges != null) {
+				Ranges kept = ranges.expire(now);
+				removed += ranges.count - kept.count;
+				slots.set(i, kept);
+				if (kept.count > 0) {
+					remaining++;
+				}
+			}
+		}
+		if (remaining < accounts) {
+			accounts = remaining;
+			this.slots = rehash(slots.length());
+		}
+		return removed;
+	}
+	
+	/**
+	 * The number of disjoint ranges held, across all accounts.
+	 */
+	public synchronized int size() {
+		AtomicReferenceArray<Ranges> slots = this.slots;
+		int size = 0;
+		for (int i=0; i<slots.length(); i++) {
+			Ranges ranges = slots.get(i);
+			if (ranges != null) {
+				size += ranges.count;
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Copies the accounts that still have ranges into a new table.
+	 */
+	private AtomicReferenceArray<Ranges> rehash(int capacity) {
+		AtomicReferenceArray<Ranges> old = slots;
+		AtomicReferenceArray<Ranges> slots = new AtomicReferenceArray<Ranges>(capacity);
+		for (int i=0; i<old.length(); i++) {
+			Ranges ranges = old.get(i);
+			if (ranges != null && ranges.count > 0) {
+				slots.set(slot(slots, ranges.routing, ranges.account), ranges);
+			}
+		}
+		return slots;
+	}
+	
+	/**
+	 * Returns the slot holding the account, or the empty slot where it
+	 * belongs.  The table is never more than half full.
+	 */
+	private static int slot(AtomicReferenceArray<Ranges> slots, int routing, long account) {
+		long h = (account ^ (account >>> 29)) * 0x9E3779B97F4A7C15L + routing;
+		h = (h ^ (h >>> 32)) * 0xC2B2AE3D27D4EB4FL;
+		int mask = slots.length() - 1;
+		for (int i=(int)(h >>> 32) & mask; ; i=(i + 1) & mask) {
+			Ranges ranges = slots.get(i);
+			if (ranges == null || (ranges.routing == routing && ranges.account == account)) {
+				return i;
+			}
+		}
+	}
+	
+	/**
+	 * One account's ranges, sorted and disjoint.  Never changed once
+	 * published.
+	 */
+	private static final class Ranges {
+		
+		final int routing;
+		final long account;
+		final long[] lows;
+		final long[] highs;
+		final long[] expiries;
+		final int count;
+		
+		Ranges(int routing, long account, long[] lows, long[] highs, long[] expiries, int count) {
+			this.routing = routing;
+			this.account = account;
+			this.lows = lows;
+			this.highs = highs;
+			this.expiries = expiries;
+			this.count = count;
+		}
+		
+		boolean contains(long check) {
+			int i = Arrays.binarySearch(lows, 0, count, check);
+			if (i >= 0) {
+				return true;
+			}
+			i = -i - 2;
+			return i >= 0 && check <= highs[i];
+		}
+		
+		/**
+		 * Returns these ranges with [low, high] added, expiring at the later
+		 * of <code>expires</code> and the expiry already there.
+		 */
+		Ranges with(long low, long high, long expires) {
+			Builder b = new Builder(count * 2 + 3);
+			long next = low;
+			for (int i=0; i<count; i++) {
+				long s = lows[i];
+				long t = highs[i];
+				long x = expiries[i];
+				if (s > high && next <= high) {
+					b.add(next, high, expires);
+					next = high + 1;
+				}
+				if (t < low || s > high) {
+					b.add(s, t, x);
+					continue;
+				}
+				if (s < low) {
+					b.add(s, low - 1, x);
+				}
+				long from = Math.max(s, low);
+				long to = Math.min(t, high);
+				if (next < from) {
+					b.add(next, from - 1, expires);
+				}
+				b.add(from, to, Math.max(x, expires));
+				next = to + 1;
+				if (t > high) {
+					b.add(high + 1, t, x);
+				}
+			}
+			if (next <= high) {
+				b.add(next, high, expires);
+			}
+			return new Ranges(routing, account, b.lows, b.highs, b.expiries, b.count);
+		}
+		
+		Ranges expire(long now) {
+			Builder b = new Builder(count);
+			for (int i=0; i<count; i++) {
+				if (expiries[i] > now) {
+					b.add(lows[i], highs[i], expiries[i]);
+				}
+			}
+			return b.count == count ? this : new Ranges(routing, account, b.lows, b.highs, b.expiries, b.count);
+		}
+	}
+	
+	/**
+	 * Collects ranges in ascending order, joining neighbours that expire
+	 * together.
+	 */
+	private static final class Builder {
+		
+		final long[] lows;
+		final long[] highs;
+		final long[] expiries;
+		int count;
+		
+		Builder(int capacity) {
+			lows = new long[capacity];
+			highs = new long[capacity];
+			expiries = new long[capacity];
+		}
+		
+		void add(long low, long high, long expires) {
+			if (count > 0 && highs[count - 1] + 1 == low && expiries[count - 1] == expires) {
+				highs[count - 1] = high;
+				return;
+			}
+			lows[count] = low;
+			highs[count] = high;
+			expiries[count] = expires;
+			count++;
+		}
+	}
+}
@@ -0,0 +1,413 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers which checks have been presented over a number of recent time
+ * windows (say, 90 windows of a day each) to catch the same check presented
+ * twice, as when it is deposited by phone and again at a branch.
+ * <p>
+ * Each window is a blocked Bloom filter: a check's bits all fall in one
+ * 512 bit block, so a lookup touches a single cache line per window.  Like
+ * any Bloom filter it may report a check never seen as a duplicate, at
+ * about the configured false positive rate, but never misses one that was
+ * added (within the windows kept).
+ * <p>
+ * The window being filled, and the one before it, live on the heap and are
+ * updated with compare-and-set, so adds and lookups never lock.  Older
+ * windows are written to files in the filter's directory and memory-mapped
+ * read-only, so reopening the directory after a restart costs one window's
+ * read and a map of each of the rest.  Windows older than the configured
+ * count are deleted as time moves on.  {@link #checkpoint()} (and
+ * {@link #close()}) saves the heap windows too.
+ * <p>
+ * Two adds of the same check racing with each other may both be reported as
+ * new.
+ */
+public final class DuplicatePresentmentFilter implements Closeable {
+	
+	private static final int MAGIC = 0x44504631;
+	private static final int HEADER_BYTES = 32;
+	private static final int BLOCK_LONGS = 8;
+	private static final String PREFIX = "presentments-";
+	private static final String SUFFIX = ".bloom";
+	
+	private final File directory;
+	private final long windowMillis;
+	private final int windows;
+	private final long blocks;
+	private final int hashes;
+	
+	private volatile State state;
+	
+	private DuplicatePresentmentFilter(File directory, long windowMillis, int windows, long blocks, int hashes) {
+		this.directory = directory;
+		this.windowMillis = windowMillis;
+		this.windows = windows;
+		this.blocks = blocks;
+		this.hashes = hashes;
+	}
+	
+	/**
+	 * Opens the filter kept in the directory, creating it if need be.  The
+	 * directory must always be opened with the same parameters.
+	 *
+	 * @param windowMillis the length of each window
+	 * @param windows the number of windows to keep
+	 * @param expectedPerWindow the number of checks expected in one window
+	 * @param falsePositiveRate the chance of a new check being reported as a
+	 * duplicate by any one window, when it holds the expected number of checks
+	 */
+	public static DuplicatePresentmentFilter open(File directory, long windowMillis, int windows, long expectedPerWindow, double falsePositiveRate) throws IOException {
+		if (windowMillis <= 0 || windows < 1 || expectedPerWindow < 1) {
+			throw new IllegalArgumentException("The window length, window count and expected checks must be positive");
+		}
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("The false positive rate must be between 0 and 1");
+		}
+		
+		double bitsPerCheck = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		int hashes = (int)Math.max(1, Math.round(bitsPerCheck * Math.log(2)));
+		long blocks = Math.max(1, (long)Math.ceil(expectedPerWindow * bitsPerCheck / (BLOCK_LONGS * 64)));
+		if (HEADER_BYTES + blocks * BLOCK_LONGS * 8 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A window of " + expectedPerWindow + " checks is too large");
+		}
+		
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Couldn't create " + directory);
+		}
+		DuplicatePresentmentFilter filter = new DuplicatePresentmentFilter(directory, windowMillis, windows, blocks, hashes);
+		filter.load();
+		return filter;
+	}
+	
+	private void load() throws IOException {
+		List<Long> found = new ArrayList<Long>();
+		String[] names = directory.list();
+		for (String name : names) {
+			if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+				try {
+					found.add(Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+				}
+				catch (NumberFormatException e) {
+				}
+			}
+		}
+		long[] indexes = new long[found.size()];
+		for (int i=0; i<indexes.length; i++) {
+			indexes[i] = found.get(i).longValue();
+		}
+		Arrays.sort(indexes);
+		
+		if (indexes.length == 0) {
+			state = new State(new HeapWindow(0), null, new Window[0]);
+			return;
+		}
+		Window[] sealed = new Window[indexes.length - 1];
+		for (int i=0; i<sealed.length; i++) {
+			sealed[i] = map(indexes[i]);
+		}
+		HeapWindow active = new HeapWindow(indexes[indexes.length - 1]);
+		active.read();
+		state = new State(active, null, sealed);
+	}
+	
+	public boolean add(RoutingNumber routing, AccountNumber account, CheckNumber check) throws IOException {
+		return add(routing, account, check, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Records a presentment at the given time, returning true if the check
+	 * was (probably) presented before.  Times before the current window count
+	 * as the current window.
+	 */
+	public boolean add(RoutingNumber routing, AccountNumber account, CheckNumber check, long time) throws IOException {
+		long window = time / windowMillis;
+		State state = this.state;
+		if (window > state.active.index) {
+			state = advance(window);
+		}
+		
+		long h = CheckKeys.hash(routing, account, check);
+		long g = CheckKeys.rehash(h);
+		boolean seen = state.previous != null && state.previous.contains(h, g, blocks, hashes);
+		for (int i=0; i<state.sealed.length && !seen; i++) {
+			seen = state.sealed[i].contains(h, g, blocks, hashes);
+		}
+		return !state.active.add(h, g, blocks, hashes) || seen;
+	}
+	
+	/**
+	 * Returns true if the check was (probably) presented within the windows
+	 * kept, without recording it.
+	 */
+	public boolean mightContain(RoutingNumber routing, AccountNumber account, CheckNumber check) {
+		State state = this.state;
+		long h = CheckKeys.hash(routing, account, check);
+		long g = CheckKeys.rehash(h);
+		if (state.active.contains(h, g, blocks, hashes)) {
+			return true;
+		}
+		if (state.previous != null && state.previous.contains(h, g, blocks, hashes)) {
+			return true;
+		}
+		for (int i=0; i<state.sealed.length; i++) {
+			if (state.sealed[i].contains(h, g, blocks, hashes)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Starts the given window, sealing the previous one to disk and dropping
+	 * those too old to keep.
+	 */
+	private synchronized State advance(long window) throws IOException {
+		State state = this.state;
+		if (window <= state.active.index) {
+			return state;
+		}
+		
+		List<Window> sealed = new ArrayList<Window>(Arrays.asList(state.sealed));
+		if (state.previous != null) {
+			state.previous.write(file(state.previous.index));
+			sealed.add(map(state.previous.index));
+		}
+		long oldest = window - windows + 1;
+		for (int i=sealed.size()-1; i>=0; i--) {
+			if (sealed.get(i).index < oldest) {
+				file(sealed.remove(i).index).delete();
+			}
+		}
+		HeapWindow previous = state.active;
+		if (previous.index < oldest) {
+			file(previous.index).delete();
+			previous = null;
+		}
+		
+		state = new State(new HeapWindow(window), previous, sealed.toArray(new Window[sealed.size()]));
+		this.state = state;
+		return state;
+	}
+	
+	/**
+	 * Saves the heap windows, so that a restart loses nothing added so far.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		State state = this.state;
+		if (state.previous != null) {
+			state.previous.write(file(state.previous.index));
+		}
+		state.active.write(file(state.active.index));
+	}
+	
+	public void close() throws IOException {
+		checkpoint();
+	}
+	
+	private File file(long index) {
+		return new File(directory, PREFIX + index + SUFFIX);
+	}
+	
+	private MappedWindow map(long index) throws IOException {
+		File file = file(index);
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() != HEADER_BYTES + blocks * BLOCK_LONGS * 8) {
+				throw new IOException(file + " was built with different parameters");
+			}
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			checkHeader(file, buffer, index);
+			return new MappedWindow(index, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+	
+	private void checkHeader(File file, ByteBuffer header, long index) throws IOException {
+		if (header.getInt(0) != MAGIC || header.getInt(4) != hashes || header.getLong(8) != blocks || header.getLong(16) != windowMillis || header.getLong(24) != index) {
+			throw new IOException(file + " was built with different parameters");
+		}
+	}
+	
+	/**
+	 * The first long of the check's block: the high half of h picks the
+	 * block, and the bits within it are taken from h's low half stepped by g.
+	 */
+	private static long block(long h, long blocks) {
+		return ((h >>> 32) * blocks >>> 32) * BLOCK_LONGS;
+	}
+	
+	/**
+	 * The position, 0 to 511, of the check's i'th bit within its block.
+	 */
+	private static int bit(long h, long g, int i) {
+		return ((int)h + i * ((int)g | 1)) >>> 23;
+	}
+	
+	private static final class State {
+		
+		final HeapWindow active;
+		final HeapWindow previous;
+		final Window[] sealed;
+		
+		State(HeapWindow active, HeapWindow previous, Window[] sealed) {
+			this.active = active;
+			this.previous = previous;
+			this.sealed = sealed;
+		}
+	}
+	
+	private abstract static class Window {
+		
+		final long index;
+		
+		Window(long index) {
+			this.index = index;
+		}
+		
+		abstract long word(int i);
+		
+		boolean contains(long h, long g, long blocks, int hashes) {
+			int block = (int)block(h, blocks);
+			for (int i=0; i<hashes; i++) {
+				int bit = bit(h, g, i);
+				if ((word(block + (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	private final class HeapWindow extends Window {
+		
+		private final AtomicLongArray words = new AtomicLongArray((int)(blocks * BLOCK_LONGS));
+		
+		HeapWindow(long index) {
+			super(index);
+		}
+		
+		long word(int i) {
+			return words.get(i);
+		}
+		
+		/**
+		 * Sets the check's bits, returning true if any of them wasn't set
+		 * before.
+		 */
+		boolean add(long h, long g, long blocks, int hashes) {
+			int block = (int)block(h, blocks);
+			boolean changed = false;
+			for (int i=0; i<hashes; i++) {
+				int bit = bit(h, g, i);
+				int w = block + (bit >>> 6);
+				long mask = 1L << bit;
+				long old;
+				while (((old = words.get(w)) & mask) == 0) {
+					if (words.compareAndSet(w, old, old | mask)) {
+						changed = true;
+						break;
+					}
+				}
+			}
+			return changed;
+		}
+		
+		void write(File file) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				FileChannel channel = raf.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+				buffer.putInt(MAGIC).putInt(hashes).putLong(blocks).putLong(windowMillis).putLong(index);
+				for (int i=0; i<words.length(); i++) {
+					if (!buffer.hasRemaining()) {
+						flush(buffer, channel);
+					}
+					buffer.putLong(words.get(i));
+				}
+				flush(buffer, channel);
+				raf.setLength(channel.position());
+			} finally {
+				raf.close();
+			}
+		}
+		
+		void read() throws IOException {
+			MappedWindow mapped = map(index);
+			for (int i=0; i<words.length(); i++) {
+				words.set(i, mapped.word(i));
+			}
+		}
+		
+		private void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+	
+	private static final class MappedWindow extends Window {
+		
+		private final ByteBuffer buffer;
+		
+		MappedWindow(long index, ByteBuffer buffer) {
+			super(index);
+			this.buffer = buffer;
+		}
+		
+		long word(int i) {
+			return buffer.getLong(HEADER_BYTES + i * 8);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Checks fractional routing numbers against the MICR routing numbers
+ * printed beside them.  The denominator must equal the first 4 digits of
+ * the routing number and the ABA suffix digits 5 through 8, as in
+ * {@link FractionalRoutingNumber#FractionalRoutingNumber(AbaNumber.Prefix, RoutingNumber)};
+ * both are compared as numbers, straight from the scanned text.
+ * <p>
+ * Routing numbers are given packed as by {@link RoutingNumber#toInt()}.
+ */
+public final class FractionalReconciliation {
+	
+	/** The fractional text didn't parse. */
+	public static final int UNPARSEABLE = 1;
+	/** The packed routing number isn't valid. */
+	public static final int INVALID_ROUTING_NUMBER = 2;
+	/** The denominator isn't the first 4 digits of the routing number. */
+	public static final int DENOMINATOR_MISMATCH = 4;
+	/** The ABA suffix isn't digits 5-8 of the routing number. */
+	public static final int SUFFIX_MISMATCH = 8;
+	
+	private FractionalReconciliation() {
+	}
+	
+	/**
+	 * Compares one pair, allocating nothing.
+	 *
+	 * @return 0 if they agree, otherwise the reason flags
+	 */
+	public static int compare(CharSequence fractional, int routingNumber) {
+		
+		int reasons = 0;
+		if (RoutingNumber.scan(routingNumber) < 0) {
+			reasons |= INVALID_ROUTING_NUMBER;
+		}
+		
+		long code = fractional == null ? -1 : FractionalRoutingNumber.scan(fractional, 0, fractional.length());
+		if (code < 0) {
+			return reasons | UNPARSEABLE;
+		}
+		if (reasons != 0) {
+			return reasons;
+		}
+		
+		int denominator = (int)code & 0x3FFF;
+		int suffix = (int)(code >>> 17) & 0x3FFF;
+		
+		if (denominator != routingNumber / 100000) {
+			reasons |= DENOMINATOR_MISMATCH;
+		}
+		if (suffix != routingNumber / 10 % 10000) {
+			reasons |= SUFFIX_MISMATCH;
+		}
+		return reasons;
+	}
+	
+	public static int compare(CharSequence fractional, RoutingNumber routingNumber) {
+		return compare(fractional, routingNumber.toInt());
+	}
+	
+	/**
+	 * Compares <code>fractional[i]</code> with <code>routingNumbers[i]</code>
+	 * for every i, on the calling thread.
+	 */
+	public static ReconciliationReport reconcile(CharSequence[] fractional, int[] routingNumbers) {
+		checkLengths(fractional, routingNumbers);
+		return reconcile(fractional, routingNumbers, 0, fractional.length);
+	}
+	
+	/**
+	 * As {@link #reconcile(CharSequence[], int[])}, split into
+	 * <code>parts</code> ranges that are checked concurrently on the executor.
+	 */
+	public static ReconciliationReport reconcile(final CharSequence[] fractional, final int[] routingNumbers, ExecutorService executor, int parts) throws InterruptedException {
+		
+		checkLengths(fractional, routingNumbers);
+		if (parts < 1) {
+			throw new IllegalArgumentException("parts must be positive");
+		}
+		
+		int size = fractional.length;
+		parts = Math.max(1, Math.min(parts, size));
+		
+		List<Future<ReconciliationReport>> futures = new ArrayList<Future<ReconciliationReport>>(parts);
+		for (int i=0; i<parts; i++) {
+			final int from = (int)((long)size * i / parts);
+			final int to = (int)((long)size * (i + 1) / parts);
+			futures.add(executor.submit(new Callable<ReconciliationReport>() {
+				public ReconciliationReport call() {
+					return reconcile(fractional, routingNumbers, from, to);
+				}
+			}));
+		}
+		
+		ReconciliationReport[] reports = new ReconciliationReport[parts];
+		try {
+			for (int i=0; i<parts; i++) {
+				reports[i] = futures.get(i).get();
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(futures);
+			throw e;
+		}
+		catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause.toString());
+		}
+		
+		return ReconciliationReport.concat(reports, size);
+	}
+	
+	private static ReconciliationReport reconcile(CharSequence[] fractional, int[] routingNumbers, int from, int to) {
+		ReconciliationReport report = new ReconciliationReport(to - from);
+		for (int i=from; i<to; i++) {
+			int reasons = compare(fractional[i], routingNumbers[i]);
+			if (reasons != 0) {
+				report.add(i, reasons);
+			}
+		}
+		return report;
+	}
+	
+	private static void checkLengths(CharSequence[] fractional, int[] routingNumbers) {
+		if (fractional.length != routingNumbers.length) {
+			throw new IllegalArgumentException(fractional.length + " fractional numbers but " + routingNumbers.length + " routing numbers");
+		}
+	}
+	
+	private static void cancel(List<Future<ReconciliationReport>> futures) {
+		for (Future<ReconciliationReport> future : futures) {
+			future.cancel(true);
+		}
+	}
+}
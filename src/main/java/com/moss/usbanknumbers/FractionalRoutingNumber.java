@@ -70,19 +70,74 @@ public class FractionalRoutingNumber {
 	public FractionalRoutingNumber(String text) throws FractionalRoutingNumberException, AbaNumberException {
 		if(text==null)
 			throw new NullPointerException("null fraction text");
-		text = text.trim();
-		if(text.length()==0)
-			throw new FractionalRoutingNumberException("Empty fraction text");
+		int start = ParseUtil.trimStart(text, 0, text.length());
+		int end = ParseUtil.trimEnd(text, start, text.length());
+		if(start==end)
+			throw new FractionalRoutingNumberException(BankNumberError.EMPTY, null);
 		
-		String[] parts = text.split("/");
-		if(parts.length!=2)
-			genericError(text);
+		int slash = ParseUtil.indexOfOnly(text, start, end, '/');
+		if(slash==-1)
+			throw new FractionalRoutingNumberException(BankNumberError.MALFORMED, text.trim());
 		
-		init(new AbaNumber(parts[0]), parts[1]);
+		int numerator = AbaNumber.scan(text, start, slash);
+		if(numerator<0)
+			throw new AbaNumberException(ParseUtil.error(numerator), text.substring(start, slash).trim());
+		
+		int denominator = ParseUtil.scanShortField(text, slash+1, end);
+		if(denominator<0)
+			throw new FractionalRoutingNumberException(ParseUtil.error(denominator), text.trim());
+		
+		this.numerator = new AbaNumber(numerator);
+		this.denominator = ParseUtil.renderShortField(denominator);
+	}
+	
+	private FractionalRoutingNumber(long code) {
+		this.numerator = new AbaNumber((int)(code>>>17));
+		this.denominator = ParseUtil.renderShortField((int)code & 0x1FFFF);
+	}
+	
+	/**
+	 * Parses the text without throwing; rejected text allocates nothing.
+	 */
+	public static ParseResult<FractionalRoutingNumber> tryParse(CharSequence text) {
+		long code = text==null ? ParseUtil.fail(BankNumberError.EMPTY) : scan(text, 0, text.length());
+		if(code<0)
+			return ParseUtil.error(code).failure();
+		return ParseResult.success(new FractionalRoutingNumber(code));
 	}
 	
-	private void genericError(String text) throws FractionalRoutingNumberException {
-		throw new FractionalRoutingNumberException("\"" + text + "\" is not a valid fractional routing number.");
+	/**
+	 * Returns why the text is not a valid fractional routing number, or null
+	 * if it is one.
+	 */
+	public static BankNumberError check(CharSequence text) {
+		return text==null ? BankNumberError.EMPTY : ParseUtil.error(scan(text, 0, text.length()));
+	}
+	
+	/**
+	 * Scans "numerator/denominator" in [start, end).  Returns the numerator
+	 * (as encoded by {@link AbaNumber#scan}) in bits 17 and up and the
+	 * denominator below that, or a negative error code.
+	 */
+	static long scan(CharSequence text, int start, int end) {
+		start = ParseUtil.trimStart(text, start, end);
+		end = ParseUtil.trimEnd(text, start, end);
+		if(start==end)
+			return ParseUtil.fail(BankNumberError.EMPTY);
+		
+		int slash = ParseUtil.indexOfOnly(text, start, end, '/');
+		if(slash==-1)
+			return ParseUtil.fail(BankNumberError.MALFORMED);
+		
+		int numerator = AbaNumber.scan(text, start, slash);
+		if(numerator<0)
+			return numerator;
+		
+		int denominator = ParseUtil.scanShortField(text, slash+1, end);
+		if(denominator<0)
+			return denominator;
+		
+		return ((long)numerator<<17) | denominator;
 	}
 	
 	public FractionalRoutingNumber(AbaNumber numerator, String denominator) throws FractionalRoutingNumberException {
@@ -93,18 +148,11 @@ public class FractionalRoutingNumber {
 		this.numerator = numerator;
 		
 		if(denominator==null)
-			throw new FractionalRoutingNumberException("Null denominator");
-		denominator = denominator.trim();
-		if(denominator.length()==0)
-			throw new FractionalRoutingNumberException("Empty denominator");
-		if(denominator.length()>4)
-			throw new FractionalRoutingNumberException("\"" + denominator + "\"is not a valid denominator (too long)");
-		try{
-			Integer.parseInt(denominator);
-		}catch(NumberFormatException e){
-			throw new FractionalRoutingNumberException("\"" + denominator + "\"is not a valid denominator (not numeric)");
-		}
-		this.denominator = denominator;
+			throw new FractionalRoutingNumberException(BankNumberError.EMPTY, null);
+		int field = ParseUtil.scanShortField(denominator, 0, denominator.length());
+		if(field<0)
+			throw new FractionalRoutingNumberException(ParseUtil.error(field), denominator.trim());
+		this.denominator = denominator.trim();
 	}
 	
 	public AbaNumber numerator() {
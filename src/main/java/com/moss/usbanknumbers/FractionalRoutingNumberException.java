@@ -40,6 +40,9 @@ package com.moss.usbanknumbers;
 @SuppressWarnings("serial")
 public class FractionalRoutingNumberException extends Exception {
 
+	private BankNumberError error;
+	private String text;
+
 	public FractionalRoutingNumberException() {
 		super();
 	}
@@ -55,5 +58,47 @@ public class FractionalRoutingNumberException extends Exception {
 	public FractionalRoutingNumberException(Throwable cause) {
 		super(cause);
 	}
-	
+
+	/**
+	 * The message is only built if asked for.
+	 */
+	public FractionalRoutingNumberException(BankNumberError error, String text) {
+		this.error = error;
+		this.text = text;
+	}
+
+	/**
+	 * Why the text was rejected, or null if this exception was built from a
+	 * plain message.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+
+	@Override
+	public String getMessage() {
+		String message = super.getMessage();
+		if (message != null || error == null) {
+			return message;
+		}
+		return describe();
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return ParseUtil.STACKLESS_EXCEPTIONS ? this : super.fillInStackTrace();
+	}
+
+	private String describe() {
+		switch (error) {
+		case EMPTY:
+			return "Empty fraction text";
+		case NON_NUMERIC:
+			return "\"" + text + "\" is not a valid fractional routing number (denominator not numeric).";
+		case TOO_LONG:
+			return "\"" + text + "\" is not a valid fractional routing number (denominator too long).";
+		default:
+			return "\"" + text + "\" is not a valid fractional routing number.";
+		}
+	}
 }
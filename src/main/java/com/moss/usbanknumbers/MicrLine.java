@@ -0,0 +1,451 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+/**
+ * The fields of a check's MICR line, located in a single pass.
+ * <p>
+ * The E-13B symbols may be given either as the Unicode OCR characters
+ * (&#x2446; transit, &#x2448; on-us, &#x2447; amount, &#x2449; dash) or in
+ * the usual ASCII transliteration: <code>T</code>, <code>U</code>,
+ * <code>A</code> and <code>D</code> (or <code>-</code>).  A line reads
+ * <pre>
+ *   [U auxiliary on-us U]  T routing T  on-us  [A amount A]
+ * </pre>
+ * The account number is the on-us group ending at the last on-us symbol
+ * (or the whole on-us field if there is none).  The check number comes from
+ * the auxiliary on-us field when there is one, as on business checks, and
+ * otherwise from the on-us field beside the account number.
+ * <p>
+ * Parsing never throws on bad input.  Each field that can't be read
+ * reports why through its <code>...Error()</code> method, and the offsets
+ * of every field located are kept, so that repair tools can go straight to
+ * the broken part of the line.  Offsets are relative to the start of the
+ * line and are -1 for fields that are absent.
+ */
+public final class MicrLine {
+	
+	public static final char TRANSIT_SYMBOL = '\u2446';
+	public static final char AMOUNT_SYMBOL = '\u2447';
+	public static final char ON_US_SYMBOL = '\u2448';
+	public static final char DASH_SYMBOL = '\u2449';
+	
+	private static final int TRANSIT = 1;
+	private static final int ON_US = 2;
+	private static final int AMOUNT = 3;
+	private static final int DASH = 4;
+	private static final int OTHER = 0;
+	
+	private static final int AMOUNT_DIGITS = 10;
+	
+	private RoutingNumber routingNumber;
+	private BankNumberError routingNumberError;
+	private AccountNumber accountNumber;
+	private BankNumberError accountNumberError;
+	private CheckNumber checkNumber;
+	private BankNumberError checkNumberError;
+	private long amount = -1;
+	
+	private int auxiliaryOnUsStart = -1;
+	private int auxiliaryOnUsEnd = -1;
+	private int transitStart = -1;
+	private int transitEnd = -1;
+	private int onUsStart = -1;
+	private int onUsEnd = -1;
+	private int accountStart = -1;
+	private int accountEnd = -1;
+	private int checkStart = -1;
+	private int checkEnd = -1;
+	private int amountStart = -1;
+	private int amountEnd = -1;
+	
+	private MicrLine() {
+	}
+	
+	public static MicrLine parse(CharSequence text) {
+		
+		if (text == null) {
+			throw new NullPointerException();
+		}
+		
+		MicrLine line = new MicrLine();
+		line.scan(text);
+		return line;
+	}
+	
+	/**
+	 * Parses <code>len</code> ASCII bytes starting at <code>off</code>.
+	 * Offsets are reported relative to <code>off</code>.
+	 */
+	public static MicrLine parse(byte[] buf, int off, int len) {
+		
+		if (off < 0 || len < 0 || off + len > buf.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		return parse(new Bytes(buf, off, off + len));
+	}
+	
+	private void scan(CharSequence text) {
+		
+		int length = text.length();
+		
+		// positions of the symbols that delimit the fields
+		int auxOpen = -1;
+		int auxClose = -1;
+		int lastOnUs = -1;
+		int previousOnUs = -1;
+		
+		int i = 0;
+		
+		// auxiliary on-us, up to the first transit symbol
+		for (; i<length; i++) {
+			int symbol = symbol(text.charAt(i));
+			if (symbol == TRANSIT) {
+				break;
+			}
+			if (symbol == ON_US) {
+				if (auxOpen == -1) {
+					auxOpen = i;
+				}
+				else if (auxClose == -1) {
+					auxClose = i;
+				}
+			}
+		}
+		
+		if (i == length) {
+			routingNumberError = BankNumberError.MALFORMED;
+			accountNumberError = BankNumberError.MALFORMED;
+			checkNumberError = BankNumberError.MALFORMED;
+			return;
+		}
+		
+		transitStart = ++i;
+		for (; i<length; i++) {
+			if (symbol(text.charAt(i)) == TRANSIT) {
+				break;
+			}
+		}
+		
+		if (i == length) {
+			transitStart = -1;
+			routingNumberError = BankNumberError.MALFORMED;
+			accountNumberError = BankNumberError.MALFORMED;
+			checkNumberError = BankNumberError.MALFORMED;
+			return;
+		}
+		
+		transitEnd = i;
+		
+		// on-us, up to the amount field
+		onUsStart = ++i;
+		for (; i<length; i++) {
+			int symbol = symbol(text.charAt(i));
+			if (symbol == AMOUNT) {
+				break;
+			}
+			if (symbol == ON_US) {
+				previousOnUs = lastOnUs;
+				lastOnUs = i;
+			}
+		}
+		onUsEnd = i;
+		
+		if (i < length) {
+			amountStart = ++i;
+			for (; i<length; i++) {
+				if (symbol(text.charAt(i)) == AMOUNT) {
+					amountEnd = i;
+					break;
+				}
+			}
+			if (amountEnd == -1) {
+				amountStart = -1;
+			}
+		}
+		
+		int routing = RoutingNumber.scan(text, transitStart, transitEnd);
+		if (routing < 0) {
+			routingNumberError = ParseUtil.error(routing);
+		}
+		else {
+			routingNumber = new RoutingNumber(routing);
+		}
+		
+		// account: the group ending at the last on-us symbol
+		if (lastOnUs == -1) {
+			setAccount(text, onUsStart, onUsEnd);
+		}
+		else {
+			setAccount(text, previousOnUs == -1 ? onUsStart : previousOnUs + 1, lastOnUs);
+		}
+		
+		// check number: auxiliary on-us, else after the account, else before it
+		if (auxOpen != -1 && auxClose != -1) {
+			auxiliaryOnUsStart = auxOpen + 1;
+			auxiliaryOnUsEnd = auxClose;
+			setCheckNumber(text, auxiliaryOnUsStart, auxiliaryOnUsEnd);
+		}
+		else if (lastOnUs != -1 && !isBlank(text, lastOnUs + 1, onUsEnd)) {
+			setCheckNumber(text, lastOnUs + 1, onUsEnd);
+		}
+		else if (previousOnUs != -1 && !isBlank(text, onUsStart, previousOnUs)) {
+			setCheckNumber(text, onUsStart, previousOnUs);
+		}
+		else {
+			checkNumberError = BankNumberError.EMPTY;
+		}
+		
+		if (amountStart != -1) {
+			int start = ParseUtil.trimStart(text, amountStart, amountEnd);
+			int end = ParseUtil.trimEnd(text, start, amountEnd);
+			if (end - start == AMOUNT_DIGITS) {
+				long value = 0;
+				for (int x=start; x<end && value >= 0; x++) {
+					int digit = text.charAt(x) - '0';
+					value = digit < 0 || digit > 9 ? -1 : value * 10 + digit;
+				}
+				amount = value;
+			}
+		}
+	}
+	
+	private void setAccount(CharSequence text, int start, int end) {
+		start = ParseUtil.trimStart(text, start, end);
+		end = ParseUtil.trimEnd(text, start, end);
+		accountStart = start;
+		accountEnd = end;
+		ParseResult<AccountNumber> result = AccountNumber.tryParse(digits(text, start, end));
+		accountNumber = result.value();
+		accountNumberError = result.error();
+	}
+	
+	private void setCheckNumber(CharSequence text, int start, int end) {
+		start = ParseUtil.trimStart(text, start, end);
+		end = ParseUtil.trimEnd(text, start, end);
+		checkStart = start;
+		checkEnd = end;
+		ParseResult<CheckNumber> result = CheckNumber.tryParse(digits(text, start, end));
+		checkNumber = result.value();
+		checkNumberError = result.error();
+	}
+	
+	/**
+	 * The field with any spaces and dash symbols inside it dropped.  Fields
+	 * that are plain digits, the usual case, are returned as a slice.
+	 */
+	private static CharSequence digits(CharSequence text, int start, int end) {
+		
+		int x = start;
+		while (x < end && text.charAt(x) >= '0' && text.charAt(x) <= '9') {
+			x++;
+		}
+		if (x == end) {
+			return text.subSequence(start, end);
+		}
+		
+		StringBuilder digits = new StringBuilder(end - start);
+		for (x=start; x<end; x++) {
+			char c = text.charAt(x);
+			if (c != ' ' && symbol(c) != DASH) {
+				digits.append(c);
+			}
+		}
+		return digits;
+	}
+	
+	private static boolean isBlank(CharSequence text, int start, int end) {
+		return ParseUtil.trimStart(text, start, end) == end;
+	}
+	
+	private static int symbol(char c) {
+		switch (c) {
+		case TRANSIT_SYMBOL:
+		case 'T':
+			return TRANSIT;
+		case ON_US_SYMBOL:
+		case 'U':
+			return ON_US;
+		case AMOUNT_SYMBOL:
+		case 'A':
+			return AMOUNT;
+		case DASH_SYMBOL:
+		case 'D':
+		case '-':
+			return DASH;
+		default:
+			return OTHER;
+		}
+	}
+	
+	/**
+	 * True when the routing and account numbers could both be read.
+	 */
+	public boolean isValid() {
+		return routingNumber != null && accountNumber != null;
+	}
+	
+	/**
+	 * The routing number from the transit field, or null if it couldn't be read.
+	 */
+	public RoutingNumber routingNumber() {
+		return routingNumber;
+	}
+	
+	public BankNumberError routingNumberError() {
+		return routingNumberError;
+	}
+	
+	public AccountNumber accountNumber() {
+		return accountNumber;
+	}
+	
+	public BankNumberError accountNumberError() {
+		return accountNumberError;
+	}
+	
+	/**
+	 * The check serial number, or null if the line has none or it couldn't be
+	 * read; {@link #checkNumberError()} tells which.
+	 */
+	public CheckNumber checkNumber() {
+		return checkNumber;
+	}
+	
+	public BankNumberError checkNumberError() {
+		return checkNumberError;
+	}
+	
+	/**
+	 * The amount in cents, or -1 if the line has no readable amount field.
+	 */
+	public long amount() {
+		return amount;
+	}
+	
+	/** The start of the routing number, just after the opening transit symbol. */
+	public int transitStart() {
+		return transitStart;
+	}
+	
+	public int transitEnd() {
+		return transitEnd;
+	}
+	
+	/** The start of the on-us field, just after the closing transit symbol. */
+	public int onUsStart() {
+		return onUsStart;
+	}
+	
+	public int onUsEnd() {
+		return onUsEnd;
+	}
+	
+	public int auxiliaryOnUsStart() {
+		return auxiliaryOnUsStart;
+	}
+	
+	public int auxiliaryOnUsEnd() {
+		return auxiliaryOnUsEnd;
+	}
+	
+	/** The start of the account number within the on-us field. */
+	public int accountNumberStart() {
+		return accountStart;
+	}
+	
+	public int accountNumberEnd() {
+		return accountEnd;
+	}
+	
+	/** The start of the check number, in whichever field it was found. */
+	public int checkNumberStart() {
+		return checkStart;
+	}
+	
+	public int checkNumberEnd() {
+		return checkEnd;
+	}
+	
+	public int amountStart() {
+		return amountStart;
+	}
+	
+	public int amountEnd() {
+		return amountEnd;
+	}
+	
+	/**
+	 * A CharSequence over ASCII bytes, so that byte input goes through the
+	 * same scan as text.
+	 */
+	private static final class Bytes implements CharSequence {
+		
+		private final byte[] buf;
+		private final int start;
+		private final int end;
+		
+		Bytes(byte[] buf, int start, int end) {
+			this.buf = buf;
+			this.start = start;
+			this.end = end;
+		}
+		
+		public int length() {
+			return end - start;
+		}
+		
+		public char charAt(int index) {
+			return (char)(buf[start + index] & 0xFF);
+		}
+		
+		public CharSequence subSequence(int from, int to) {
+			return new Bytes(buf, start + from, start + to);
+		}
+		
+		@Override
+		public String toString() {
+			char[] chars = new char[end - start];
+			for (int i=0; i<chars.length; i++) {
+				chars[i] = (char)(buf[start + i] & 0xFF);
+			}
+			return new String(chars);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+/**
+ * The outcome of a <code>tryParse</code> call: either a value or the reason
+ * there isn't one.  Failures are shared instances, so rejecting input
+ * allocates nothing.
+ */
+public final class ParseResult<T> {
+	
+	private final T value;
+	private final BankNumberError error;
+	
+	ParseResult(T value, BankNumberError error) {
+		this.value = value;
+		this.error = error;
+	}
+	
+	static <T> ParseResult<T> success(T value) {
+		return new ParseResult<T>(value, null);
+	}
+	
+	public boolean isValid() {
+		return error == null;
+	}
+	
+	/**
+	 * The parsed value, or null if parsing failed.
+	 */
+	public T value() {
+		return value;
+	}
+	
+	/**
+	 * The reason parsing failed, or null if it succeeded.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+	
+	@Override
+	public String toString() {
+		return error == null ? String.valueOf(value) : error.toString();
+	}
+}
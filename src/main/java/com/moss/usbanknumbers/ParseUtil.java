@@ -38,6 +38,37 @@
 package com.moss.usbanknumbers;
 
 class ParseUtil {
+	
+	/**
+	 * Set the system property "com.moss.usbanknumbers.stacklessExceptions" to
+	 * true to have the parse exceptions skip filling in their stack traces,
+	 * which is most of their cost when large volumes of input are rejected.
+	 */
+	static final boolean STACKLESS_EXCEPTIONS = Boolean.getBoolean("com.moss.usbanknumbers.stacklessExceptions");
+	
+	private static final BankNumberError[] ERRORS = BankNumberError.values();
+	
+	/**
+	 * The widest short field (aba suffix, fraction denominator).
+	 */
+	static final int SHORT_FIELD_DIGITS = 4;
+	
+	/**
+	 * The widest long field (account number); 10^17 fits below bit 57.
+	 */
+	static final int LONG_FIELD_DIGITS = 17;
+	
+	private static final int LONG_FIELD_SHIFT = 57;
+	
+	private static final long LONG_FIELD_VALUE = (1L<<LONG_FIELD_SHIFT)-1;
+	
+	private static final long[] POWERS_OF_TEN = new long[LONG_FIELD_DIGITS+1];
+	static{
+		POWERS_OF_TEN[0] = 1;
+		for(int x=1;x<POWERS_OF_TEN.length;x++)
+			POWERS_OF_TEN[x] = POWERS_OF_TEN[x-1]*10;
+	}
+	
 	static String stripLeadingZeros(String text){
 		int pos=-1;
 		for(int x=0;x<text.length();x++){
@@ -50,4 +81,146 @@ class ParseUtil {
 		else 
 			return text;
 	}
+	
+	/**
+	 * Encodes an error as a negative int, so that scanning methods can return
+	 * either a (non-negative) parsed value or the reason parsing failed.
+	 */
+	static int fail(BankNumberError error){
+		return -1 - error.ordinal();
+	}
+	
+	static BankNumberError error(int code){
+		return code < 0 ? ERRORS[-1 - code] : null;
+	}
+	
+	/**
+	 * As {@link #error(int)}, for scans that return a long field.  The
+	 * field must not be narrowed first, as a valid field can look negative
+	 * as an int.
+	 */
+	static BankNumberError error(long code){
+		return code < 0 ? ERRORS[(int)(-1 - code)] : null;
+	}
+	
+	static int trimStart(CharSequence text, int start, int end){
+		while(start<end && text.charAt(start)<=' ')
+			start++;
+		return start;
+	}
+	
+	static int trimEnd(CharSequence text, int start, int end){
+		while(end>start && text.charAt(end-1)<=' ')
+			end--;
+		return end;
+	}
+	
+	/**
+	 * Returns the index of the only occurrence of c in [start, end), or -1 if
+	 * there are none or several.
+	 */
+	static int indexOfOnly(CharSequence text, int start, int end, char c){
+		int found=-1;
+		for(int x=start;x<end;x++){
+			if(text.charAt(x)==c){
+				if(found!=-1)
+					return -1;
+				found=x;
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Scans a short field of up to 4 digits, surrounding whitespace allowed.
+	 * Returns the digit count in bits 14-16 and the value in bits 0-13 (so
+	 * that leading zeros survive), or a negative error code.
+	 */
+	static int scanShortField(CharSequence text, int start, int end){
+		start = trimStart(text, start, end);
+		end = trimEnd(text, start, end);
+		if(start==end)
+			return fail(BankNumberError.EMPTY);
+		if(end-start>SHORT_FIELD_DIGITS)
+			return fail(BankNumberError.TOO_LONG);
+		int value=0;
+		for(int x=start;x<end;x++){
+			int digit=text.charAt(x)-'0';
+			if(digit<0 || digit>9)
+				return fail(BankNumberError.NON_NUMERIC);
+			value=value*10+digit;
+		}
+		return ((end-start)<<14) | value;
+	}
+	
+	static String renderShortField(int field){
+		char[] chars = new char[field>>>14];
+		int value = field & 0x3FFF;
+		for(int x=chars.length-1;x>=0;x--){
+			chars[x]=(char)('0'+value%10);
+			value/=10;
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Scans a field of up to maxDigits digits (at most
+	 * {@link #LONG_FIELD_DIGITS}), surrounding whitespace allowed.  Returns the
+	 * digit count in bits 57 and up and the value below that (so that leading
+	 * zeros survive), or a negative error code.
+	 */
+	static long scanLongField(CharSequence text, int start, int end, int maxDigits){
+		start = trimStart(text, start, end);
+		end = trimEnd(text, start, end);
+		if(start==end)
+			return fail(BankNumberError.EMPTY);
+		if(end-start>maxDigits)
+			return fail(BankNumberError.TOO_LONG);
+		long value=0;
+		for(int x=start;x<end;x++){
+			int digit=text.charAt(x)-'0';
+			if(digit<0 || digit>9)
+				return fail(BankNumberError.NON_NUMERIC);
+			value=value*10+digit;
+		}
+		return longField(end-start, value);
+	}
+	
+	static long longField(int length, long value){
+		return ((long)length<<LONG_FIELD_SHIFT) | value;
+	}
+	
+	/**
+	 * Returns true if the field is one {@link #scanLongField} could have
+	 * returned for maxDigits.
+	 */
+	static boolean isLongField(long field, int maxDigits){
+		int length = longFieldLength(field);
+		return field>=0 && length>0 && length<=maxDigits && longFieldValue(field)<POWERS_OF_TEN[length];
+	}
+	
+	static int longFieldLength(long field){
+		return (int)(field>>>LONG_FIELD_SHIFT);
+	}
+	
+	static long longFieldValue(long field){
+		return field & LONG_FIELD_VALUE;
+	}
+	
+	static int longFieldDigit(long field, int index){
+		int length = longFieldLength(field);
+		if(index<0 || index>=length)
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		return (int)(longFieldValue(field)/POWERS_OF_TEN[length-1-index]%10);
+	}
+	
+	static String renderLongField(long field){
+		char[] chars = new char[longFieldLength(field)];
+		long value = longFieldValue(field);
+		for(int x=chars.length-1;x>=0;x--){
+			chars[x]=(char)('0'+value%10);
+			value/=10;
+		}
+		return new String(chars);
+	}
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+/**
+ * The outcome of a {@link FractionalReconciliation} run.  Only mismatches
+ * are kept, as the index of the pair and a byte of reason flags, in index
+ * order, so a report over millions of mostly good pairs stays small.
+ */
+public final class ReconciliationReport {
+	
+	private final int size;
+	private int[] indices;
+	private byte[] reasons;
+	private int count;
+	
+	ReconciliationReport(int size) {
+		this.size = size;
+		this.indices = new int[16];
+		this.reasons = new byte[16];
+	}
+	
+	void add(int index, int reason) {
+		if (count == indices.length) {
+			int[] moreIndices = new int[count * 2];
+			byte[] moreReasons = new byte[count * 2];
+			System.arraycopy(indices, 0, moreIndices, 0, count);
+			System.arraycopy(reasons, 0, moreReasons, 0, count);
+			indices = moreIndices;
+			reasons = moreReasons;
+		}
+		indices[count] = index;
+		reasons[count] = (byte)reason;
+		count++;
+	}
+	
+	/**
+	 * Joins reports over consecutive ranges, in order.
+	 */
+	static ReconciliationReport concat(ReconciliationReport[] parts, int size) {
+		ReconciliationReport report = new ReconciliationReport(size);
+		int total = 0;
+		for (ReconciliationReport part : parts) {
+			total += part.count;
+		}
+		report.indices = new int[Math.max(total, 16)];
+		report.reasons = new byte[Math.max(total, 16)];
+		for (ReconciliationReport part : parts) {
+			System.arraycopy(part.indices, 0, report.indices, report.count, part.count);
+			System.arraycopy(part.reasons, 0, report.reasons, report.count, part.count);
+			report.count += part.count;
+		}
+		return report;
+	}
+	
+	/**
+	 * The number of pairs checked.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	public int mismatchCount() {
+		return count;
+	}
+	
+	/**
+	 * The index, among the pairs checked, of the i-th mismatch.
+	 */
+	public int index(int i) {
+		checkIndex(i);
+		return indices[i];
+	}
+	
+	/**
+	 * The reasons for the i-th mismatch, a combination of the
+	 * {@link FractionalReconciliation} flags.
+	 */
+	public int reasons(int i) {
+		checkIndex(i);
+		return reasons[i];
+	}
+	
+	/**
+	 * The number of mismatches with the given reason flag set.
+	 */
+	public int count(int reason) {
+		int n = 0;
+		for (int i=0; i<count; i++) {
+			if ((reasons[i] & reason) != 0) {
+				n++;
+			}
+		}
+		return n;
+	}
+	
+	private void checkIndex(int i) {
+		if (i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException(i + " of " + count);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return
+			count + " of " + size + " mismatched (" +
+			count(FractionalReconciliation.UNPARSEABLE) + " unparseable, " +
+			count(FractionalReconciliation.INVALID_ROUTING_NUMBER) + " invalid routing, " +
+			count(FractionalReconciliation.DENOMINATOR_MISMATCH) + " denominator, " +
+			count(FractionalReconciliation.SUFFIX_MISMATCH) + " suffix)";
+	}
+}
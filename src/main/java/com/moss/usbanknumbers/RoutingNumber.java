@@ -37,18 +37,50 @@
  */
 package com.moss.usbanknumbers;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import com.moss.usbanknumbers.jaxb.RoutingNumberAdapter;
 
 @XmlJavaTypeAdapter(RoutingNumberAdapter.class)
-@SuppressWarnings("serial")
 public class RoutingNumber implements Serializable {
 	
+	private static final long serialVersionUID = 6589138624608972876L;
+	
+	/**
+	 * Instances are written as a {@link SerialForm}; this single "number"
+	 * string field is what earlier versions wrote, and is still read.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("number", String.class)
+	};
+	
 	private static final int LENGTH = 9;
-	private String number;
+	
+	/**
+	 * The 3-7-1 weights, including the weight of 1 applied to the check
+	 * digit itself, so that a valid number always sums to a multiple of 10.
+	 */
+	private static final int[] WEIGHTS = {3, 7, 1, 3, 7, 1, 3, 7, 1};
+	
+	private static final int INVALID_EMPTY = ParseUtil.fail(BankNumberError.EMPTY);
+	private static final int INVALID_LENGTH = ParseUtil.fail(BankNumberError.LENGTH);
+	private static final int INVALID_CHARACTER = ParseUtil.fail(BankNumberError.NON_NUMERIC);
+	private static final int INVALID_CHECKSUM = ParseUtil.fail(BankNumberError.CHECKSUM);
+	
+	/**
+	 * The nine digits packed into an int; the leading zeros are restored
+	 * by {@link #toString()}.
+	 */
+	private int value;
+	private transient String text;
 	
 	public RoutingNumber(String numberMinusChecksum, int checksum) throws RoutingNumberException {
 		init(numberMinusChecksum + Integer.toString(checksum));
@@ -58,34 +90,300 @@ public class RoutingNumber implements Serializable {
 		init(number);
 	}
 	
+	RoutingNumber(int value) {
+		this.value = value;
+	}
+	
 	private void init(String number) throws RoutingNumberException {
 		
 		if (number == null) {
 			throw new NullPointerException();
 		}
 		
-		number = number.trim();
+		int value = scan(number);
+		
+		if (value < 0) {
+			throw new RoutingNumberException(ParseUtil.error(value));
+		}
+		
+		this.value = value;
+	}
+	
+	/**
+	 * Returns true if the text, ignoring surrounding whitespace, is a valid
+	 * routing number.  Nothing is allocated.
+	 */
+	public static boolean isValid(CharSequence text) {
+		if (text == null) {
+			return false;
+		}
+		return scan(text) >= 0;
+	}
+	
+	/**
+	 * Returns true if the 9 ASCII bytes starting at <code>off</code> are a
+	 * valid routing number.  Nothing is allocated.
+	 */
+	public static boolean isValid(byte[] buf, int off) {
+		return scan(buf, off) >= 0;
+	}
+	
+	/**
+	 * Returns the value {@link #toInt()} would return for the text, or -1 if
+	 * the text is not a valid routing number.  Nothing is allocated.
+	 */
+	public static int parseInt(CharSequence text) {
+		int value = text == null ? INVALID_EMPTY : scan(text);
+		return value < 0 ? -1 : value;
+	}
+	
+	/**
+	 * As {@link #parseInt(CharSequence)}, for the 9 ASCII bytes starting at
+	 * <code>off</code>.
+	 */
+	public static int parseInt(byte[] buf, int off) {
+		int value = scan(buf, off);
+		return value < 0 ? -1 : value;
+	}
+	
+	/**
+	 * As {@link #parseInt(CharSequence)}, for the 9 ASCII bytes starting at the
+	 * absolute index <code>off</code> of the buffer.
+	 */
+	public static int parseInt(ByteBuffer buf, int off) {
+		int value = scan(buf, off);
+		return value < 0 ? -1 : value;
+	}
+	
+	public static RoutingNumber valueOf(CharSequence text) throws RoutingNumberException {
+		
+		if (text == null) {
+			throw new NullPointerException();
+		}
+		
+		return create(scan(text));
+	}
+	
+	/**
+	 * Parses the text without throwing; rejected text allocates nothing.
+	 */
+	public static ParseResult<RoutingNumber> tryParse(CharSequence text) {
+		int value = text == null ? INVALID_EMPTY : scan(text);
+		if (value < 0) {
+			return ParseUtil.error(value).failure();
+		}
+		return ParseResult.success(new RoutingNumber(value));
+	}
+	
+	/**
+	 * Returns why the text is not a valid routing number, or null if it is one.
+	 */
+	public static BankNumberError check(CharSequence text) {
+		return text == null ? BankNumberError.EMPTY : ParseUtil.error(scan(text));
+	}
+	
+	public static RoutingNumber valueOf(char[] buf, int off, int len) throws RoutingNumberException {
+		
+		if (off < 0 || len < 0 || off + len > buf.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		int end = off + len;
+		while (off < end && buf[off] <= ' ') {
+			off++;
+		}
+		while (end > off && buf[end - 1] <= ' ') {
+			end--;
+		}
+		
+		if (end - off != LENGTH) {
+			return create(end == off ? INVALID_EMPTY : INVALID_LENGTH);
+		}
+		
+		int sum = 0;
+		int value = 0;
+		for (int i=0; i<LENGTH; i++) {
+			int digit = buf[off + i] - '0';
+			if (digit < 0 || digit > 9) {
+				return create(INVALID_CHARACTER);
+			}
+			sum += digit * WEIGHTS[i];
+			value = value * 10 + digit;
+		}
+		
+		return create(sum % 10 == 0 ? value : INVALID_CHECKSUM);
+	}
+	
+	public static RoutingNumber valueOf(byte[] buf, int off) throws RoutingNumberException {
+		return create(scan(buf, off));
+	}
+	
+	/**
+	 * Reads the 9 ASCII bytes starting at the absolute index <code>off</code>;
+	 * the buffer's position and limit are left untouched.
+	 */
+	public static RoutingNumber valueOf(ByteBuffer buf, int off) throws RoutingNumberException {
+		return create(scan(buf, off));
+	}
+	
+	/**
+	 * Returns the shared instance for the text from the default
+	 * {@link RoutingNumberCache}, so that equal numbers are (almost always)
+	 * the same object and each distinct number is only validated once.
+	 */
+	public static RoutingNumber canonical(CharSequence text) throws RoutingNumberException {
+		return RoutingNumberCache.DEFAULT.canonical(text);
+	}
+	
+	/**
+	 * Returns the shared instance equal to the number from the default
+	 * {@link RoutingNumberCache}.
+	 */
+	public static RoutingNumber intern(RoutingNumber number) {
+		return RoutingNumberCache.DEFAULT.intern(number);
+	}
+	
+	/**
+	 * Builds a routing number from the value returned by {@link #toInt()}.
+	 */
+	public static RoutingNumber fromInt(int value) throws RoutingNumberException {
+		return create(scan(value));
+	}
+	
+	private static RoutingNumber create(int value) throws RoutingNumberException {
+		if (value < 0) {
+			throw new RoutingNumberException(ParseUtil.error(value));
+		}
+		return new RoutingNumber(value);
+	}
+	
+	/**
+	 * Checks the text, ignoring surrounding whitespace, in place, returning
+	 * the numeric value of the routing number or one of the negative
+	 * INVALID_* codes.
+	 */
+	private static int scan(CharSequence text) {
+		return scan(text, 0, text.length());
+	}
+	
+	/**
+	 * As {@link #scan(CharSequence)}, for the characters in [start, end).
+	 */
+	static int scan(CharSequence text, int start, int end) {
+		
+		start = ParseUtil.trimStart(text, start, end);
+		end = ParseUtil.trimEnd(text, start, end);
+		
+		if (end - start != LENGTH) {
+			return start == end ? INVALID_EMPTY : INVALID_LENGTH;
+		}
+		
+		int sum = 0;
+		int value = 0;
+		for (int i=0; i<LENGTH; i++) {
+			int digit = text.charAt(start + i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID_CHARACTER;
+			}
+			sum += digit * WEIGHTS[i];
+			value = value * 10 + digit;
+		}
+		
+		return sum % 10 == 0 ? value : INVALID_CHECKSUM;
+	}
+	
+	/**
+	 * As {@link #scan(CharSequence)}, but without the checksum, for callers
+	 * that only need to validate values they have not seen before.
+	 */
+	static int scanDigits(CharSequence text) {
+		
+		int start = ParseUtil.trimStart(text, 0, text.length());
+		int end = ParseUtil.trimEnd(text, start, text.length());
+		
+		if (end - start != LENGTH) {
+			return start == end ? INVALID_EMPTY : INVALID_LENGTH;
+		}
+		
+		int value = 0;
+		for (int i=0; i<LENGTH; i++) {
+			int digit = text.charAt(start + i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID_CHARACTER;
+			}
+			value = value * 10 + digit;
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Checks a packed value as returned by {@link #toInt()}, returning it
+	 * unchanged or one of the negative INVALID_* codes.
+	 */
+	static int scan(int value) {
 		
-		if (number.length() != LENGTH) {
-			throw new RoutingNumberException("A routing number must be " + LENGTH + " digits in length.");
+		if (value < 0 || value > 999999999) {
+			return INVALID_LENGTH;
 		}
 		
-		if (!isNumeric(number)) {
-			throw new RoutingNumberException("A routing number must be entirely numeric.");
+		int sum = 0;
+		int rest = value;
+		for (int i=LENGTH - 1; i>=0; i--) {
+			sum += (rest % 10) * WEIGHTS[i];
+			rest /= 10;
 		}
 		
-		int[] digits = new int[number.length()];
-		{
-			for (int i=0; i<number.length(); i++) {
-				digits[i] = Integer.parseInt(number.substring(i, i + 1));
+		return sum % 10 == 0 ? value : INVALID_CHECKSUM;
+	}
+	
+	static int scan(byte[] buf, int off) {
+		
+		if (off < 0 || buf.length - off < LENGTH) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		int sum = 0;
+		int value = 0;
+		for (int i=0; i<LENGTH; i++) {
+			int digit = buf[off + i] - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID_CHARACTER;
 			}
+			sum += digit * WEIGHTS[i];
+			value = value * 10 + digit;
 		}
 		
-		if (!checksumMatches(digits)) {
-			throw new RoutingNumberException("This routing number is not valid.");
+		return sum % 10 == 0 ? value : INVALID_CHECKSUM;
+	}
+	
+	static int scan(ByteBuffer buf, int off) {
+		
+		if (off < 0 || buf.limit() - off < LENGTH) {
+			throw new IndexOutOfBoundsException();
 		}
 		
-		this.number = number;
+		int sum = 0;
+		int value = 0;
+		for (int i=0; i<LENGTH; i++) {
+			int digit = buf.get(off + i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID_CHARACTER;
+			}
+			sum += digit * WEIGHTS[i];
+			value = value * 10 + digit;
+		}
+		
+		return sum % 10 == 0 ? value : INVALID_CHECKSUM;
+	}
+	
+	private static String render(int value) {
+		char[] chars = new char[LENGTH];
+		for (int i=LENGTH - 1; i>=0; i--) {
+			chars[i] = (char)('0' + value % 10);
+			value /= 10;
+		}
+		return new String(chars);
 	}
 	
 	public boolean equals(Object o) {
@@ -94,49 +392,58 @@ public class RoutingNumber implements Serializable {
 			&&
 			o instanceof RoutingNumber
 			&&
-			((RoutingNumber)o).number.equals(number);
+			((RoutingNumber)o).value == value;
 	}
 	
 	public String toString() {
-		return number;
+		String text = this.text;
+		if (text == null) {
+			text = render(value);
+			this.text = text;
+		}
+		return text;
 	}
 	
 	public int hashCode() {
-		return number.hashCode();
+		return value;
 	}
 	
-	private boolean isNumeric(String number) {
-		
-		for (char c : number.toCharArray()) {
-			if (c < '0' || c > '9') {
-				return false;
-			}
-		}
-		
-		return true;
+	/**
+	 * The nine digits as a number, e.g. 76401251 for "076401251".
+	 */
+	public int toInt() {
+		return value;
 	}
-
+	
 	public int checkDigit() {
-		String lastDigit = number.substring(number.length() - 1, number.length());
-		return Integer.parseInt(lastDigit);
+		return value % 10;
 	}
 	
 	public int dfiIdentity() {
-		String id = number.substring(0, number.length() - 1);
-		return Integer.parseInt(id);
+		return value / 10;
 	}
 	
-	private boolean checksumMatches(int[] digits) {
-		
-		if (digits.length != 9) {
-			return false;
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerialForm(this);
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		String number = (String)fields.get("number", null);
+		if (number == null) {
+			throw new InvalidObjectException("Missing routing number");
 		}
-		
-		int checkDigit = checksumAlgorithm(digits);
-		
-		return digits[8] == checkDigit;
+		int value = scan(number);
+		if (value < 0) {
+			throw new InvalidObjectException("Invalid routing number: " + ParseUtil.error(value));
+		}
+		this.value = value;
 	}
-
+	
+	private Object readResolve() throws ObjectStreamException {
+		return intern(this);
+	}
+	
 	private static int checksumAlgorithm(String digitsString) {
 		
 		if (digitsString.length() < 8) {
@@ -151,11 +458,39 @@ public class RoutingNumber implements Serializable {
 		
 		return checksumAlgorithm(digits);
 	}
-
+	
 	public static RoutingNumber fromNoChecksum(String numberMinusChecksum) throws RoutingNumberException {
 		return new RoutingNumber(numberMinusChecksum, RoutingNumber.checksumAlgorithm(numberMinusChecksum));
 	}
 	
+	/**
+	 * Builds the routing number whose first 8 digits are the given DFI
+	 * identity (0 to 99999999), supplying the check digit.
+	 */
+	public static RoutingNumber fromDfiIdentity(int dfiIdentity) {
+		
+		if (dfiIdentity < 0 || dfiIdentity > 99999999) {
+			throw new IllegalArgumentException("Not an 8 digit DFI identity: " + dfiIdentity);
+		}
+		
+		return new RoutingNumber(withCheckDigit(dfiIdentity));
+	}
+	
+	/**
+	 * The packed routing number for an 8 digit DFI identity.
+	 */
+	static int withCheckDigit(int dfiIdentity) {
+		
+		int sum = 0;
+		int rest = dfiIdentity;
+		for (int i=7; i>=0; i--) {
+			sum += (rest % 10) * WEIGHTS[i];
+			rest /= 10;
+		}
+		
+		return dfiIdentity * 10 + checkDigitForSum(sum);
+	}
+	
 	public static int checksumAlgorithm(int[] digits){
 		
 		if (digits.length < 8) {
@@ -164,24 +499,19 @@ public class RoutingNumber implements Serializable {
 		
 		int sum = 0;
 		
-		sum += digits[0] * 3;
-		sum += digits[1] * 7;
-		sum += digits[2] * 1;
-		sum += digits[3] * 3;
-		sum += digits[4] * 7;
-		sum += digits[5] * 1;
-		sum += digits[6] * 3;
-		sum += digits[7] * 7;
-		
-		int nextHighestMultipleOf10 = sum;
-		
-		while (nextHighestMultipleOf10 % 10 != 0) {
-			nextHighestMultipleOf10++;
+		for (int i=0; i<8; i++) {
+			sum += digits[i] * WEIGHTS[i];
 		}
 		
-		int checkDigit = nextHighestMultipleOf10 - sum;
-		
-		return checkDigit;
+		return checkDigitForSum(sum);
+	}
+	
+	/**
+	 * The check digit is whatever brings the weighted sum of the first 8
+	 * digits up to the next multiple of 10.
+	 */
+	private static int checkDigitForSum(int sum) {
+		return (10 - sum % 10) % 10;
 	}
 	
 }
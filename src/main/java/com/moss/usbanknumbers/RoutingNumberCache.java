@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free cache of canonical {@link RoutingNumber} instances.
+ * <p>
+ * The table is direct mapped: each packed routing number hashes to exactly one
+ * slot, and a newcomer simply replaces whatever was there.  Lookups never
+ * block and the cache never grows past its capacity.  Two threads racing to
+ * insert the same number may briefly see different instances, so callers
+ * must keep using equals() for correctness; identity is an optimization.
+ * <p>
+ * The default instance behind {@link RoutingNumber#canonical(CharSequence)}
+ * has 65536 slots, which can be changed with the system property
+ * "com.moss.usbanknumbers.internCacheSize".
+ */
+public final class RoutingNumberCache {
+	
+	static final RoutingNumberCache DEFAULT = new RoutingNumberCache(Integer.getInteger("com.moss.usbanknumbers.internCacheSize", 65536).intValue());
+	
+	/*
+	 * The counters are striped by thread and padded out to their own cache
+	 * lines so that busy readers don't serialize on a single counter.
+	 */
+	private static final int STRIPES = 16;
+	private static final int PADDING = 8;
+	
+	private final AtomicReferenceArray<RoutingNumber> slots;
+	private final int mask;
+	
+	private final AtomicLongArray hits = new AtomicLongArray(STRIPES * PADDING);
+	private final AtomicLongArray misses = new AtomicLongArray(STRIPES * PADDING);
+	private final AtomicLongArray evictions = new AtomicLongArray(STRIPES * PADDING);
+	
+	/**
+	 * @param capacity the number of slots, rounded up to a power of two
+	 */
+	public RoutingNumberCache(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		int bits = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+		this.slots = new AtomicReferenceArray<RoutingNumber>(1 << bits);
+		this.mask = (1 << bits) - 1;
+	}
+	
+	/**
+	 * Parses the text, returning the cached instance if there is one.  Text
+	 * for a number that is already cached is not checksummed again.
+	 */
+	public RoutingNumber canonical(CharSequence text) throws RoutingNumberException {
+		
+		if (text == null) {
+			throw new NullPointerException();
+		}
+		
+		int value = RoutingNumber.scanDigits(text);
+		if (value < 0) {
+			throw new RoutingNumberException(ParseUtil.error(value));
+		}
+		
+		int index = index(value);
+		RoutingNumber cached = slots.get(index);
+		if (cached != null && cached.toInt() == value) {
+			count(hits);
+			return cached;
+		}
+		
+		value = RoutingNumber.scan(value);
+		if (value < 0) {
+			throw new RoutingNumberException(ParseUtil.error(value));
+		}
+		
+		return insert(index, cached, new RoutingNumber(value));
+	}
+	
+	/**
+	 * Returns the cached instance equal to the number, caching the number
+	 * itself if there is none.
+	 */
+	public RoutingNumber intern(RoutingNumber number) {
+		
+		int value = number.toInt();
+		int index = index(value);
+		RoutingNumber cached = slots.get(index);
+		if (cached != null && cached.toInt() == value) {
+			count(hits);
+			return cached;
+		}
+		
+		return insert(index, cached, number);
+	}
+	
+	private RoutingNumber insert(int index, RoutingNumber expected, RoutingNumber number) {
+		count(misses);
+		if (slots.compareAndSet(index, expected, number)) {
+			if (expected != null) {
+				count(evictions);
+			}
+			return number;
+		}
+		
+		// somebody else got there first; use theirs if it is the same number
+		RoutingNumber current = slots.get(index);
+		if (current != null && current.toInt() == number.toInt()) {
+			return current;
+		}
+		return number;
+	}
+	
+	private int index(int value) {
+		int hash = value * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+	
+	public int capacity() {
+		return slots.length();
+	}
+	
+	public long hitCount() {
+		return sum(hits);
+	}
+	
+	public long missCount() {
+		return sum(misses);
+	}
+	
+	public long evictionCount() {
+		return sum(evictions);
+	}
+	
+	/**
+	 * Empties the cache; the counters are left alone.
+	 */
+	public void clear() {
+		for (int i=0; i<slots.length(); i++) {
+			slots.set(i, null);
+		}
+	}
+	
+	private static void count(AtomicLongArray counter) {
+		counter.incrementAndGet(((int)Thread.currentThread().getId() & (STRIPES - 1)) * PADDING);
+	}
+	
+	private static long sum(AtomicLongArray counter) {
+		long total = 0;
+		for (int i=0; i<STRIPES; i++) {
+			total += counter.get(i * PADDING);
+		}
+		return total;
+	}
+	
+	@Override
+	public String toString() {
+		return "RoutingNumberCache[capacity=" + capacity() + ", hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + "]";
+	}
+}
@@ -40,7 +40,50 @@ package com.moss.usbanknumbers;
 @SuppressWarnings("serial")
 public class RoutingNumberException extends Exception {
 
+	private BankNumberError error;
+
 	public RoutingNumberException(String message) {
 		super(message);
 	}
+
+	/**
+	 * The message is only built if asked for.
+	 */
+	public RoutingNumberException(BankNumberError error) {
+		this.error = error;
+	}
+
+	/**
+	 * Why the text was rejected, or null if this exception was built from a
+	 * plain message.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+
+	@Override
+	public String getMessage() {
+		String message = super.getMessage();
+		if (message != null || error == null) {
+			return message;
+		}
+		return describe();
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return ParseUtil.STACKLESS_EXCEPTIONS ? this : super.fillInStackTrace();
+	}
+
+	private String describe() {
+		switch (error) {
+		case EMPTY:
+		case LENGTH:
+			return "A routing number must be 9 digits in length.";
+		case NON_NUMERIC:
+			return "A routing number must be entirely numeric.";
+		default:
+			return "This routing number is not valid.";
+		}
+	}
 }
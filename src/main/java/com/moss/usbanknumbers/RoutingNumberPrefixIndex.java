@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Completes partly typed routing numbers.
+ * <p>
+ * The numbers are kept as a sorted <code>int[]</code> of packed values, so
+ * the completions of a prefix are one contiguous range found by two binary
+ * searches.  A full 9 digit prefix with a bad check digit is rejected
+ * without a search, and an 8 digit prefix can only complete one way, so
+ * that is looked up directly.  Completions come back in numeric order.
+ * <p>
+ * An index is immutable once built and can be shared between threads.
+ */
+public final class RoutingNumberPrefixIndex {
+	
+	private static final int LENGTH = 9;
+	private static final int[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000};
+	
+	private final int[] values;
+	
+	public RoutingNumberPrefixIndex(Collection<RoutingNumber> numbers) {
+		int[] values = new int[numbers.size()];
+		int i = 0;
+		for (RoutingNumber number : numbers) {
+			values[i++] = number.toInt();
+		}
+		this.values = sortedDistinct(values, i);
+	}
+	
+	/**
+	 * Builds an index from packed values as returned by
+	 * {@link RoutingNumber#toInt()}; invalid values are left out.
+	 */
+	public RoutingNumberPrefixIndex(int[] packed) {
+		int[] values = new int[packed.length];
+		int n = 0;
+		for (int value : packed) {
+			if (RoutingNumber.scan(value) >= 0) {
+				values[n++] = value;
+			}
+		}
+		this.values = sortedDistinct(values, n);
+	}
+	
+	private static int[] sortedDistinct(int[] values, int count) {
+		Arrays.sort(values, 0, count);
+		int n = 0;
+		for (int i=0; i<count; i++) {
+			if (n == 0 || values[n - 1] != values[i]) {
+				values[n++] = values[i];
+			}
+		}
+		if (n == values.length) {
+			return values;
+		}
+		int[] trimmed = new int[n];
+		System.arraycopy(values, 0, trimmed, 0, n);
+		return trimmed;
+	}
+	
+	public int size() {
+		return values.length;
+	}
+	
+	/**
+	 * The number of routing numbers beginning with the digits.
+	 */
+	public int count(CharSequence prefix) {
+		long range = range(prefix);
+		return (int)(range >>> 32) - (int)range;
+	}
+	
+	/**
+	 * Returns up to <code>limit</code> of the routing numbers beginning with
+	 * the digits, in numeric order.
+	 */
+	public List<RoutingNumber> complete(CharSequence prefix, int limit) {
+		long range = range(prefix);
+		int from = (int)range;
+		int to = Math.min((int)(range >>> 32), from + Math.max(limit, 0));
+		List<RoutingNumber> completions = new ArrayList<RoutingNumber>(to - from);
+		for (int i=from; i<to; i++) {
+			completions.add(new RoutingNumber(values[i]));
+		}
+		return completions;
+	}
+	
+	/**
+	 * As {@link #complete(CharSequence, int)}, writing packed values into
+	 * <code>out</code>, as many as fit.
+	 *
+	 * @return the number of completions written
+	 */
+	public int complete(CharSequence prefix, int[] out) {
+		long range = range(prefix);
+		int from = (int)range;
+		int count = Math.min((int)(range >>> 32) - from, out.length);
+		System.arraycopy(values, from, out, 0, count);
+		return count;
+	}
+	
+	/**
+	 * Finds the completions of the prefix, ignoring surrounding whitespace,
+	 * as [from, to) packed with <code>to</code> in the high 32 bits.  Anything
+	 * that can't begin a routing number gives an empty range.
+	 */
+	private long range(CharSequence prefix) {
+		
+		int start = ParseUtil.trimStart(prefix, 0, prefix.length());
+		int end = ParseUtil.trimEnd(prefix, start, prefix.length());
+		int length = end - start;
+		if (length > LENGTH) {
+			return 0;
+		}
+		
+		int value = 0;
+		for (int i=start; i<end; i++) {
+			int digit = prefix.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return 0;
+			}
+			value = value * 10 + digit;
+		}
+		
+		if (length == LENGTH) {
+			return RoutingNumber.scan(value) < 0 ? 0 : exact(value);
+		}
+		if (length == LENGTH - 1) {
+			return exact(RoutingNumber.withCheckDigit(value));
+		}
+		
+		int scale = POWERS_OF_TEN[LENGTH - length];
+		int from = lowerBound(value * scale);
+		int to = lowerBound(value * scale + scale);
+		return ((long)to << 32) | from;
+	}
+	
+	private long exact(int value) {
+		int i = Arrays.binarySearch(values, value);
+		return i < 0 ? 0 : ((long)(i + 1) << 32) | i;
+	}
+	
+	/**
+	 * The index of the first value not less than <code>key</code>.
+	 */
+	private int lowerBound(int key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
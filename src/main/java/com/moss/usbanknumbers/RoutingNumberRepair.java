@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Suggests valid routing numbers for mistyped input: every number one
+ * digit substitution, adjacent transposition, dropped digit or extra digit
+ * away whose check digit works out.
+ * <p>
+ * Candidates aren't generated and then checksummed.  The 3-7-1 weighted sum
+ * of the input is taken once, and the effect of each edit on it is worked
+ * out directly; because every weight has an inverse mod 10, each position
+ * admits at most one substituted or inserted digit, which is solved for
+ * rather than searched.  A query costs a few dozen integer operations and
+ * instances are immutable, so one engine can serve any number of threads.
+ * <p>
+ * Suggestions can be checked against a {@link RoutingNumberSet} of numbers
+ * known to be in use, either to rank known numbers first or to drop unknown
+ * ones altogether.  Otherwise transpositions rank first, as the most common
+ * typing error, then substitutions, then dropped and extra digits.
+ */
+public final class RoutingNumberRepair {
+	
+	/**
+	 * The most suggestions a query can produce.
+	 */
+	public static final int MAX_SUGGESTIONS = 9 + 8 + 10 + 9;
+	
+	private static final int LENGTH = 9;
+	private static final int[] WEIGHTS = {3, 7, 1, 3, 7, 1, 3, 7, 1};
+	
+	/** The inverse mod 10 of each weight: 3 * 7 = 21 and 1 * 1 = 1. */
+	private static final int[] INVERSES = {7, 3, 1, 7, 3, 1, 7, 3, 1};
+	
+	private static final int TRANSPOSITION = 0;
+	private static final int SUBSTITUTION = 1;
+	private static final int DELETION = 2;
+	private static final int INSERTION = 3;
+	
+	private final RoutingNumberSet known;
+	private final boolean knownOnly;
+	
+	public RoutingNumberRepair() {
+		this(null, false);
+	}
+	
+	/**
+	 * @param known routing numbers known to be in use
+	 * @param knownOnly true to suggest only numbers in <code>known</code>,
+	 * false to just rank them first
+	 */
+	public RoutingNumberRepair(RoutingNumberSet known, boolean knownOnly) {
+		if (knownOnly && known == null) {
+			throw new NullPointerException("knownOnly needs a set of known numbers");
+		}
+		this.known = known;
+		this.knownOnly = knownOnly;
+	}
+	
+	/**
+	 * Returns the suggestions for the text, best first.  Text with more than
+	 * one unreadable (non-digit) character, or that is more than one digit
+	 * too long or short, gets none.
+	 */
+	public List<RoutingNumber> suggest(CharSequence text) {
+		int[] values = new int[MAX_SUGGESTIONS];
+		int count = suggest(text, values);
+		List<RoutingNumber> suggestions = new ArrayList<RoutingNumber>(count);
+		for (int i=0; i<count; i++) {
+			suggestions.add(new RoutingNumber(values[i]));
+		}
+		return suggestions;
+	}
+	
+	/**
+	 * As {@link #suggest(CharSequence)}, writing the suggestions, packed as by
+	 * {@link RoutingNumber#toInt()}, into <code>out</code>.
+	 *
+	 * @param out room for at least {@link #MAX_SUGGESTIONS} values
+	 * @return the number of suggestions
+	 */
+	public int suggest(CharSequence text, int[] out) {
+		
+		if (out.length < MAX_SUGGESTIONS) {
+			throw new IllegalArgumentException("out must have room for " + MAX_SUGGESTIONS + " suggestions");
+		}
+		if (text == null) {
+			return 0;
+		}
+		
+		int start = ParseUtil.trimStart(text, 0, text.length());
+		int end = ParseUtil.trimEnd(text, start, text.length());
+		int length = end - start;
+		if (length < LENGTH - 1 || length > LENGTH + 1) {
+			return 0;
+		}
+		
+		int[] digits = new int[LENGTH + 1];
+		int unreadable = -1;
+		for (int i=0; i<length; i++) {
+			int digit = text.charAt(start + i) - '0';
+			if (digit < 0 || digit > 9) {
+				if (unreadable != -1 || length != LENGTH) {
+					return 0;
+				}
+				unreadable = i;
+				digit = 0;
+			}
+			digits[i] = digit;
+		}
+		
+		// ranking key, value in the low 32 bits
+		long[] candidates = new long[MAX_SUGGESTIONS];
+		int count = 0;
+		
+		if (length == LENGTH) {
+			int sum = 0;
+			for (int i=0; i<LENGTH; i++) {
+				sum += WEIGHTS[i] * digits[i];
+			}
+			
+			for (int i=0; i<LENGTH; i++) {
+				if (unreadable != -1 && i != unreadable) {
+					continue;
+				}
+				int digit = solve(sum - WEIGHTS[i] * digits[i], i);
+				if (digit != digits[i] || i == unreadable) {
+					count = add(candidates, count, SUBSTITUTION, i, value(digits, 0, i) * 10 + digit, digits, i + 1, LENGTH);
+				}
+			}
+			
+			for (int i=0; unreadable == -1 && i<LENGTH - 1; i++) {
+				int a = digits[i];
+				int b = digits[i + 1];
+				if (a != b && (sum + (WEIGHTS[i] - WEIGHTS[i + 1]) * (b - a)) % 10 == 0) {
+					count = add(candidates, count, TRANSPOSITION, i, (value(digits, 0, i) * 10 + b) * 10 + a, digits, i + 2, LENGTH);
+				}
+			}
+		}
+		else if (length == LENGTH + 1) {
+			// drop digit k: those after it move up one weight
+			int[] shifted = new int[LENGTH + 2];
+			for (int j=LENGTH; j>=1; j--) {
+				shifted[j] = shifted[j + 1] + WEIGHTS[j - 1] * digits[j];
+			}
+			int prefix = 0;
+			for (int k=0; k<=LENGTH; k++) {
+				if ((prefix + shifted[k + 1]) % 10 == 0) {
+					count = add(candidates, count, DELETION, k, value(digits, 0, k), digits, k + 1, LENGTH + 1);
+				}
+				if (k < LENGTH) {
+					prefix += WEIGHTS[k] * digits[k];
+				}
+			}
+		}
+		else {
+			// insert a digit at k: those after it move down one weight
+			int[] shifted = new int[LENGTH + 1];
+			for (int j=LENGTH - 2; j>=0; j--) {
+				shifted[j] = shifted[j + 1] + WEIGHTS[j + 1] * digits[j];
+			}
+			int prefix = 0;
+			for (int k=0; k<LENGTH; k++) {
+				int digit = solve(prefix + shifted[k], k);
+				count = add(candidates, count, INSERTION, k, value(digits, 0, k) * 10 + digit, digits, k, LENGTH - 1);
+				if (k < LENGTH - 1) {
+					prefix += WEIGHTS[k] * digits[k];
+				}
+			}
+		}
+		
+		Arrays.sort(candidates, 0, count);
+		
+		int n = 0;
+		for (int i=0; i<count; i++) {
+			int value = (int)candidates[i];
+			boolean seen = false;
+			for (int j=0; j<n && !seen; j++) {
+				seen = out[j] == value;
+			}
+			if (!seen) {
+				out[n++] = value;
+			}
+		}
+		return n;
+	}
+	
+	/**
+	 * The digit that, at position <code>i</code>, brings <code>rest</code> up
+	 * to a multiple of 10.
+	 */
+	private static int solve(int rest, int i) {
+		int needed = (10 - rest % 10) % 10;
+		return needed * INVERSES[i] % 10;
+	}
+	
+	/**
+	 * Appends digits [from, to) to the value built so far and ranks the
+	 * result.
+	 */
+	private int add(long[] candidates, int count, int kind, int position, int head, int[] digits, int from, int to) {
+		int value = head;
+		for (int i=from; i<to; i++) {
+			value = value * 10 + digits[i];
+		}
+		
+		int rank = 0;
+		if (known != null && !known.containsDfiIdentity(value / 10)) {
+			if (knownOnly) {
+				return count;
+			}
+			rank = 1;
+		}
+		
+		candidates[count] = ((long)((rank << 8) | (kind << 4) | position) << 32) | value;
+		return count + 1;
+	}
+	
+	private static int value(int[] digits, int from, int to) {
+		int value = 0;
+		for (int i=from; i<to; i++) {
+			value = value * 10 + digits[i];
+		}
+		return value;
+	}
+}
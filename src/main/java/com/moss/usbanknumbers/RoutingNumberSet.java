@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of routing numbers stored as one bit per possible
+ * {@link RoutingNumber#dfiIdentity()}: 10^8 bits, or 12.5 MB, held off the
+ * heap regardless of how many numbers are in the set.
+ * <p>
+ * The bits can live in a memory-mapped file (see {@link #map(File, boolean)}),
+ * so a prebuilt blocklist is available as soon as it is mapped.  The file
+ * format is simply the bitset, bit <code>n</code> of the set being bit
+ * <code>n % 8</code> of byte <code>n / 8</code>.
+ * <p>
+ * Lookups never lock.  Changes are serialized against each other, but
+ * readers running concurrently with a change may not see it immediately.
+ * {@link #size()} counts the bits, so it costs a pass over the whole set.
+ */
+public final class RoutingNumberSet extends AbstractSet<RoutingNumber> {
+	
+	/**
+	 * The number of possible DFI identities, and so of bits in the set.
+	 */
+	public static final int CAPACITY = 100000000;
+	
+	/**
+	 * The size, in bytes, of the bitset and of its file form.
+	 */
+	public static final int BYTES = CAPACITY / 8;
+	
+	private static final int WORDS = BYTES / 8;
+	
+	private final ByteBuffer bits;
+	
+	/**
+	 * Creates an empty set in direct (off-heap) memory.
+	 */
+	public RoutingNumberSet() {
+		this(ByteBuffer.allocateDirect(BYTES));
+	}
+	
+	private RoutingNumberSet(ByteBuffer bits) {
+		this.bits = bits;
+		this.bits.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	/**
+	 * Maps a set from a file.  A writable mapping creates (or zero-extends)
+	 * the file as needed, and changes to the set are written through to it;
+	 * a read-only mapping rejects changes.
+	 */
+	public static RoutingNumberSet map(File file, boolean writable) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		try {
+			if (writable && raf.length() < BYTES) {
+				raf.setLength(BYTES);
+			} else if (raf.length() != BYTES) {
+				throw new IOException(file + " is " + raf.length() + " bytes long; a routing number set is " + BYTES + " bytes");
+			}
+			MappedByteBuffer buffer = raf.getChannel().map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, BYTES);
+			return new RoutingNumberSet(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Flushes a writable mapping to disk; does nothing for other sets.
+	 */
+	public void force() {
+		if (bits instanceof MappedByteBuffer && !bits.isReadOnly()) {
+			((MappedByteBuffer)bits).force();
+		}
+	}
+	
+	/**
+	 * Writes the bitset to a file, which can later be {@link #map(File, boolean) mapped}.
+	 */
+	public synchronized void save(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			ByteBuffer view = bits.duplicate();
+			view.clear();
+			FileChannel channel = raf.getChannel();
+			while (view.hasRemaining()) {
+				channel.write(view);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+	
+	public boolean contains(RoutingNumber number) {
+		return containsDfiIdentity(number.dfiIdentity());
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof RoutingNumber && contains((RoutingNumber)o);
+	}
+	
+	public boolean containsDfiIdentity(int dfiIdentity) {
+		if (dfiIdentity < 0 || dfiIdentity >= CAPACITY) {
+			return false;
+		}
+		return (bits.get(dfiIdentity >>> 3) & (1 << (dfiIdentity & 7))) != 0;
+	}
+	
+	@Override
+	public synchronized boolean add(RoutingNumber number) {
+		int dfiIdentity = number.dfiIdentity();
+		int index = dfiIdentity >>> 3;
+		int mask = 1 << (dfiIdentity & 7);
+		byte b = bits.get(index);
+		if ((b & mask) != 0) {
+			return false;
+		}
+		bits.put(index, (byte)(b | mask));
+		return true;
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof RoutingNumber && removeDfiIdentity(((RoutingNumber)o).dfiIdentity());
+	}
+	
+	private synchronized boolean removeDfiIdentity(int dfiIdentity) {
+		int index = dfiIdentity >>> 3;
+		int mask = 1 << (dfiIdentity & 7);
+		byte b = bits.get(index);
+		if ((b & mask) == 0) {
+			return false;
+		}
+		bits.put(index, (byte)(b & ~mask));
+		return true;
+	}
+	
+	/**
+	 * Adds every number in the other set (union).  Returns true if this set changed.
+	 */
+	public synchronized boolean or(RoutingNumberSet other) {
+		boolean changed = false;
+		for (int i=0; i<BYTES; i+=8) {
+			long word = bits.getLong(i);
+			long result = word | other.bits.getLong(i);
+			if (result != word) {
+				bits.putLong(i, result);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Keeps only the numbers also in the other set (intersection).  Returns true if this set changed.
+	 */
+	public synchronized boolean and(RoutingNumberSet other) {
+		boolean changed = false;
+		for (int i=0; i<BYTES; i+=8) {
+			long word = bits.getLong(i);
+			long result = word & other.bits.getLong(i);
+			if (result != word) {
+				bits.putLong(i, result);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Removes every number in the other set (difference).  Returns true if this set changed.
+	 */
+	public synchronized boolean andNot(RoutingNumberSet other) {
+		boolean changed = false;
+		for (int i=0; i<BYTES; i+=8) {
+			long word = bits.getLong(i);
+			long result = word & ~other.bits.getLong(i);
+			if (result != word) {
+				bits.putLong(i, result);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends RoutingNumber> c) {
+		if (c instanceof RoutingNumberSet) {
+			return or((RoutingNumberSet)c);
+		}
+		return super.addAll(c);
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		if (c instanceof RoutingNumberSet) {
+			return and((RoutingNumberSet)c);
+		}
+		return super.retainAll(c);
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		if (c instanceof RoutingNumberSet) {
+			return andNot((RoutingNumberSet)c);
+		}
+		return super.removeAll(c);
+	}
+	
+	@Override
+	public synchronized void clear() {
+		for (int i=0; i<BYTES; i+=8) {
+			bits.putLong(i, 0L);
+		}
+	}
+	
+	@Override
+	public int size() {
+		int size = 0;
+		for (int i=0; i<BYTES; i+=8) {
+			size += Long.bitCount(bits.getLong(i));
+		}
+		return size;
+	}
+	
+	/**
+	 * Iterates in ascending order.
+	 */
+	@Override
+	public Iterator<RoutingNumber> iterator() {
+		return new Iterator<RoutingNumber>() {
+			
+			private int word = -1;
+			private long remaining = 0;
+			private int last = -1;
+			
+			public boolean hasNext() {
+				while (remaining == 0) {
+					if (word + 1 >= WORDS) {
+						return false;
+					}
+					word++;
+					remaining = bits.getLong(word << 3);
+				}
+				return true;
+			}
+			
+			public RoutingNumber next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int bit = Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				last = (word << 6) + bit;
+				return RoutingNumber.fromDfiIdentity(last);
+			}
+			
+			public void remove() {
+				if (last == -1) {
+					throw new IllegalStateException();
+				}
+				removeDfiIdentity(last);
+				last = -1;
+			}
+		};
+	}
+}
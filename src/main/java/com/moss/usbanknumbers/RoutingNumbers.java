@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Validates whole batches of routing numbers without creating a
+ * {@link RoutingNumber} per entry.  Results are reported as a bitmap in
+ * which bit <code>i</code> (word <code>i / 64</code>, bit <code>i % 64</code>)
+ * is set when entry <code>i</code> is valid.
+ */
+public final class RoutingNumbers {
+	
+	/**
+	 * The width of one ASCII routing number record.
+	 */
+	public static final int RECORD_LENGTH = 9;
+	
+	private RoutingNumbers() {
+	}
+	
+	/**
+	 * Allocates a bitmap large enough for <code>count</code> entries.
+	 */
+	public static long[] newBitmap(int count) {
+		return new long[(count + 63) >>> 6];
+	}
+	
+	public static boolean isSet(long[] bitmap, int index) {
+		return (bitmap[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	/**
+	 * Validates <code>count</code> back-to-back 9-byte ASCII records starting at
+	 * <code>off</code>.
+	 */
+	public static long[] validateBatch(byte[] records, int off, int count) {
+		long[] bitmap = newBitmap(count);
+		validateBatch(records, off, count, bitmap);
+		return bitmap;
+	}
+	
+	/**
+	 * As {@link #validateBatch(byte[], int, int)}, writing into a caller supplied
+	 * bitmap so that nothing is allocated.
+	 *
+	 * @return the number of valid records
+	 */
+	public static int validateBatch(byte[] records, int off, int count, long[] bitmap) {
+		
+		if (off < 0 || count < 0 || (long)count * RECORD_LENGTH > records.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		checkBitmap(bitmap, count);
+		
+		int valid = 0;
+		long word = 0;
+		int pos = off;
+		for (int i=0; i<count; i++) {
+			if (RoutingNumber.scan(records, pos) >= 0) {
+				word |= 1L << i;
+				valid++;
+			}
+			pos += RECORD_LENGTH;
+			if ((i & 63) == 63) {
+				bitmap[i >>> 6] = word;
+				word = 0;
+			}
+		}
+		if ((count & 63) != 0) {
+			bitmap[count >>> 6] = word;
+		}
+		
+		return valid;
+	}
+	
+	/**
+	 * Validates <code>count</code> back-to-back 9-byte ASCII records starting at
+	 * the absolute index <code>off</code>; the buffer's position is left untouched.
+	 *
+	 * @return the number of valid records
+	 */
+	public static int validateBatch(ByteBuffer records, int off, int count, long[] bitmap) {
+		
+		if (off < 0 || count < 0 || (long)count * RECORD_LENGTH > records.limit() - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		checkBitmap(bitmap, count);
+		
+		int valid = 0;
+		long word = 0;
+		int pos = off;
+		for (int i=0; i<count; i++) {
+			if (RoutingNumber.scan(records, pos) >= 0) {
+				word |= 1L << i;
+				valid++;
+			}
+			pos += RECORD_LENGTH;
+			if ((i & 63) == 63) {
+				bitmap[i >>> 6] = word;
+				word = 0;
+			}
+		}
+		if ((count & 63) != 0) {
+			bitmap[count >>> 6] = word;
+		}
+		
+		return valid;
+	}
+	
+	/**
+	 * Validates values packed as by {@link RoutingNumber#toInt()}.
+	 */
+	public static long[] validateBatch(int[] values) {
+		long[] bitmap = newBitmap(values.length);
+		validateBatch(values, 0, values.length, bitmap);
+		return bitmap;
+	}
+	
+	/**
+	 * @return the number of valid values
+	 */
+	public static int validateBatch(int[] values, int off, int count, long[] bitmap) {
+		
+		if (off < 0 || count < 0 || count > values.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		checkBitmap(bitmap, count);
+		
+		int valid = 0;
+		long word = 0;
+		for (int i=0; i<count; i++) {
+			if (RoutingNumber.scan(values[off + i]) >= 0) {
+				word |= 1L << i;
+				valid++;
+			}
+			if ((i & 63) == 63) {
+				bitmap[i >>> 6] = word;
+				word = 0;
+			}
+		}
+		if ((count & 63) != 0) {
+			bitmap[count >>> 6] = word;
+		}
+		
+		return valid;
+	}
+	
+	private static void checkBitmap(long[] bitmap, int count) {
+		if (bitmap.length < (count + 63) >>> 6) {
+			throw new IllegalArgumentException("A bitmap for " + count + " entries needs " + ((count + 63) >>> 6) + " words");
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * The serialization proxy written in place of {@link RoutingNumber},
+ * {@link AccountNumber} and {@link CheckNumber}: a tag byte and the
+ * {@link BankNumberCodec} encoding of the value.  Reading one back
+ * validates the value, and routing numbers are interned.
+ */
+final class SerialForm implements Externalizable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final byte ROUTING = 1;
+	private static final byte ACCOUNT = 2;
+	private static final byte CHECK = 3;
+	
+	private byte type;
+	private long value;
+	
+	/**
+	 * For deserialization only.
+	 */
+	public SerialForm() {
+	}
+	
+	SerialForm(RoutingNumber number) {
+		this.type = ROUTING;
+		this.value = number.toInt();
+	}
+	
+	SerialForm(AccountNumber number) {
+		this.type = ACCOUNT;
+		this.value = number.toLong();
+	}
+	
+	SerialForm(CheckNumber number) {
+		this.type = CHECK;
+		this.value = number.toLong();
+	}
+	
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(type);
+		if (type == ROUTING) {
+			out.writeInt((int)value);
+			return;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(1 + BankNumberCodec.bcdLength(ParseUtil.longFieldLength(value)));
+		BankNumberCodec.put(value, buf);
+		out.write(buf.array());
+	}
+	
+	public void readExternal(ObjectInput in) throws IOException {
+		type = in.readByte();
+		if (type == ROUTING) {
+			value = in.readInt();
+			return;
+		}
+		int count = in.readUnsignedByte();
+		if (count > ParseUtil.LONG_FIELD_DIGITS) {
+			throw new StreamCorruptedException("Bad digit count " + count);
+		}
+		byte[] bcd = new byte[BankNumberCodec.bcdLength(count)];
+		in.readFully(bcd);
+		value = BankNumberCodec.fromBcd(ByteBuffer.wrap(bcd), count);
+	}
+	
+	private Object readResolve() throws ObjectStreamException {
+		switch (type) {
+		case ROUTING:
+			try {
+				return RoutingNumber.intern(RoutingNumber.fromInt((int)value));
+			}
+			catch (RoutingNumberException e) {
+				throw new InvalidObjectException("Invalid routing number: " + e.error());
+			}
+		case ACCOUNT:
+			if (!ParseUtil.isLongField(value, AccountNumber.MAX_LENGTH)) {
+				throw new InvalidObjectException("Invalid account number: " + (value < 0 ? ParseUtil.error(value) : BankNumberError.TOO_LONG));
+			}
+			return new AccountNumber(value);
+		case CHECK:
+			if (!ParseUtil.isLongField(value, CheckNumber.MAX_LENGTH)) {
+				throw new InvalidObjectException("Invalid check number: " + (value < 0 ? ParseUtil.error(value) : BankNumberError.TOO_LONG));
+			}
+			return new CheckNumber(value);
+		default:
+			throw new InvalidObjectException("Unknown number type " + type);
+		}
+	}
+}
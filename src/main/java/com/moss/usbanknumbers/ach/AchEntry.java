@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.nio.ByteBuffer;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.AccountNumberException;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.CheckNumberException;
+import com.moss.usbanknumbers.ParseResult;
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.RoutingNumberException;
+
+import static com.moss.usbanknumbers.ach.AchLayout.*;
+
+/**
+ * An entry detail record, read in place from the file.
+ * <p>
+ * The reader hands the same instance to its handler for every entry, moving
+ * it from record to record, so an AchEntry (and any CharSequence it returns)
+ * must not be kept past the handler call.  Each field has its own view, so
+ * different fields can be used together.  The number types it returns are
+ * ordinary values and can be kept.
+ */
+public final class AchEntry {
+	
+	private final ByteBuffer buf;
+	private final long base;
+	private final AsciiSequence accountNumberText;
+	private final AsciiSequence individualIdentification;
+	private final AsciiSequence individualName;
+	private final AsciiSequence checkSerialText;
+	private int record;
+	private String secCode;
+	
+	AchEntry(ByteBuffer buf, long base) {
+		this.buf = buf;
+		this.base = base;
+		this.accountNumberText = new AsciiSequence(buf);
+		this.individualIdentification = new AsciiSequence(buf);
+		this.individualName = new AsciiSequence(buf);
+		this.checkSerialText = new AsciiSequence(buf);
+	}
+	
+	void moveTo(int record, String secCode) {
+		this.record = record;
+		this.secCode = secCode;
+	}
+	
+	/**
+	 * The offset of the record within the file.
+	 */
+	public long offset() {
+		return base + record;
+	}
+	
+	/**
+	 * The standard entry class code of the enclosing batch, e.g. "PPD".
+	 */
+	public String standardEntryClass() {
+		return secCode;
+	}
+	
+	public int transactionCode() {
+		return (int)digits(buf, record, ENTRY_TRANSACTION_CODE, ENTRY_RDFI);
+	}
+	
+	public boolean isCredit() {
+		return AchLayout.isCredit(transactionCode());
+	}
+	
+	public boolean isDebit() {
+		return AchLayout.isDebit(transactionCode());
+	}
+	
+	/**
+	 * The receiving DFI identification: the first 8 digits of the routing
+	 * number, as summed into the entry hash.
+	 */
+	public int receivingDfiIdentification() {
+		return (int)digits(buf, record, ENTRY_RDFI, ENTRY_CHECK_DIGIT);
+	}
+	
+	public boolean hasValidRoutingNumber() {
+		return RoutingNumber.parseInt(buf, record + ENTRY_RDFI) >= 0;
+	}
+	
+	public RoutingNumber routingNumber() throws RoutingNumberException {
+		return RoutingNumber.valueOf(buf, record + ENTRY_RDFI);
+	}
+	
+	/**
+	 * The DFI account number field, without its trailing padding.
+	 */
+	public CharSequence accountNumberText() {
+		return accountNumberText.set(record + ENTRY_ACCOUNT, record + ENTRY_ACCOUNT + ENTRY_ACCOUNT_LENGTH);
+	}
+	
+	public AccountNumber accountNumber() throws AccountNumberException {
+		ParseResult<AccountNumber> result = AccountNumber.tryParse(accountNumberText());
+		if (!result.isValid()) {
+			throw new AccountNumberException(result.error());
+		}
+		return result.value();
+	}
+	
+	/**
+	 * The amount in cents.
+	 */
+	public long amount() {
+		return digits(buf, record, ENTRY_AMOUNT, ENTRY_INDIVIDUAL_ID);
+	}
+	
+	public CharSequence individualIdentification() {
+		return individualIdentification.set(record + ENTRY_INDIVIDUAL_ID, record + ENTRY_INDIVIDUAL_ID + ENTRY_INDIVIDUAL_ID_LENGTH);
+	}
+	
+	public CharSequence individualName() {
+		return individualName.set(record + ENTRY_INDIVIDUAL_NAME, record + ENTRY_INDIVIDUAL_NAME + ENTRY_INDIVIDUAL_NAME_LENGTH);
+	}
+	
+	/**
+	 * True for the check conversion classes (ARC, BOC, POP and RCK), whose
+	 * entries carry a check serial number.
+	 */
+	public boolean isCheckEntry() {
+		return isCheckEntryClass(secCode);
+	}
+	
+	/**
+	 * The check serial number of a check conversion entry, or null for
+	 * other entry classes.
+	 */
+	public CheckNumber checkSerialNumber() throws CheckNumberException {
+		if (!isCheckEntry()) {
+			return null;
+		}
+		int length = "POP".equals(secCode) ? ENTRY_POP_CHECK_SERIAL_LENGTH : ENTRY_INDIVIDUAL_ID_LENGTH;
+		ParseResult<CheckNumber> result = CheckNumber.tryParse(checkSerialText.set(record + ENTRY_INDIVIDUAL_ID, record + ENTRY_INDIVIDUAL_ID + length));
+		if (!result.isValid()) {
+			throw new CheckNumberException(result.error());
+		}
+		return result.value();
+	}
+	
+	public boolean hasAddenda() {
+		return buf.get(record + ENTRY_ADDENDA_INDICATOR) == '1';
+	}
+	
+	public long traceNumber() {
+		return digits(buf, record, ENTRY_TRACE_NUMBER, RECORD_LENGTH);
+	}
+	
+	/**
+	 * Copies the whole 94 character record.
+	 */
+	@Override
+	public String toString() {
+		return new AsciiSequence(buf).set(record, record + RECORD_LENGTH).toString();
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.moss.usbanknumbers.ach.AchLayout.*;
+
+/**
+ * A NACHA formatted ACH file, read straight out of a memory mapping.
+ * <p>
+ * Records may be back to back or separated by LF or CRLF line endings.
+ * Entry detail records are handed to an {@link AchEntryHandler} as views
+ * over the mapped bytes, so reading a file allocates next to nothing per
+ * entry.  Every batch is checked against its batch control record and the
+ * whole file against its file control record.
+ * <p>
+ * Because each batch carries its own control totals, a file can be split
+ * at batch headers and the pieces read on several threads at once; see
+ * {@link #read(AchEntryHandler, ExecutorService, int)}.
+ */
+public final class AchFile implements Closeable {
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long length;
+	private final int stride;
+	private final long recordCount;
+	
+	private AchFile(RandomAccessFile file, long length, int stride) {
+		this.file = file;
+		this.channel = file.getChannel();
+		this.length = length;
+		this.stride = stride;
+		this.recordCount = length / stride + (length % stride == 0 ? 0 : 1);
+	}
+	
+	public static AchFile open(File path) throws IOException, AchException {
+		
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		boolean opened = false;
+		try {
+			long length = file.length();
+			if (length < RECORD_LENGTH) {
+				throw new AchException("An ACH file must hold at least one " + RECORD_LENGTH + " character record");
+			}
+			
+			ByteBuffer head = ByteBuffer.allocate(RECORD_LENGTH + 2);
+			file.getChannel().read(head, 0);
+			if (head.get(0) != FILE_HEADER) {
+				throw new AchException("An ACH file must begin with a file header record");
+			}
+			
+			int stride = RECORD_LENGTH;
+			if (head.position() > RECORD_LENGTH && head.get(RECORD_LENGTH) == '\n') {
+				stride = RECORD_LENGTH + 1;
+			}
+			else if (head.position() > RECORD_LENGTH + 1 && head.get(RECORD_LENGTH) == '\r' && head.get(RECORD_LENGTH + 1) == '\n') {
+				stride = RECORD_LENGTH + 2;
+			}
+			
+			// the last record may be missing its line ending
+			long remainder = length % stride;
+			if (remainder != 0 && remainder != RECORD_LENGTH) {
+				throw new AchException("The file length is not a whole number of records");
+			}
+			
+			AchFile achFile = new AchFile(file, length, stride);
+			opened = true;
+			return achFile;
+		}
+		finally {
+			if (!opened) {
+				file.close();
+			}
+		}
+	}
+	
+	public long recordCount() {
+		return recordCount;
+	}
+	
+	/**
+	 * Reads the file on the calling thread.
+	 *
+	 * @return the file's control totals, once they have been verified
+	 */
+	public AchTotals read(AchEntryHandler handler) throws IOException, AchException {
+		AchSegment segment = new AchSegment(channel, length, stride, 0, recordCount);
+		return verify(segment.read(handler), segment.control());
+	}
+	
+	/**
+	 * Splits the file into about <code>parts</code> runs of whole batches and
+	 * reads them concurrently on the executor.  The handler sees the entries
+	 * of any one batch in file order, but batches may interleave.
+	 *
+	 * @return the file's control totals, once they have been verified
+	 */
+	public AchTotals read(final AchEntryHandler handler, ExecutorService executor, int parts) throws IOException, AchException {
+		
+		if (parts < 1) {
+			throw new IllegalArgumentException("parts must be positive");
+		}
+		
+		List<AchSegment> segments = split(parts);
+		List<Future<AchTotals>> results = new ArrayList<Future<AchTotals>>(segments.size());
+		for (final AchSegment segment : segments) {
+			results.add(executor.submit(new Callable<AchTotals>() {
+				public AchTotals call() throws Exception {
+					return segment.read(handler);
+				}
+			}));
+		}
+		
+		AchTotals totals = new AchTotals();
+		AchTotals control = null;
+		try {
+			for (int i=0; i<segments.size(); i++) {
+				totals.add(results.get(i).get());
+				if (segments.get(i).control() != null) {
+					if (control != null) {
+						throw new AchException("The file has more than one file control record");
+					}
+					control = segments.get(i).control();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(results);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e) {
+			cancel(results);
+			Throwable cause = e.getCause();
+			if (cause instanceof AchException) {
+				throw (AchException)cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IOException(String.valueOf(cause));
+		}
+		
+		return verify(totals, control);
+	}
+	
+	/**
+	 * Cuts the file roughly every <code>recordCount / parts</code> records,
+	 * moving each cut forward to the next batch header or file control record
+	 * so that no batch is split.
+	 */
+	List<AchSegment> split(int parts) throws IOException {
+		
+		List<AchSegment> segments = new ArrayList<AchSegment>(parts);
+		ByteBuffer type = ByteBuffer.allocate(1);
+		
+		long start = 0;
+		for (int i=1; i<=parts; i++) {
+			long cut = i == parts ? recordCount : Math.max(start + 1, recordCount * i / parts);
+			while (cut < recordCount) {
+				type.clear();
+				channel.read(type, cut * stride);
+				byte b = type.get(0);
+				if (b == BATCH_HEADER || b == FILE_CONTROL) {
+					break;
+				}
+				cut++;
+			}
+			if (cut > start) {
+				segments.add(new AchSegment(channel, length, stride, start, cut));
+				start = cut;
+			}
+			if (start == recordCount) {
+				break;
+			}
+		}
+		
+		return segments;
+	}
+	
+	private AchTotals verify(AchTotals totals, AchTotals control) throws AchException {
+		if (control == null) {
+			throw new AchException("The file has no file control record");
+		}
+		if (!totals.agreesWith(control)) {
+			throw new AchException("File control totals (" + control + ") do not match the file (" + totals + ")");
+		}
+		return totals;
+	}
+	
+	private static void cancel(List<Future<AchTotals>> results) {
+		for (Future<AchTotals> result : results) {
+			result.cancel(true);
+		}
+	}
+	
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Field positions of the NACHA record layouts, as zero-based [start, end)
+ * offsets within a 94 character record.
+ */
+final class AchLayout {
+	
+	static final int RECORD_LENGTH = 94;
+	static final int BLOCKING_FACTOR = 10;
+	
+	static final byte FILE_HEADER = '1';
+	static final byte BATCH_HEADER = '5';
+	static final byte ENTRY_DETAIL = '6';
+	static final byte ADDENDA = '7';
+	static final byte BATCH_CONTROL = '8';
+	static final byte FILE_CONTROL = '9';
+	
+	/** The entry hash keeps only its low 10 digits. */
+	static final long HASH_MODULUS = 10000000000L;
+	
+	// batch header
+	static final int BATCH_SERVICE_CLASS = 1;
+	static final int BATCH_COMPANY_NAME = 4;
+	static final int BATCH_DISCRETIONARY_DATA = 20;
+	static final int BATCH_COMPANY_ID = 40;
+	static final int BATCH_SEC_CODE = 50;
+	static final int BATCH_ENTRY_DESCRIPTION = 53;
+	static final int BATCH_DESCRIPTIVE_DATE = 63;
+	static final int BATCH_EFFECTIVE_DATE = 69;
+	static final int BATCH_SETTLEMENT_DATE = 75;
+	static final int BATCH_ORIGINATOR_STATUS = 78;
+	static final int BATCH_ODFI = 79;
+	static final int BATCH_NUMBER = 87;
+	
+	// entry detail
+	static final int ENTRY_TRANSACTION_CODE = 1;
+	static final int ENTRY_RDFI = 3;
+	static final int ENTRY_CHECK_DIGIT = 11;
+	static final int ENTRY_ACCOUNT = 12;
+	static final int ENTRY_ACCOUNT_LENGTH = 17;
+	static final int ENTRY_AMOUNT = 29;
+	static final int ENTRY_INDIVIDUAL_ID = 39;
+	static final int ENTRY_INDIVIDUAL_ID_LENGTH = 15;
+	static final int ENTRY_POP_CHECK_SERIAL_LENGTH = 9;
+	static final int ENTRY_INDIVIDUAL_NAME = 54;
+	static final int ENTRY_INDIVIDUAL_NAME_LENGTH = 22;
+	static final int ENTRY_DISCRETIONARY_DATA = 76;
+	static final int ENTRY_ADDENDA_INDICATOR = 78;
+	static final int ENTRY_TRACE_NUMBER = 79;
+	
+	// batch control
+	static final int BATCH_CONTROL_ENTRY_COUNT = 4;
+	static final int BATCH_CONTROL_ENTRY_HASH = 10;
+	static final int BATCH_CONTROL_DEBIT = 20;
+	static final int BATCH_CONTROL_CREDIT = 32;
+	static final int BATCH_CONTROL_COMPANY_ID = 44;
+	static final int BATCH_CONTROL_ODFI = 79;
+	static final int BATCH_CONTROL_NUMBER = 87;
+	
+	// file control
+	static final int FILE_CONTROL_BATCH_COUNT = 1;
+	static final int FILE_CONTROL_BLOCK_COUNT = 7;
+	static final int FILE_CONTROL_ENTRY_COUNT = 13;
+	static final int FILE_CONTROL_ENTRY_HASH = 21;
+	static final int FILE_CONTROL_DEBIT = 31;
+	static final int FILE_CONTROL_CREDIT = 43;
+	
+	private AchLayout() {
+	}
+	
+	/**
+	 * Reads the unsigned decimal in [start, end) of the record at
+	 * <code>record</code>, or returns -1 if any of it isn't a digit.
+	 */
+	static long digits(ByteBuffer buf, int record, int start, int end) {
+		long value = 0;
+		for (int i=record + start; i<record + end; i++) {
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+	
+	/**
+	 * Transaction codes ending in 1 to 4 are credits and 6 to 9 are debits.
+	 */
+	static boolean isCredit(int transactionCode) {
+		int kind = transactionCode % 10;
+		return kind >= 1 && kind <= 4;
+	}
+	
+	static boolean isDebit(int transactionCode) {
+		return transactionCode % 10 >= 6;
+	}
+	
+	/**
+	 * True for the standard entry classes that carry a check serial number
+	 * in the individual identification field.
+	 */
+	static boolean isCheckEntryClass(String secCode) {
+		return "ARC".equals(secCode) || "BOC".equals(secCode) || "RCK".equals(secCode) || "POP".equals(secCode);
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.moss.usbanknumbers.ach.AchLayout.*;
+
+/**
+ * A run of whole batches within an {@link AchFile}, from record
+ * <code>first</code> up to (but not including) record <code>end</code>.
+ * The region is mapped a window at a time so that segments of any size can
+ * be walked without hitting the 2GB limit on a single mapping.
+ */
+final class AchSegment {
+	
+	/**
+	 * The largest region mapped at once.
+	 */
+	private static final int WINDOW_BYTES = 1 << 30;
+	
+	private final FileChannel channel;
+	private final long fileLength;
+	private final int stride;
+	private final long first;
+	private final long end;
+	
+	private AchTotals control;
+	
+	AchSegment(FileChannel channel, long fileLength, int stride, long first, long end) {
+		this.channel = channel;
+		this.fileLength = fileLength;
+		this.stride = stride;
+		this.first = first;
+		this.end = end;
+	}
+	
+	/**
+	 * The figures from the file control record, if this segment contains it.
+	 */
+	AchTotals control() {
+		return control;
+	}
+	
+	/**
+	 * Walks the segment, checking every batch against its control record and
+	 * passing each entry detail record to the handler.
+	 */
+	AchTotals read(AchEntryHandler handler) throws IOException, AchException {
+		
+		AchTotals totals = new AchTotals();
+		int windowRecords = WINDOW_BYTES / stride;
+		
+		boolean inBatch = false;
+		String secCode = null;
+		long entries = 0;
+		long entryAndAddenda = 0;
+		long hash = 0;
+		long debit = 0;
+		long credit = 0;
+		
+		for (long windowStart=first; windowStart<end; windowStart+=windowRecords) {
+			
+			long windowEnd = Math.min(end, windowStart + windowRecords);
+			long position = windowStart * stride;
+			long length = Math.min(windowEnd * stride, fileLength) - position;
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			AchEntry entry = new AchEntry(buf, position);
+			
+			for (int record=0; record<length; record+=stride) {
+				
+				long offset = position + record;
+				switch (buf.get(record)) {
+				case FILE_HEADER:
+					if (offset != 0) {
+						throw error("unexpected file header record", offset);
+					}
+					break;
+				case BATCH_HEADER:
+					if (inBatch) {
+						throw error("batch header record inside a batch", offset);
+					}
+					inBatch = true;
+					secCode = ascii(buf, record + BATCH_SEC_CODE, 3);
+					entries = entryAndAddenda = hash = debit = credit = 0;
+					break;
+				case ENTRY_DETAIL: {
+					if (!inBatch) {
+						throw error("entry detail record outside a batch", offset);
+					}
+					int transactionCode = (int)number(buf, record, ENTRY_TRANSACTION_CODE, ENTRY_RDFI, offset);
+					long rdfi = number(buf, record, ENTRY_RDFI, ENTRY_CHECK_DIGIT, offset);
+					long amount = number(buf, record, ENTRY_AMOUNT, ENTRY_INDIVIDUAL_ID, offset);
+					entries++;
+					entryAndAddenda++;
+					hash += rdfi;
+					if (isCredit(transactionCode)) {
+						credit += amount;
+					}
+					else if (isDebit(transactionCode)) {
+						debit += amount;
+					}
+					entry.moveTo(record, secCode);
+					handler.entry(entry);
+					break;
+				}
+				case ADDENDA:
+					if (!inBatch) {
+						throw error("addenda record outside a batch", offset);
+					}
+					entryAndAddenda++;
+					break;
+				case BATCH_CONTROL:
+					if (!inBatch) {
+						throw error("batch control record outside a batch", offset);
+					}
+					hash %= HASH_MODULUS;
+					if (
+						number(buf, record, BATCH_CONTROL_ENTRY_COUNT, BATCH_CONTROL_ENTRY_HASH, offset) != entryAndAddenda
+						||
+						number(buf, record, BATCH_CONTROL_ENTRY_HASH, BATCH_CONTROL_DEBIT, offset) != hash
+						||
+						number(buf, record, BATCH_CONTROL_DEBIT, BATCH_CONTROL_CREDIT, offset) != debit
+						||
+						number(buf, record, BATCH_CONTROL_CREDIT, BATCH_CONTROL_COMPANY_ID, offset) != credit
+					) {
+						throw error("batch control totals do not match the batch", offset);
+					}
+					totals.addBatch(entries, entryAndAddenda, hash, debit, credit);
+					inBatch = false;
+					break;
+				case FILE_CONTROL:
+					if (isPadding(buf, record)) {
+						break;
+					}
+					if (inBatch) {
+						throw error("file control record inside a batch", offset);
+					}
+					if (control != null) {
+						throw error("more than one file control record", offset);
+					}
+					control = new AchTotals(
+						(int)number(buf, record, FILE_CONTROL_BATCH_COUNT, FILE_CONTROL_BLOCK_COUNT, offset),
+						number(buf, record, FILE_CONTROL_ENTRY_COUNT, FILE_CONTROL_ENTRY_HASH, offset),
+						number(buf, record, FILE_CONTROL_ENTRY_HASH, FILE_CONTROL_DEBIT, offset),
+						number(buf, record, FILE_CONTROL_DEBIT, FILE_CONTROL_CREDIT, offset),
+						number(buf, record, FILE_CONTROL_CREDIT, FILE_CONTROL_CREDIT + 12, offset)
+					);
+					break;
+				default:
+					throw error("unknown record type '" + (char)(buf.get(record) & 0xFF) + "'", offset);
+				}
+			}
+		}
+		
+		if (inBatch) {
+			throw error("batch is missing its control record", end * stride);
+		}
+		
+		return totals;
+	}
+	
+	/**
+	 * Records made up entirely of 9s fill out the last block of a file.
+	 */
+	private static boolean isPadding(MappedByteBuffer buf, int record) {
+		for (int i=record; i<record + RECORD_LENGTH; i++) {
+			if (buf.get(i) != '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static long number(MappedByteBuffer buf, int record, int start, int end, long offset) throws AchException {
+		long value = digits(buf, record, start, end);
+		if (value < 0) {
+			throw error("non-numeric field at column " + (start + 1), offset);
+		}
+		return value;
+	}
+	
+	private static String ascii(MappedByteBuffer buf, int off, int len) {
+		char[] chars = new char[len];
+		for (int i=0; i<len; i++) {
+			chars[i] = (char)(buf.get(off + i) & 0xFF);
+		}
+		return new String(chars);
+	}
+	
+	static AchException error(String problem, long offset) {
+		return new AchException(problem + " (offset " + offset + ")");
+	}
+}
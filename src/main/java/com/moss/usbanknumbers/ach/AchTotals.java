@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import static com.moss.usbanknumbers.ach.AchLayout.HASH_MODULUS;
+
+/**
+ * The control totals of an ACH file or of a part of one: the figures the
+ * batch and file control records are checked against.
+ */
+public final class AchTotals {
+	
+	private int batchCount;
+	private long entryCount;
+	private long entryAndAddendaCount;
+	private long entryHash;
+	private long totalDebit;
+	private long totalCredit;
+	
+	AchTotals() {
+	}
+	
+	AchTotals(int batchCount, long entryAndAddendaCount, long entryHash, long totalDebit, long totalCredit) {
+		this.batchCount = batchCount;
+		this.entryAndAddendaCount = entryAndAddendaCount;
+		this.entryHash = entryHash;
+		this.totalDebit = totalDebit;
+		this.totalCredit = totalCredit;
+	}
+	
+	void addBatch(long entries, long entryAndAddenda, long hash, long debit, long credit) {
+		batchCount++;
+		entryCount += entries;
+		entryAndAddendaCount += entryAndAddenda;
+		entryHash = (entryHash + hash) % HASH_MODULUS;
+		totalDebit += debit;
+		totalCredit += credit;
+	}
+	
+	void add(AchTotals other) {
+		batchCount += other.batchCount;
+		entryCount += other.entryCount;
+		entryAndAddendaCount += other.entryAndAddendaCount;
+		entryHash = (entryHash + other.entryHash) % HASH_MODULUS;
+		totalDebit += other.totalDebit;
+		totalCredit += other.totalCredit;
+	}
+	
+	/**
+	 * True when the batch count, entry/addenda count, entry hash and dollar
+	 * totals all agree.
+	 */
+	boolean agreesWith(AchTotals other) {
+		return
+			batchCount == other.batchCount
+			&&
+			entryAndAddendaCount == other.entryAndAddendaCount
+			&&
+			entryHash == other.entryHash
+			&&
+			totalDebit == other.totalDebit
+			&&
+			totalCredit == other.totalCredit;
+	}
+	
+	public int batchCount() {
+		return batchCount;
+	}
+	
+	/**
+	 * The number of entry detail records, not counting addenda.
+	 */
+	public long entryCount() {
+		return entryCount;
+	}
+	
+	public long entryAndAddendaCount() {
+		return entryAndAddendaCount;
+	}
+	
+	/**
+	 * The sum of the receiving DFI identifications, keeping the low 10 digits.
+	 */
+	public long entryHash() {
+		return entryHash;
+	}
+	
+	/**
+	 * The total debit amount in cents.
+	 */
+	public long totalDebit() {
+		return totalDebit;
+	}
+	
+	/**
+	 * The total credit amount in cents.
+	 */
+	public long totalCredit() {
+		return totalCredit;
+	}
+	
+	@Override
+	public String toString() {
+		return "batches=" + batchCount + " entries/addenda=" + entryAndAddendaCount + " hash=" + entryHash + " debit=" + totalDebit + " credit=" + totalCredit;
+	}
+}
@@ -0,0 +1,518 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Calendar;
+import java.util.Date;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+import static com.moss.usbanknumbers.ach.AchLayout.*;
+
+/**
+ * Writes a NACHA formatted ACH file in a single pass.
+ * <p>
+ * Records are encoded straight from the number types into a reusable
+ * buffer that is drained to the channel as it fills.  Batch and file
+ * control totals (entry counts, the entry hash and the dollar totals) are
+ * kept as entries go out, so memory use doesn't grow with the size of the
+ * file.  Call {@link #beginFile}, then any number of {@link #beginBatch} /
+ * {@link #entry} / {@link #endBatch} runs, then {@link #endFile}.
+ */
+public final class AchWriter implements Closeable, Flushable {
+	
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Entries are numbered in the last 7 digits of the trace number.
+	 */
+	private static final int MAX_ENTRY_SEQUENCE = 9999999;
+	
+	private final WritableByteChannel channel;
+	private final ByteBuffer buf;
+	private final byte[] lineEnding;
+	
+	private final AchTotals totals = new AchTotals();
+	private long recordCount;
+	private boolean inFile;
+	private boolean finished;
+	
+	private boolean inBatch;
+	private int serviceClass;
+	private String companyId;
+	private RoutingNumber odfi;
+	private int batchNumber;
+	private long batchEntries;
+	private long batchEntryAndAddenda;
+	private long batchHash;
+	private long batchDebit;
+	private long batchCredit;
+	
+	private int entrySequence;
+	private int addendaSequence;
+	
+	/**
+	 * Writes records separated by LF.
+	 */
+	public AchWriter(WritableByteChannel channel) {
+		this(channel, "\n");
+	}
+	
+	/**
+	 * @param lineEnding "\n", "\r\n", or "" for back to back records
+	 */
+	public AchWriter(WritableByteChannel channel, String lineEnding) {
+		if (!"".equals(lineEnding) && !"\n".equals(lineEnding) && !"\r\n".equals(lineEnding)) {
+			throw new IllegalArgumentException("Records can only be separated by LF or CRLF");
+		}
+		this.channel = channel;
+		this.lineEnding = new byte[lineEnding.length()];
+		for (int i=0; i<this.lineEnding.length; i++) {
+			this.lineEnding[i] = (byte)lineEnding.charAt(i);
+		}
+		this.buf = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Writes the file header record.
+	 *
+	 * @param origin the 10 character immediate origin, usually the
+	 * originator's tax id or a blank followed by a routing number
+	 */
+	public void beginFile(RoutingNumber destination, String origin, String destinationName, String originName, Date created, char fileIdModifier) throws IOException {
+		
+		if (inFile || finished) {
+			throw new IllegalStateException("The file header has already been written");
+		}
+		
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(created);
+		
+		int start = startRecord();
+		try {
+			buf.put(FILE_HEADER);
+			putText("01", 2);
+			buf.put((byte)' ');
+			putRoutingNumber(destination);
+			putText(origin, 10);
+			putDate(calendar);
+			putDigits(calendar.get(Calendar.HOUR_OF_DAY), 2);
+			putDigits(calendar.get(Calendar.MINUTE), 2);
+			putText(String.valueOf(fileIdModifier), 1);
+			putDigits(RECORD_LENGTH, 3);
+			putDigits(BLOCKING_FACTOR, 2);
+			putText("1", 1);
+			putText(destinationName, 23);
+			putText(originName, 23);
+			putSpaces(8);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		inFile = true;
+	}
+	
+	/**
+	 * Writes a batch header record.
+	 *
+	 * @param serviceClass 200 for mixed debits and credits, 220 for credits
+	 * only or 225 for debits only
+	 * @param odfi the originating bank, whose first 8 digits also begin the
+	 * trace number of each entry
+	 */
+	public void beginBatch(int serviceClass, String companyName, String companyId, String secCode, String entryDescription, Date effectiveEntryDate, RoutingNumber odfi) throws IOException {
+		
+		if (!inFile) {
+			throw new IllegalStateException("A batch can only be started after the file header");
+		}
+		if (inBatch) {
+			throw new IllegalStateException("The previous batch has not been ended");
+		}
+		
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(effectiveEntryDate);
+		
+		int start = startRecord();
+		try {
+			buf.put(BATCH_HEADER);
+			putDigits(serviceClass, 3);
+			putText(companyName, 16);
+			putSpaces(20);
+			putText(companyId, 10);
+			putText(secCode, 3);
+			putText(entryDescription, 10);
+			putSpaces(6);
+			putDate(calendar);
+			putSpaces(3);
+			putText("1", 1);
+			putDigits(odfi.dfiIdentity(), 8);
+			putDigits(batchNumber + 1, 7);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		this.serviceClass = serviceClass;
+		this.companyId = companyId;
+		this.odfi = odfi;
+		batchNumber++;
+		batchEntries = batchEntryAndAddenda = batchHash = batchDebit = batchCredit = 0;
+		inBatch = true;
+	}
+	
+	/**
+	 * Writes an entry detail record.
+	 *
+	 * @param amount the amount in cents
+	 * @return the trace number assigned to the entry
+	 */
+	public long entry(int transactionCode, RoutingNumber receiver, AccountNumber account, long amount, CharSequence individualId, CharSequence individualName, boolean hasAddenda) throws IOException {
+		return entry(transactionCode, receiver, account, amount, null, individualId, individualName, hasAddenda);
+	}
+	
+	/**
+	 * Writes an entry for one of the check conversion classes (ARC, BOC or
+	 * RCK), which carry the check serial number in place of the individual
+	 * identification.
+	 */
+	public long entry(int transactionCode, RoutingNumber receiver, AccountNumber account, long amount, CheckNumber checkSerialNumber, CharSequence individualName) throws IOException {
+		if (checkSerialNumber == null) {
+			throw new NullPointerException("Null check serial number");
+		}
+		return entry(transactionCode, receiver, account, amount, checkSerialNumber, null, individualName, false);
+	}
+	
+	private long entry(int transactionCode, RoutingNumber receiver, AccountNumber account, long amount, CheckNumber checkSerialNumber, CharSequence individualId, CharSequence individualName, boolean hasAddenda) throws IOException {
+		
+		if (!inBatch) {
+			throw new IllegalStateException("Entries can only be written inside a batch");
+		}
+		if (transactionCode < 20 || transactionCode > 99) {
+			throw new IllegalArgumentException("Not a transaction code: " + transactionCode);
+		}
+		if (amount < 0) {
+			throw new IllegalArgumentException("Amounts can't be negative");
+		}
+		
+		if (entrySequence >= MAX_ENTRY_SEQUENCE) {
+			throw new IllegalStateException("The 7 digit entry sequence of the trace numbers is exhausted");
+		}
+		
+		long trace = odfi.dfiIdentity() * (MAX_ENTRY_SEQUENCE + 1L) + entrySequence + 1;
+		
+		int start = startRecord();
+		try {
+			buf.put(ENTRY_DETAIL);
+			putDigits(transactionCode, 2);
+			putRoutingNumber(receiver);
+			putNumber(account.longValue(), account.length(), ENTRY_ACCOUNT_LENGTH);
+			putDigits(amount, 10);
+			if (checkSerialNumber != null) {
+				putNumber(checkSerialNumber.longValue(), checkSerialNumber.length(), ENTRY_INDIVIDUAL_ID_LENGTH);
+			}
+			else {
+				putText(individualId, ENTRY_INDIVIDUAL_ID_LENGTH);
+			}
+			putText(individualName, ENTRY_INDIVIDUAL_NAME_LENGTH);
+			putSpaces(2);
+			buf.put((byte)(hasAddenda ? '1' : '0'));
+			putDigits(trace, 15);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		entrySequence++;
+		addendaSequence = 0;
+		batchEntries++;
+		batchEntryAndAddenda++;
+		batchHash += receiver.dfiIdentity();
+		if (isCredit(transactionCode)) {
+			batchCredit += amount;
+		}
+		else if (isDebit(transactionCode)) {
+			batchDebit += amount;
+		}
+		
+		return trace;
+	}
+	
+	/**
+	 * Writes a type 05 addenda record for the last entry.
+	 */
+	public void addenda(CharSequence paymentInformation) throws IOException {
+		
+		if (!inBatch || batchEntries == 0) {
+			throw new IllegalStateException("An addenda record must follow an entry");
+		}
+		
+		int start = startRecord();
+		try {
+			buf.put(ADDENDA);
+			putText("05", 2);
+			putText(paymentInformation, 80);
+			putDigits(addendaSequence + 1, 4);
+			putDigits(entrySequence, 7);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		addendaSequence++;
+		batchEntryAndAddenda++;
+	}
+	
+	/**
+	 * Writes the batch control record from the totals gathered since
+	 * {@link #beginBatch}.
+	 */
+	public void endBatch() throws IOException {
+		
+		if (!inBatch) {
+			throw new IllegalStateException("No batch has been started");
+		}
+		
+		batchHash %= HASH_MODULUS;
+		
+		int start = startRecord();
+		try {
+			buf.put(BATCH_CONTROL);
+			putDigits(serviceClass, 3);
+			putDigits(batchEntryAndAddenda, 6);
+			putDigits(batchHash, 10);
+			putDigits(batchDebit, 12);
+			putDigits(batchCredit, 12);
+			putText(companyId, 10);
+			putSpaces(25);
+			putDigits(odfi.dfiIdentity(), 8);
+			putDigits(batchNumber, 7);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		totals.addBatch(batchEntries, batchEntryAndAddenda, batchHash, batchDebit, batchCredit);
+		inBatch = false;
+	}
+	
+	/**
+	 * Writes the file control record, pads the file out to a whole block of
+	 * 10 records and flushes.
+	 *
+	 * @return the file's control totals
+	 */
+	public AchTotals endFile() throws IOException {
+		
+		if (!inFile) {
+			throw new IllegalStateException("The file header has not been written");
+		}
+		if (inBatch) {
+			throw new IllegalStateException("The last batch has not been ended");
+		}
+		
+		long records = recordCount + 1;
+		long blocks = (records + BLOCKING_FACTOR - 1) / BLOCKING_FACTOR;
+		
+		int start = startRecord();
+		try {
+			buf.put(FILE_CONTROL);
+			putDigits(totals.batchCount(), 6);
+			putDigits(blocks, 6);
+			putDigits(totals.entryAndAddendaCount(), 8);
+			putDigits(totals.entryHash(), 10);
+			putDigits(totals.totalDebit(), 12);
+			putDigits(totals.totalCredit(), 12);
+			putSpaces(39);
+		}
+		catch (IllegalArgumentException e) {
+			throw rollback(start, e);
+		}
+		endRecord();
+		
+		while (recordCount % BLOCKING_FACTOR != 0) {
+			startRecord();
+			for (int i=0; i<RECORD_LENGTH; i++) {
+				buf.put((byte)'9');
+			}
+			endRecord();
+		}
+		
+		inFile = false;
+		finished = true;
+		flush();
+		
+		return totals;
+	}
+	
+	/**
+	 * The number of records written so far.
+	 */
+	public long recordCount() {
+		return recordCount;
+	}
+	
+	/**
+	 * Drains the buffer to the channel.
+	 */
+	public void flush() throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+	
+	/**
+	 * Flushes and closes the channel.  A file that hasn't been ended is left
+	 * incomplete.
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Makes room for a record and writes the line ending before it.
+	 *
+	 * @return the buffer position to roll back to if the record is rejected
+	 */
+	private int startRecord() throws IOException {
+		if (buf.remaining() < RECORD_LENGTH + lineEnding.length) {
+			flush();
+		}
+		int start = buf.position();
+		if (recordCount > 0) {
+			buf.put(lineEnding);
+		}
+		return start;
+	}
+	
+	/**
+	 * Discards a partly written record, so that a rejected field leaves the
+	 * output as it was.
+	 */
+	private IllegalArgumentException rollback(int start, IllegalArgumentException e) {
+		buf.position(start);
+		return e;
+	}
+	
+	private void endRecord() {
+		recordCount++;
+	}
+	
+	private void putRoutingNumber(RoutingNumber number) {
+		putDigits(number.toInt(), 9);
+	}
+	
+	/**
+	 * Writes the value right justified and zero filled.
+	 */
+	private void putDigits(long value, int width) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value: " + value);
+		}
+		int end = buf.position() + width;
+		for (int i=end - 1; i>=buf.position(); i--) {
+			buf.put(i, (byte)('0' + value % 10));
+			value /= 10;
+		}
+		if (value != 0) {
+			throw new IllegalArgumentException("Value does not fit in " + width + " digits");
+		}
+		buf.position(end);
+	}
+	
+	/**
+	 * Writes a number of the given digit count, leading zeros included,
+	 * left justified and blank filled.
+	 */
+	private void putNumber(long value, int length, int width) {
+		if (length > width) {
+			throw new IllegalArgumentException("A " + length + " digit number does not fit in " + width + " characters");
+		}
+		putDigits(value, length);
+		putSpaces(width - length);
+	}
+	
+	/**
+	 * Writes the text left justified and blank filled.
+	 */
+	private void putText(CharSequence text, int width) {
+		int length = text == null ? 0 : text.length();
+		if (length > width) {
+			throw new IllegalArgumentException("\"" + text + "\" does not fit in " + width + " characters");
+		}
+		for (int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			if (c < ' ' || c > '~') {
+				throw new IllegalArgumentException("\"" + text + "\" contains a character that can't be written to an ACH file");
+			}
+			buf.put((byte)c);
+		}
+		putSpaces(width - length);
+	}
+	
+	private void putSpaces(int count) {
+		for (int i=0; i<count; i++) {
+			buf.put((byte)' ');
+		}
+	}
+	
+	private void putDate(Calendar calendar) {
+		putDigits(calendar.get(Calendar.YEAR) % 100, 2);
+		putDigits(calendar.get(Calendar.MONTH) + 1, 2);
+		putDigits(calendar.get(Calendar.DAY_OF_MONTH), 2);
+	}
+}
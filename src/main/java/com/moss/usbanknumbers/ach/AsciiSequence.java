@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A CharSequence view of ASCII bytes in a buffer, so that fields can be
+ * handed to the number parsers without being copied into Strings.  A view
+ * is only valid until it is moved to another field.
+ */
+final class AsciiSequence implements CharSequence {
+	
+	private final ByteBuffer buf;
+	private int start;
+	private int end;
+	
+	AsciiSequence(ByteBuffer buf) {
+		this.buf = buf;
+	}
+	
+	/**
+	 * Points the view at [start, end), dropping trailing spaces.
+	 */
+	AsciiSequence set(int start, int end) {
+		while (end > start && buf.get(end - 1) == ' ') {
+			end--;
+		}
+		this.start = start;
+		this.end = end;
+		return this;
+	}
+	
+	public int length() {
+		return end - start;
+	}
+	
+	public char charAt(int index) {
+		if (index < 0 || index >= end - start) {
+			throw new IndexOutOfBoundsException();
+		}
+		return (char)(buf.get(start + index) & 0xFF);
+	}
+	
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || to > end - start || from > to) {
+			throw new IndexOutOfBoundsException();
+		}
+		AsciiSequence sub = new AsciiSequence(buf);
+		sub.start = start + from;
+		sub.end = start + to;
+		return sub;
+	}
+	
+	@Override
+	public String toString() {
+		char[] chars = new char[end - start];
+		for (int i=0; i<chars.length; i++) {
+			chars[i] = (char)(buf.get(start + i) & 0xFF);
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,472 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.RoutingNumberException;
+
+/**
+ * A read-only index of a routing directory, keyed by the packed routing
+ * number ({@link RoutingNumber#toInt()}).
+ * <p>
+ * The index is a compact binary file: a 16 byte header, the sorted keys as
+ * 4 byte ints, then one 64 byte record per key holding the status, state,
+ * city and name.  {@link #open(File)} memory-maps a prebuilt index, so
+ * startup does not re-parse the text directory.  The <code>find</code>
+ * methods binary search the keys in place and allocate nothing; the index
+ * they return is then used with the accessors.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class BankDirectory {
+	
+	private static final int MAGIC = 0x55534244; // "USBD"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+	
+	private static final int STATUS = 0;
+	private static final int STATE = 1;
+	private static final int STATE_LENGTH = 2;
+	private static final int CITY = STATE + STATE_LENGTH;
+	private static final int CITY_LENGTH = 25;
+	private static final int NAME = CITY + CITY_LENGTH;
+	private static final int NAME_LENGTH = 36;
+	private static final int RECORD = 64;
+	
+	private static final String CHARSET = "ISO-8859-1";
+	
+	private static final Comparator<DirectoryEntry> BY_ROUTING_NUMBER = new Comparator<DirectoryEntry>() {
+		public int compare(DirectoryEntry a, DirectoryEntry b) {
+			int x = a.routingNumber().toInt();
+			int y = b.routingNumber().toInt();
+			return x < y ? -1 : x == y ? 0 : 1;
+		}
+	};
+	
+	private final ByteBuffer buf;
+	private final int count;
+	private final int records;
+	
+	private BankDirectory(ByteBuffer buf) throws IOException {
+		if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC) {
+			throw new IOException("Not a bank directory index");
+		}
+		if (buf.getInt(4) != VERSION) {
+			throw new IOException("Unsupported bank directory index version " + buf.getInt(4));
+		}
+		this.buf = buf;
+		this.count = buf.getInt(8);
+		this.records = HEADER + count * 4;
+		if (buf.capacity() < records + count * RECORD) {
+			throw new IOException("Truncated bank directory index");
+		}
+	}
+	
+	/**
+	 * Memory-maps a prebuilt index, as written by {@link #write(File)} or
+	 * {@link #compile(File, DirectoryFormat, File)}.
+	 */
+	public static BankDirectory open(File index) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(index, "r");
+		try {
+			return new BankDirectory(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Parses a text directory, writes its index and maps the result.
+	 */
+	public static BankDirectory compile(File text, DirectoryFormat format, File index) throws IOException {
+		build(read(text, format)).write(index);
+		return open(index);
+	}
+	
+	/**
+	 * Reads every record of a text directory.
+	 */
+	public static List<DirectoryEntry> read(File text, DirectoryFormat format) throws IOException {
+		List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(text), CHARSET));
+		try {
+			int lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				try {
+					entries.add(format.parse(line));
+				} catch (RoutingNumberException e) {
+					throw new IOException(text + ", line " + lineNumber + ": " + e.getMessage());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return entries;
+	}
+	
+	/**
+	 * Builds an index in heap memory.  Where a routing number appears more
+	 * than once the last entry wins.
+	 */
+	public static BankDirectory build(Collection<DirectoryEntry> entries) {
+		DirectoryEntry[] sorted = entries.toArray(new DirectoryEntry[entries.size()]);
+		Arrays.sort(sorted, BY_ROUTING_NUMBER);
+		
+		int count = 0;
+		for (int i=0; i<sorted.length; i++) {
+			if (i + 1 < sorted.length && sorted[i + 1].routingNumber().equals(sorted[i].routingNumber())) {
+				continue;
+			}
+			sorted[count++] = sorted[i];
+		}
+		
+		ByteBuffer buf = ByteBuffer.allocate(HEADER + count * (4 + RECORD));
+		buf.putInt(0, MAGIC);
+		buf.putInt(4, VERSION);
+		buf.putInt(8, count);
+		int records = HEADER + count * 4;
+		for (int i=0; i<count; i++) {
+			DirectoryEntry entry = sorted[i];
+			buf.putInt(HEADER + i * 4, entry.routingNumber().toInt());
+			int record = records + i * RECORD;
+			buf.put(record + STATUS, (byte)entry.status());
+			put(buf, record + STATE, STATE_LENGTH, entry.state());
+			put(buf, record + CITY, CITY_LENGTH, entry.city());
+			put(buf, record + NAME, NAME_LENGTH, entry.name());
+		}
+		
+		try {
+			return new BankDirectory(buf);
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+	
+	private static void put(ByteBuffer buf, int offset, int length, String value) {
+		byte[] bytes;
+		try {
+			bytes = value.getBytes(CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+		for (int i=0; i<length; i++) {
+			buf.put(offset + i, i < bytes.length ? bytes[i] : (byte)' ');
+		}
+	}
+	
+	/**
+	 * Writes the index so that it can later be {@link #open(File) opened}.
+	 */
+	public void write(File index) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(index, "rw");
+		try {
+			raf.setLength(0);
+			ByteBuffer view = buf.duplicate();
+			view.clear();
+			view.limit(records + count * RECORD);
+			FileChannel channel = raf.getChannel();
+			while (view.hasRemaining()) {
+				channel.write(view);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+	
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Returns the index of the entry for the packed routing number, or -1.
+	 */
+	public int find(int value) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int key = buf.getInt(HEADER + (mid << 2));
+			if (key < value) {
+				low = mid + 1;
+			} else if (key > value) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+	
+	public int find(RoutingNumber routingNumber) {
+		return find(routingNumber.toInt());
+	}
+	
+	/**
+	 * Looks up routing number text without building a {@link RoutingNumber};
+	 * text that is not a valid routing number is never found.
+	 */
+	public int find(CharSequence digits) {
+		int value = RoutingNumber.parseInt(digits);
+		return value < 0 ? -1 : find(value);
+	}
+	
+	/**
+	 * Looks up the 9 ASCII digits starting at <code>off</code>.
+	 */
+	public int find(byte[] buf, int off) {
+		int value = RoutingNumber.parseInt(buf, off);
+		return value < 0 ? -1 : find(value);
+	}
+	
+	public boolean contains(RoutingNumber routingNumber) {
+		return find(routingNumber.toInt()) != -1;
+	}
+	
+	/**
+	 * The packed routing number of the entry at <code>index</code>; entries
+	 * are in ascending order.
+	 */
+	public int key(int index) {
+		checkIndex(index);
+		return buf.getInt(HEADER + (index << 2));
+	}
+	
+	public RoutingNumber routingNumber(int index) {
+		return RoutingNumber.fromDfiIdentity(key(index) / 10);
+	}
+	
+	public char status(int index) {
+		checkIndex(index);
+		return (char)(buf.get(records + index * RECORD + STATUS) & 0xFF);
+	}
+	
+	public StringBuilder appendState(int index, StringBuilder out) {
+		return append(index, STATE, STATE_LENGTH, out);
+	}
+	
+	public StringBuilder appendCity(int index, StringBuilder out) {
+		return append(index, CITY, CITY_LENGTH, out);
+	}
+	
+	public StringBuilder appendName(int index, StringBuilder out) {
+		return append(index, NAME, NAME_LENGTH, out);
+	}
+	
+	/**
+	 * Copies the entry at <code>index</code> out of the index.
+	 */
+	public DirectoryEntry entry(int index) {
+		StringBuilder text = new StringBuilder(NAME_LENGTH);
+		String name = appendName(index, text).toString();
+		text.setLength(0);
+		String city = appendCity(index, text).toString();
+		text.setLength(0);
+		String state = appendState(index, text).toString();
+		return new DirectoryEntry(routingNumber(index), name, city, state, status(index));
+	}
+	
+	/**
+	 * Returns the entry for the routing number, or null if it is not a participant.
+	 */
+	public DirectoryEntry lookup(RoutingNumber routingNumber) {
+		int index = find(routingNumber.toInt());
+		return index == -1 ? null : entry(index);
+	}
+	
+	/**
+	 * Returns a new directory with the delta applied.  Unchanged entries are
+	 * copied across from this index in bulk; nothing is re-parsed or
+	 * re-sorted apart from the delta itself.  Additions of numbers already
+	 * present replace them, and removals of absent numbers are ignored.
+	 */
+	public BankDirectory apply(DirectoryDelta delta) {
+		
+		List<DirectoryEntry> upserts = new ArrayList<DirectoryEntry>(delta.added().size() + delta.changed().size());
+		upserts.addAll(delta.added());
+		upserts.addAll(delta.changed());
+		BankDirectory changes = build(upserts);
+		
+		int[] removals = new int[delta.removed().size()];
+		for (int i=0; i<removals.length; i++) {
+			removals[i] = delta.removed().get(i).toInt();
+		}
+		Arrays.sort(removals);
+		
+		// first pass: how many entries the result holds
+		int resultCount = 0;
+		int i = 0;
+		int j = 0;
+		while (i < count || j < changes.count) {
+			int key = i < count ? key(i) : Integer.MAX_VALUE;
+			int change = j < changes.count ? changes.key(j) : Integer.MAX_VALUE;
+			if (change <= key) {
+				if (change == key) {
+					i++;
+				}
+				j++;
+				resultCount++;
+			} else {
+				if (Arrays.binarySearch(removals, key) < 0) {
+					resultCount++;
+				}
+				i++;
+			}
+		}
+		
+		ByteBuffer result = ByteBuffer.allocate(HEADER + resultCount * (4 + RECORD));
+		result.putInt(0, MAGIC);
+		result.putInt(4, VERSION);
+		result.putInt(8, resultCount);
+		int resultRecords = HEADER + resultCount * 4;
+		
+		// second pass: copy runs of untouched entries, splicing in the changes
+		int n = 0;
+		int runStart = 0;
+		i = 0;
+		j = 0;
+		while (i < count || j < changes.count) {
+			int key = i < count ? key(i) : Integer.MAX_VALUE;
+			int change = j < changes.count ? changes.key(j) : Integer.MAX_VALUE;
+			if (change <= key) {
+				n = copy(runStart, i, result, n, resultRecords);
+				copy(changes, j, j + 1, result, n, resultRecords);
+				n++;
+				j++;
+				if (change == key) {
+					i++;
+				}
+				runStart = i;
+			} else {
+				if (Arrays.binarySearch(removals, key) >= 0) {
+					n = copy(runStart, i, result, n, resultRecords);
+					runStart = i + 1;
+				}
+				i++;
+			}
+		}
+		copy(runStart, count, result, n, resultRecords);
+		
+		try {
+			return new BankDirectory(result);
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Copies this directory's entries [from, to) into the result at position
+	 * <code>n</code>, returning the result's next free position.
+	 */
+	private int copy(int from, int to, ByteBuffer result, int n, int resultRecords) {
+		return copy(this, from, to, result, n, resultRecords);
+	}
+	
+	private static int copy(BankDirectory source, int from, int to, ByteBuffer result, int n, int resultRecords) {
+		if (from >= to) {
+			return n;
+		}
+		ByteBuffer keys = source.buf.duplicate();
+		keys.limit(HEADER + to * 4).position(HEADER + from * 4);
+		ByteBuffer target = result.duplicate();
+		target.position(HEADER + n * 4);
+		target.put(keys);
+		
+		ByteBuffer records = source.buf.duplicate();
+		records.limit(source.records + to * RECORD).position(source.records + from * RECORD);
+		target.position(resultRecords + n * RECORD);
+		target.put(records);
+		
+		return n + (to - from);
+	}
+	
+	/**
+	 * True if the entry at <code>index</code> has exactly the same details as
+	 * the entry at <code>otherIndex</code> of the other directory.
+	 */
+	boolean sameRecord(int index, BankDirectory other, int otherIndex) {
+		checkIndex(index);
+		other.checkIndex(otherIndex);
+		int a = records + index * RECORD;
+		int b = other.records + otherIndex * RECORD;
+		for (int i=0; i<RECORD; i+=8) {
+			if (buf.getLong(a + i) != other.buf.getLong(b + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private StringBuilder append(int index, int field, int length, StringBuilder out) {
+		checkIndex(index);
+		int start = records + index * RECORD + field;
+		int end = start + length;
+		while (end > start && buf.get(end - 1) == ' ') {
+			end--;
+		}
+		for (int i=start; i<end; i++) {
+			out.append((char)(buf.get(i) & 0xFF));
+		}
+		return out;
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+		}
+	}
+}
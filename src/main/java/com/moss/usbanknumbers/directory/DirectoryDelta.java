@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * The differences between two versions of a routing directory: the
+ * participants added, the ones removed and the ones whose details changed.
+ */
+public final class DirectoryDelta {
+	
+	private final List<DirectoryEntry> added;
+	private final List<DirectoryEntry> changed;
+	private final List<RoutingNumber> removed;
+	
+	public DirectoryDelta(Collection<DirectoryEntry> added, Collection<DirectoryEntry> changed, Collection<RoutingNumber> removed) {
+		this.added = Collections.unmodifiableList(new ArrayList<DirectoryEntry>(added));
+		this.changed = Collections.unmodifiableList(new ArrayList<DirectoryEntry>(changed));
+		this.removed = Collections.unmodifiableList(new ArrayList<RoutingNumber>(removed));
+	}
+	
+	/**
+	 * Compares two indexes with a single merge over their sorted keys.
+	 */
+	public static DirectoryDelta between(BankDirectory from, BankDirectory to) {
+		List<DirectoryEntry> added = new ArrayList<DirectoryEntry>();
+		List<DirectoryEntry> changed = new ArrayList<DirectoryEntry>();
+		List<RoutingNumber> removed = new ArrayList<RoutingNumber>();
+		
+		int i = 0;
+		int j = 0;
+		while (i < from.size() || j < to.size()) {
+			int a = i < from.size() ? from.key(i) : Integer.MAX_VALUE;
+			int b = j < to.size() ? to.key(j) : Integer.MAX_VALUE;
+			if (a < b) {
+				removed.add(from.routingNumber(i++));
+			} else if (a > b) {
+				added.add(to.entry(j++));
+			} else {
+				if (!from.sameRecord(i, to, j)) {
+					changed.add(to.entry(j));
+				}
+				i++;
+				j++;
+			}
+		}
+		
+		return new DirectoryDelta(added, changed, removed);
+	}
+	
+	/**
+	 * Compares two text directories of the same format.
+	 */
+	public static DirectoryDelta between(File from, File to, DirectoryFormat format) throws IOException {
+		return between(BankDirectory.build(BankDirectory.read(from, format)), BankDirectory.build(BankDirectory.read(to, format)));
+	}
+	
+	public List<DirectoryEntry> added() {
+		return added;
+	}
+	
+	public List<DirectoryEntry> changed() {
+		return changed;
+	}
+	
+	public List<RoutingNumber> removed() {
+		return removed;
+	}
+	
+	public boolean isEmpty() {
+		return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+	}
+	
+	/**
+	 * Every routing number the delta touches.
+	 */
+	public List<RoutingNumber> routingNumbers() {
+		List<RoutingNumber> numbers = new ArrayList<RoutingNumber>(added.size() + changed.size() + removed.size());
+		for (DirectoryEntry entry : added) {
+			numbers.add(entry.routingNumber());
+		}
+		for (DirectoryEntry entry : changed) {
+			numbers.add(entry.routingNumber());
+		}
+		numbers.addAll(removed);
+		return numbers;
+	}
+	
+	@Override
+	public String toString() {
+		return "DirectoryDelta[added=" + added.size() + ", changed=" + changed.size() + ", removed=" + removed.size() + "]";
+	}
+}
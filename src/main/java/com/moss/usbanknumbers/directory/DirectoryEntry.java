@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * One participant from a Federal Reserve routing directory.
+ */
+public final class DirectoryEntry {
+	
+	private final RoutingNumber routingNumber;
+	private final String name;
+	private final String city;
+	private final String state;
+	private final char status;
+	
+	public DirectoryEntry(RoutingNumber routingNumber, String name, String city, String state, char status) {
+		if (routingNumber == null) {
+			throw new NullPointerException("Null routing number");
+		}
+		this.routingNumber = routingNumber;
+		this.name = name == null ? "" : name;
+		this.city = city == null ? "" : city;
+		this.state = state == null ? "" : state;
+		this.status = status;
+	}
+	
+	public RoutingNumber routingNumber() {
+		return routingNumber;
+	}
+	
+	public String name() {
+		return name;
+	}
+	
+	public String city() {
+		return city;
+	}
+	
+	public String state() {
+		return state;
+	}
+	
+	/**
+	 * The directory's status code: the institution status code of a FedACH
+	 * directory, or the funds transfer status (Y/N) of a Fedwire directory.
+	 */
+	public char status() {
+		return status;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof DirectoryEntry)) {
+			return false;
+		}
+		DirectoryEntry other = (DirectoryEntry)o;
+		return routingNumber.equals(other.routingNumber)
+			&& name.equals(other.name)
+			&& city.equals(other.city)
+			&& state.equals(other.state)
+			&& status == other.status;
+	}
+	
+	@Override
+	public int hashCode() {
+		return routingNumber.hashCode() * 31 + name.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return routingNumber + " " + name + ", " + city + " " + state + " (" + status + ")";
+	}
+}
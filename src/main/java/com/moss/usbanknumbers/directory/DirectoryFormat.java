@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.RoutingNumberException;
+
+/**
+ * The fixed-width text formats the Federal Reserve publishes its routing
+ * directories in.  Columns are given as zero-based [start, end) offsets.
+ */
+public enum DirectoryFormat {
+	
+	/**
+	 * The FedACH participant directory: 155 character records.
+	 */
+	FEDACH(35, 71, 107, 127, 127, 129, 148),
+	
+	/**
+	 * The Fedwire funds service directory: 101 character records.
+	 */
+	FEDWIRE(27, 63, 65, 90, 63, 65, 90);
+	
+	private final int nameStart;
+	private final int nameEnd;
+	private final int cityStart;
+	private final int cityEnd;
+	private final int stateStart;
+	private final int stateEnd;
+	private final int status;
+	
+	DirectoryFormat(int nameStart, int nameEnd, int cityStart, int cityEnd, int stateStart, int stateEnd, int status) {
+		this.nameStart = nameStart;
+		this.nameEnd = nameEnd;
+		this.cityStart = cityStart;
+		this.cityEnd = cityEnd;
+		this.stateStart = stateStart;
+		this.stateEnd = stateEnd;
+		this.status = status;
+	}
+	
+	/**
+	 * Parses one record.  Short lines are treated as if padded with spaces.
+	 */
+	public DirectoryEntry parse(String line) throws RoutingNumberException {
+		RoutingNumber routingNumber = RoutingNumber.valueOf(field(line, 0, 9));
+		return new DirectoryEntry(
+			routingNumber,
+			field(line, nameStart, nameEnd),
+			field(line, cityStart, cityEnd),
+			field(line, stateStart, stateEnd),
+			status < line.length() ? line.charAt(status) : ' '
+		);
+	}
+	
+	private static String field(String line, int start, int end) {
+		if (start >= line.length()) {
+			return "";
+		}
+		return line.substring(start, Math.min(end, line.length())).trim();
+	}
+}
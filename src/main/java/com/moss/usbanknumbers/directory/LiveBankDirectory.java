@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * A routing directory that can be updated while it is being read.
+ * <p>
+ * Each version is an immutable {@link DirectorySnapshot}.  Updates build the
+ * next {@link BankDirectory} off to the side and then publish it with a
+ * single reference swap, so readers never lock and never see a half-applied
+ * update; a reader that needs several lookups to agree should take one
+ * {@link #snapshot()} and use it throughout.  Updates are serialized
+ * against each other.
+ */
+public final class LiveBankDirectory {
+	
+	private final AtomicReference<DirectorySnapshot> current;
+	private final CopyOnWriteArrayList<DirectoryListener> listeners = new CopyOnWriteArrayList<DirectoryListener>();
+	
+	public LiveBankDirectory(BankDirectory initial) {
+		this.current = new AtomicReference<DirectorySnapshot>(new DirectorySnapshot(1, initial));
+	}
+	
+	public DirectorySnapshot snapshot() {
+		return current.get();
+	}
+	
+	/**
+	 * The directory of the current snapshot.
+	 */
+	public BankDirectory directory() {
+		return current.get().directory();
+	}
+	
+	public boolean contains(RoutingNumber routingNumber) {
+		return current.get().directory().contains(routingNumber);
+	}
+	
+	public DirectoryEntry lookup(RoutingNumber routingNumber) {
+		return current.get().directory().lookup(routingNumber);
+	}
+	
+	/**
+	 * Publishes a whole new directory, such as a freshly mapped index.
+	 */
+	public synchronized DirectorySnapshot replace(BankDirectory next) {
+		DirectorySnapshot previous = current.get();
+		return publish(previous, next, DirectoryDelta.between(previous.directory(), next));
+	}
+	
+	/**
+	 * Publishes the current directory with the delta applied.
+	 */
+	public synchronized DirectorySnapshot apply(DirectoryDelta delta) {
+		DirectorySnapshot previous = current.get();
+		if (delta.isEmpty()) {
+			return previous;
+		}
+		return publish(previous, previous.directory().apply(delta), delta);
+	}
+	
+	private DirectorySnapshot publish(DirectorySnapshot previous, BankDirectory next, DirectoryDelta delta) {
+		DirectorySnapshot snapshot = new DirectorySnapshot(previous.version() + 1, next);
+		current.set(snapshot);
+		for (DirectoryListener listener : listeners) {
+			listener.directoryChanged(previous, snapshot, delta);
+		}
+		return snapshot;
+	}
+	
+	public void addListener(DirectoryListener listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeListener(DirectoryListener listener) {
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.json;
+
+import java.io.IOException;
+
+import com.moss.usbanknumbers.BankNumberError;
+
+/**
+ * Thrown when JSON input is malformed, or when a bank number in it is
+ * invalid, in which case {@link #error()} says why.
+ */
+@SuppressWarnings("serial")
+public class BankNumberJsonException extends IOException {
+	
+	private final BankNumberError error;
+	private final long offset;
+	
+	public BankNumberJsonException(String message, BankNumberError error, long offset) {
+		super(message + " at offset " + offset);
+		this.error = error;
+		this.offset = offset;
+	}
+	
+	/**
+	 * Why the bank number was rejected, or null if the JSON itself was
+	 * malformed.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+	
+	/**
+	 * The byte offset in the input where the problem was found.
+	 */
+	public long offset() {
+		return offset;
+	}
+}
@@ -0,0 +1,576 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.moss.usbanknumbers.AbaNumber;
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.BankNumberError;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.ParseResult;
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * Reads a UTF-8 JSON document from a stream, one token at a time.  Bank
+ * numbers are read from JSON strings straight into their types: the string
+ * is decoded into a reused buffer and validated there with the types'
+ * <code>tryParse</code> methods, so no intermediate String is made.
+ * <p>
+ * A batch of objects streams like this, with constant memory:
+ * <pre>
+ * String[] fields = {"routing", "account", "amount"};
+ * reader.beginArray();
+ * while (reader.hasNext()) {
+ * 	reader.beginObject();
+ * 	while (reader.hasNext()) {
+ * 		switch (reader.nextName(fields)) {
+ * 		case 0: routing = reader.nextRoutingNumber(); break;
+ * 		case 1: account = reader.nextAccountNumber(); break;
+ * 		case 2: amount = reader.nextLong(); break;
+ * 		default: reader.skipValue();
+ * 		}
+ * 	}
+ * 	reader.endObject();
+ * }
+ * reader.endArray();
+ * </pre>
+ * The bank number methods return null for a JSON null.  Malformed input and
+ * invalid numbers are both reported with a {@link BankNumberJsonException}.
+ */
+public final class BankNumberJsonReader implements Closeable {
+	
+	private final InputStream in;
+	private final byte[] buffer = new byte[8192];
+	private int pos;
+	private int limit;
+	private long bufferStart;
+	private boolean eof;
+	
+	private int[] stack = new int[32];
+	private int depth;
+	
+	private JsonToken peeked;
+	private boolean literal;
+	
+	private char[] chars = new char[64];
+	private int charCount;
+	private final CharSequence text = new CharSequence() {
+		public int length() {
+			return charCount;
+		}
+		public char charAt(int index) {
+			return chars[index];
+		}
+		public CharSequence subSequence(int start, int end) {
+			return new String(chars, start, end - start);
+		}
+		@Override
+		public String toString() {
+			return new String(chars, 0, charCount);
+		}
+	};
+	
+	public BankNumberJsonReader(InputStream in) {
+		this.in = in;
+		stack[depth++] = JsonScope.EMPTY_DOCUMENT;
+	}
+	
+	public JsonToken peek() throws IOException {
+		if (peeked == null) {
+			peeked = doPeek();
+		}
+		return peeked;
+	}
+	
+	private JsonToken doPeek() throws IOException {
+		int top = stack[depth - 1];
+		if (top == JsonScope.EMPTY_ARRAY) {
+			stack[depth - 1] = JsonScope.NONEMPTY_ARRAY;
+		}
+		else if (top == JsonScope.NONEMPTY_ARRAY) {
+			int c = nextNonWhitespace();
+			if (c == ']') {
+				return JsonToken.END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntax("Expected ',' or ']'");
+			}
+		}
+		else if (top == JsonScope.EMPTY_OBJECT || top == JsonScope.NONEMPTY_OBJECT) {
+			stack[depth - 1] = JsonScope.DANGLING_NAME;
+			if (top == JsonScope.NONEMPTY_OBJECT) {
+				int c = nextNonWhitespace();
+				if (c == '}') {
+					return JsonToken.END_OBJECT;
+				}
+				if (c != ',') {
+					throw syntax("Expected ',' or '}'");
+				}
+			}
+			int c = nextNonWhitespace();
+			if (c == '"') {
+				return JsonToken.NAME;
+			}
+			if (c == '}' && top == JsonScope.EMPTY_OBJECT) {
+				return JsonToken.END_OBJECT;
+			}
+			throw syntax("Expected a name");
+		}
+		else if (top == JsonScope.DANGLING_NAME) {
+			stack[depth - 1] = JsonScope.NONEMPTY_OBJECT;
+			if (nextNonWhitespace() != ':') {
+				throw syntax("Expected ':'");
+			}
+		}
+		else if (top == JsonScope.EMPTY_DOCUMENT) {
+			stack[depth - 1] = JsonScope.NONEMPTY_DOCUMENT;
+		}
+		else if (top == JsonScope.NONEMPTY_DOCUMENT) {
+			if (nextNonWhitespace() != -1) {
+				throw syntax("Expected the end of the document");
+			}
+			return JsonToken.END_DOCUMENT;
+		}
+		
+		int c = nextNonWhitespace();
+		switch (c) {
+		case ']':
+			if (top == JsonScope.EMPTY_ARRAY) {
+				return JsonToken.END_ARRAY;
+			}
+			break;
+		case '[':
+			return JsonToken.BEGIN_ARRAY;
+		case '{':
+			return JsonToken.BEGIN_OBJECT;
+		case '"':
+			return JsonToken.STRING;
+		case 't':
+			expectLiteral("rue");
+			literal = true;
+			return JsonToken.BOOLEAN;
+		case 'f':
+			expectLiteral("alse");
+			literal = false;
+			return JsonToken.BOOLEAN;
+		case 'n':
+			expectLiteral("ull");
+			return JsonToken.NULL;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				pos--;
+				return JsonToken.NUMBER;
+			}
+		}
+		throw syntax(c == -1 ? "Unexpected end of input" : "Unexpected character");
+	}
+	
+	private void expectLiteral(String rest) throws IOException {
+		for (int i=0; i<rest.length(); i++) {
+			if (read() != rest.charAt(i)) {
+				throw syntax("Unexpected character");
+			}
+		}
+	}
+	
+	private void expect(JsonToken token) throws IOException {
+		if (peek() != token) {
+			throw syntax("Expected " + token + " but was " + peeked);
+		}
+		peeked = null;
+	}
+	
+	private void push(int scope) {
+		if (depth == stack.length) {
+			int[] grown = new int[depth * 2];
+			System.arraycopy(stack, 0, grown, 0, depth);
+			stack = grown;
+		}
+		stack[depth++] = scope;
+	}
+	
+	public void beginArray() throws IOException {
+		expect(JsonToken.BEGIN_ARRAY);
+		push(JsonScope.EMPTY_ARRAY);
+	}
+	
+	public void endArray() throws IOException {
+		expect(JsonToken.END_ARRAY);
+		depth--;
+	}
+	
+	public void beginObject() throws IOException {
+		expect(JsonToken.BEGIN_OBJECT);
+		push(JsonScope.EMPTY_OBJECT);
+	}
+	
+	public void endObject() throws IOException {
+		expect(JsonToken.END_OBJECT);
+		depth--;
+	}
+	
+	/**
+	 * Returns true if the current array or object has another element.
+	 */
+	public boolean hasNext() throws IOException {
+		JsonToken token = peek();
+		return token != JsonToken.END_ARRAY && token != JsonToken.END_OBJECT && token != JsonToken.END_DOCUMENT;
+	}
+	
+	public String nextName() throws IOException {
+		expect(JsonToken.NAME);
+		readString();
+		return text.toString();
+	}
+	
+	/**
+	 * Reads a name and returns its index in <code>names</code>, or -1 if it
+	 * isn't there, without making a String of it.
+	 */
+	public int nextName(String[] names) throws IOException {
+		expect(JsonToken.NAME);
+		readString();
+		for (int i=0; i<names.length; i++) {
+			String name = names[i];
+			if (name.length() == charCount) {
+				int j = 0;
+				while (j < charCount && name.charAt(j) == chars[j]) {
+					j++;
+				}
+				if (j == charCount) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	public String nextString() throws IOException {
+		expect(JsonToken.STRING);
+		readString();
+		return text.toString();
+	}
+	
+	public boolean nextBoolean() throws IOException {
+		expect(JsonToken.BOOLEAN);
+		return literal;
+	}
+	
+	public void nextNull() throws IOException {
+		expect(JsonToken.NULL);
+	}
+	
+	/**
+	 * Reads an integer, such as an amount in cents.
+	 */
+	public long nextLong() throws IOException {
+		expect(JsonToken.NUMBER);
+		int c = read();
+		boolean negative = c == '-';
+		if (negative) {
+			c = read();
+		}
+		if (c < '0' || c > '9') {
+			throw syntax("Expected a digit");
+		}
+		long value = 0;
+		while (c >= '0' && c <= '9') {
+			if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+				throw syntax("Number out of range");
+			}
+			value = value * 10 + (c - '0');
+			c = read();
+		}
+		if (c == '.' || c == 'e' || c == 'E') {
+			throw syntax("Expected an integer");
+		}
+		if (c != -1) {
+			pos--;
+		}
+		return negative ? -value : value;
+	}
+	
+	public RoutingNumber nextRoutingNumber() throws IOException {
+		if (!nextBankNumber()) {
+			return null;
+		}
+		return valid(RoutingNumber.tryParse(text), "routing number");
+	}
+	
+	public AccountNumber nextAccountNumber() throws IOException {
+		if (!nextBankNumber()) {
+			return null;
+		}
+		return valid(AccountNumber.tryParse(text), "account number");
+	}
+	
+	public CheckNumber nextCheckNumber() throws IOException {
+		if (!nextBankNumber()) {
+			return null;
+		}
+		return valid(CheckNumber.tryParse(text), "check number");
+	}
+	
+	public AbaNumber nextAbaNumber() throws IOException {
+		if (!nextBankNumber()) {
+			return null;
+		}
+		return valid(AbaNumber.tryParse(text), "aba number");
+	}
+	
+	public FractionalRoutingNumber nextFractionalRoutingNumber() throws IOException {
+		if (!nextBankNumber()) {
+			return null;
+		}
+		return valid(FractionalRoutingNumber.tryParse(text), "fractional routing number");
+	}
+	
+	/**
+	 * Reads a string into the buffer, returning false for a null instead.
+	 */
+	private boolean nextBankNumber() throws IOException {
+		if (peek() == JsonToken.NULL) {
+			peeked = null;
+			return false;
+		}
+		expect(JsonToken.STRING);
+		readString();
+		return true;
+	}
+	
+	private <T> T valid(ParseResult<T> result, String what) throws BankNumberJsonException {
+		if (!result.isValid()) {
+			throw new BankNumberJsonException("Invalid " + what + " (" + result.error() + ")", result.error(), bufferStart + pos);
+		}
+		return result.value();
+	}
+	
+	/**
+	 * Skips the next value, including everything in it if it is an array or
+	 * object.
+	 */
+	public void skipValue() throws IOException {
+		int open = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_ARRAY:
+				beginArray();
+				open++;
+				break;
+			case BEGIN_OBJECT:
+				beginObject();
+				open++;
+				break;
+			case END_ARRAY:
+				endArray();
+				open--;
+				break;
+			case END_OBJECT:
+				endObject();
+				open--;
+				break;
+			case NAME:
+			case STRING:
+				peeked = null;
+				readString();
+				break;
+			case NUMBER:
+				peeked = null;
+				skipNumber();
+				break;
+			case END_DOCUMENT:
+				throw syntax("Unexpected end of input");
+			default:
+				peeked = null;
+			}
+		} while (open > 0);
+	}
+	
+	private void skipNumber() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E');
+		if (c != -1) {
+			pos--;
+		}
+	}
+	
+	/**
+	 * Decodes the rest of a string, its opening quote already read, into
+	 * the char buffer.
+	 */
+	private void readString() throws IOException {
+		charCount = 0;
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				c = readEscape();
+			}
+			else if (c >= 0x80) {
+				c = readMultibyte(c);
+			}
+			else if (c < 0x20) {
+				throw syntax(c == -1 ? "Unterminated string" : "Control character in string");
+			}
+			if (c > 0xFFFF) {
+				append((char)(0xD800 + ((c - 0x10000) >>> 10)));
+				append((char)(0xDC00 + (c & 0x3FF)));
+			}
+			else {
+				append((char)c);
+			}
+		}
+	}
+	
+	private void append(char c) {
+		if (charCount == chars.length) {
+			char[] grown = new char[charCount * 2];
+			System.arraycopy(chars, 0, grown, 0, charCount);
+			chars = grown;
+		}
+		chars[charCount++] = c;
+	}
+	
+	private int readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			return c;
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int value = 0;
+			for (int i=0; i<4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw syntax("Bad unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			return value;
+		default:
+			throw syntax("Bad escape");
+		}
+	}
+	
+	private int readMultibyte(int first) throws IOException {
+		int count;
+		int value;
+		if ((first & 0xE0) == 0xC0) {
+			count = 1;
+			value = first & 0x1F;
+		}
+		else if ((first & 0xF0) == 0xE0) {
+			count = 2;
+			value = first & 0x0F;
+		}
+		else if ((first & 0xF8) == 0xF0) {
+			count = 3;
+			value = first & 0x07;
+		}
+		else {
+			throw syntax("Bad UTF-8");
+		}
+		for (int i=0; i<count; i++) {
+			int c = read();
+			if ((c & 0xC0) != 0x80) {
+				throw syntax("Bad UTF-8");
+			}
+			value = (value << 6) | (c & 0x3F);
+		}
+		return value;
+	}
+	
+	private int nextNonWhitespace() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+		return c;
+	}
+	
+	/**
+	 * Returns the next byte, or -1 at the end of input.  A byte read can be
+	 * pushed back by decrementing <code>pos</code>.
+	 */
+	private int read() throws IOException {
+		if (pos == limit) {
+			if (eof) {
+				return -1;
+			}
+			int n;
+			do {
+				n = in.read(buffer, 0, buffer.length);
+			} while (n == 0);
+			if (n < 0) {
+				eof = true;
+				return -1;
+			}
+			bufferStart += limit;
+			pos = 0;
+			limit = n;
+		}
+		return buffer[pos++] & 0xFF;
+	}
+	
+	private BankNumberJsonException syntax(String message) {
+		return new BankNumberJsonException(message, null, bufferStart + pos);
+	}
+	
+	public void close() throws IOException {
+		in.close();
+	}
+}
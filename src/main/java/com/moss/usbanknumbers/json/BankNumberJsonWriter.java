@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.moss.usbanknumbers.AbaNumber;
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * Writes a UTF-8 JSON document to a stream.  Bank numbers are written as
+ * JSON strings, with the digits of routing, account and check numbers
+ * rendered straight into the output buffer.  A null number is written as
+ * a JSON null.
+ * <p>
+ * Misuse, such as a value where a name is expected, throws an
+ * IllegalStateException.
+ */
+public final class BankNumberJsonWriter implements Closeable, Flushable {
+	
+	private final OutputStream out;
+	private final byte[] buffer = new byte[8192];
+	private int count;
+	
+	private int[] stack = new int[32];
+	private int depth;
+	
+	public BankNumberJsonWriter(OutputStream out) {
+		this.out = out;
+		stack[depth++] = JsonScope.EMPTY_DOCUMENT;
+	}
+	
+	public BankNumberJsonWriter beginArray() throws IOException {
+		beforeValue();
+		push(JsonScope.EMPTY_ARRAY);
+		put('[');
+		return this;
+	}
+	
+	public BankNumberJsonWriter endArray() throws IOException {
+		return close(JsonScope.EMPTY_ARRAY, JsonScope.NONEMPTY_ARRAY, ']');
+	}
+	
+	public BankNumberJsonWriter beginObject() throws IOException {
+		beforeValue();
+		push(JsonScope.EMPTY_OBJECT);
+		put('{');
+		return this;
+	}
+	
+	public BankNumberJsonWriter endObject() throws IOException {
+		return close(JsonScope.EMPTY_OBJECT, JsonScope.NONEMPTY_OBJECT, '}');
+	}
+	
+	public BankNumberJsonWriter name(String name) throws IOException {
+		int top = stack[depth - 1];
+		if (top == JsonScope.NONEMPTY_OBJECT) {
+			put(',');
+		}
+		else if (top != JsonScope.EMPTY_OBJECT) {
+			throw new IllegalStateException("A name must be inside an object, before its value");
+		}
+		stack[depth - 1] = JsonScope.DANGLING_NAME;
+		string(name);
+		put(':');
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(String value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		beforeValue();
+		string(value);
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(long value) throws IOException {
+		beforeValue();
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				ascii(Long.toString(value));
+				return this;
+			}
+			put('-');
+			value = -value;
+		}
+		int length = 1;
+		for (long v=value; v>=10; v/=10) {
+			length++;
+		}
+		digits(value, length);
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(boolean value) throws IOException {
+		beforeValue();
+		ascii(value ? "true" : "false");
+		return this;
+	}
+	
+	public BankNumberJsonWriter nullValue() throws IOException {
+		beforeValue();
+		ascii("null");
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(RoutingNumber number) throws IOException {
+		if (number == null) {
+			return nullValue();
+		}
+		beforeValue();
+		put('"');
+		digits(number.toInt(), 9);
+		put('"');
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(AccountNumber number) throws IOException {
+		if (number == null) {
+			return nullValue();
+		}
+		beforeValue();
+		put('"');
+		digits(number.longValue(), number.length());
+		put('"');
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(CheckNumber number) throws IOException {
+		if (number == null) {
+			return nullValue();
+		}
+		beforeValue();
+		put('"');
+		digits(number.longValue(), number.length());
+		put('"');
+		return this;
+	}
+	
+	public BankNumberJsonWriter value(AbaNumber number) throws IOException {
+		return value(number == null ? null : number.toString());
+	}
+	
+	public BankNumberJsonWriter value(FractionalRoutingNumber number) throws IOException {
+		return value(number == null ? null : number.toString());
+	}
+	
+	public void flush() throws IOException {
+		out.write(buffer, 0, count);
+		count = 0;
+		out.flush();
+	}
+	
+	/**
+	 * Flushes and closes the stream.
+	 */
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+	
+	private void beforeValue() throws IOException {
+		int top = stack[depth - 1];
+		if (top == JsonScope.NONEMPTY_ARRAY) {
+			put(',');
+		}
+		else if (top == JsonScope.EMPTY_ARRAY) {
+			stack[depth - 1] = JsonScope.NONEMPTY_ARRAY;
+		}
+		else if (top == JsonScope.DANGLING_NAME) {
+			stack[depth - 1] = JsonScope.NONEMPTY_OBJECT;
+		}
+		else if (top == JsonScope.EMPTY_DOCUMENT) {
+			stack[depth - 1] = JsonScope.NONEMPTY_DOCUMENT;
+		}
+		else if (top == JsonScope.NONEMPTY_DOCUMENT) {
+			throw new IllegalStateException("A document has only one top level value");
+		}
+		else {
+			throw new IllegalStateException("A value in an object needs a name");
+		}
+	}
+	
+	private void push(int scope) {
+		if (depth == stack.length) {
+			int[] grown = new int[depth * 2];
+			System.arraycopy(stack, 0, grown, 0, depth);
+			stack = grown;
+		}
+		stack[depth++] = scope;
+	}
+	
+	private BankNumberJsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+		int top = stack[depth - 1];
+		if (top != empty && top != nonempty) {
+			throw new IllegalStateException("Nothing to close with '" + bracket + "'");
+		}
+		depth--;
+		put(bracket);
+		return this;
+	}
+	
+	/**
+	 * Writes <code>length</code> digits of the value, with leading zeros.
+	 */
+	private void digits(long value, int length) throws IOException {
+		ensure(length);
+		for (int i=count+length-1; i>=count; i--) {
+			buffer[i] = (byte)('0' + value % 10);
+			value /= 10;
+		}
+		count += length;
+	}
+	
+	private void string(String s) throws IOException {
+		put('"');
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				put('\\');
+				put(c);
+			}
+			else if (c < 0x20) {
+				ensure(6);
+				ascii("\\u00");
+				put(Character.forDigit(c >>> 4, 16));
+				put(Character.forDigit(c & 0xF, 16));
+			}
+			else if (c < 0x80) {
+				put(c);
+			}
+			else if (c < 0x800) {
+				put((char)(0xC0 | (c >>> 6)));
+				put((char)(0x80 | (c & 0x3F)));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int code = Character.toCodePoint(c, s.charAt(++i));
+				put((char)(0xF0 | (code >>> 18)));
+				put((char)(0x80 | ((code >>> 12) & 0x3F)));
+				put((char)(0x80 | ((code >>> 6) & 0x3F)));
+				put((char)(0x80 | (code & 0x3F)));
+			}
+			else {
+				put((char)(0xE0 | (c >>> 12)));
+				put((char)(0x80 | ((c >>> 6) & 0x3F)));
+				put((char)(0x80 | (c & 0x3F)));
+			}
+		}
+		put('"');
+	}
+	
+	private void ascii(String s) throws IOException {
+		for (int i=0; i<s.length(); i++) {
+			put(s.charAt(i));
+		}
+	}
+	
+	/**
+	 * Writes the low byte of c.
+	 */
+	private void put(char c) throws IOException {
+		ensure(1);
+		buffer[count++] = (byte)c;
+	}
+	
+	private void ensure(int bytes) throws IOException {
+		if (count + bytes > buffer.length) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
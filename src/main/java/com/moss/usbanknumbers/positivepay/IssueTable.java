@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import com.moss.usbanknumbers.CheckKeys;
+
+/**
+ * An open-addressing hash table of one partition's issued checks, in
+ * parallel primitive arrays, with linear probing.  Never more than half full.
+ */
+final class IssueTable {
+	
+	static final byte EMPTY = 0;
+	static final byte ISSUED = 1;
+	static final byte PRESENTED = 2;
+	
+	private static final int MAX_CAPACITY = 1 << 30;
+	
+	/**
+	 * The bytes taken by one slot across the parallel arrays.
+	 */
+	private static final int SLOT_BYTES = 4 + 8 + 8 + 8 + 1;
+	
+	private final int mask;
+	private final int[] routings;
+	private final long[] accounts;
+	private final long[] checks;
+	private final long[] amounts;
+	private final byte[] states;
+	
+	IssueTable(long expected) {
+		if (capacity(expected) > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Too many issued checks in one partition: " + expected);
+		}
+		int capacity = (int)capacity(expected);
+		mask = capacity - 1;
+		routings = new int[capacity];
+		accounts = new long[capacity];
+		checks = new long[capacity];
+		amounts = new long[capacity];
+		states = new byte[capacity];
+	}
+	
+	private static long capacity(long expected) {
+		long capacity = 16;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+	
+	/**
+	 * The bytes a table for the given number of checks would take.
+	 */
+	static long bytes(long expected) {
+		return capacity(expected) * SLOT_BYTES;
+	}
+	
+	int capacity() {
+		return mask + 1;
+	}
+	
+	/**
+	 * Returns the slot holding the check, or the empty slot where it belongs.
+	 * Probing starts from a rehash of the key hash, since the partition the
+	 * table holds has fixed some of the key hash's bits.
+	 */
+	int slot(long hash, int routing, long account, long check) {
+		for (int i=(int)CheckKeys.rehash(hash) & mask; ; i=(i + 1) & mask) {
+			if (states[i] == EMPTY || (checks[i] == check && accounts[i] == account && routings[i] == routing)) {
+				return i;
+			}
+		}
+	}
+	
+	void put(int slot, int routing, long account, long check, long amount) {
+		routings[slot] = routing;
+		accounts[slot] = account;
+		checks[slot] = check;
+		amounts[slot] = amount;
+		states[slot] = ISSUED;
+	}
+	
+	byte state(int slot) {
+		return states[slot];
+	}
+	
+	void setState(int slot, byte state) {
+		states[slot] = state;
+	}
+	
+	int routing(int slot) {
+		return routings[slot];
+	}
+	
+	long account(int slot) {
+		return accounts[slot];
+	}
+	
+	long check(int slot) {
+		return checks[slot];
+	}
+	
+	long amount(int slot) {
+		return amounts[slot];
+	}
+}
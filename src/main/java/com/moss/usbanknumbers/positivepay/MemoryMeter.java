@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes a {@link PositivePay} holds in record buffers and hash
+ * tables, and the most it has held at once.
+ */
+final class MemoryMeter {
+	
+	private final AtomicLong used = new AtomicLong();
+	private final AtomicLong peak = new AtomicLong();
+	
+	void allocate(long bytes) {
+		long now = used.addAndGet(bytes);
+		long high = peak.get();
+		while (now > high && !peak.compareAndSet(high, now)) {
+			high = peak.get();
+		}
+	}
+	
+	void free(long bytes) {
+		used.addAndGet(-bytes);
+	}
+	
+	long used() {
+		return used.get();
+	}
+	
+	long peak() {
+		return peak.get();
+	}
+}
@@ -0,0 +1,537 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.AccountNumberException;
+import com.moss.usbanknumbers.CheckKeys;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.CheckNumberException;
+import com.moss.usbanknumbers.ParseResult;
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.RoutingNumberException;
+import com.moss.usbanknumbers.x9.X9Exception;
+import com.moss.usbanknumbers.x9.X9File;
+import com.moss.usbanknumbers.x9.X9Item;
+import com.moss.usbanknumbers.x9.X9ItemHandler;
+
+/**
+ * Matches issued checks against presented items, keyed on routing, account
+ * and check number.
+ * <p>
+ * Both sides are fed in with {@link #issued} and {@link #presented} (or read
+ * from an issue file and an X9 cash letter), and are split by key hash into
+ * partitions as they arrive.  {@link #match} then takes the partitions one
+ * at a time, possibly in parallel: it loads the issued checks into a
+ * primitive hash table, streams the presented items past it in the order
+ * they arrived, and reports every item.
+ * <p>
+ * The memory budget covers the buffered records and the hash tables
+ * together.  Each partition gets an equal share: its two sides buffer
+ * records in it as they arrive, spilling the rest to temporary files, and
+ * matching reuses it for the partition's hash table, spilling what is still
+ * buffered first if both won't fit.  A hash table takes 60 to 120 bytes per
+ * issued check; a partition whose table won't fit in its share is split
+ * again, on other bits of the key hash, into sub-partitions that are
+ * matched one after another.  Choosing enough partitions up front avoids
+ * the extra passes over the spill files.
+ * <p>
+ * Checks are matched by value, so "0042" and "42" are the same check, and
+ * accounts as written, leading zeros included.  Amounts are in cents.
+ */
+public final class PositivePay implements Closeable {
+	
+	/**
+	 * The amount reported for the side a check is missing from.
+	 */
+	public static final long NO_AMOUNT = -1;
+	
+	/**
+	 * A partition too big for its hash table budget is split at most this
+	 * many times, each time into up to 2^SPLIT_BITS pieces.
+	 */
+	private static final int MAX_SPLITS = 2;
+	private static final int SPLIT_BITS = 10;
+	private static final int MAX_FANOUT = 1 << SPLIT_BITS;
+	
+	private final SpillBuffer[] issued;
+	private final SpillBuffer[] presented;
+	private final File spillDirectory;
+	private final long partitionBudget;
+	private final MemoryMeter meter = new MemoryMeter();
+	
+	/**
+	 * @param partitions the number of partitions to split the checks into
+	 * @param memoryBudget the most bytes of buffered records and hash tables
+	 * to hold in memory at once
+	 * @param spillDirectory where to put spill files, or null for the default
+	 * temporary directory
+	 */
+	public PositivePay(int partitions, long memoryBudget, File spillDirectory) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("partitions must be positive");
+		}
+		long share = memoryBudget / partitions;
+		if (share / 2 < SpillBuffer.RECORD_BYTES) {
+			throw new IllegalArgumentException("A budget of " + memoryBudget + " bytes is too small for " + partitions + " partitions");
+		}
+		this.spillDirectory = spillDirectory;
+		this.partitionBudget = share;
+		int capacity = records(share / 2);
+		
+		issued = new SpillBuffer[partitions];
+		presented = new SpillBuffer[partitions];
+		for (int i=0; i<partitions; i++) {
+			issued[i] = new SpillBuffer(spillDirectory, capacity, meter);
+			presented[i] = new SpillBuffer(spillDirectory, capacity, meter);
+		}
+	}
+	
+	/**
+	 * The most bytes of buffered records and hash tables held at once so far.
+	 */
+	long peakMemory() {
+		return meter.peak();
+	}
+	
+	public void issued(RoutingNumber routing, AccountNumber account, CheckNumber check, long amount) throws IOException {
+		add(issued, routing, account, check, amount);
+	}
+	
+	public void presented(RoutingNumber routing, AccountNumber account, CheckNumber check, long amount) throws IOException {
+		add(presented, routing, account, check, amount);
+	}
+	
+	private static void add(SpillBuffer[] side, RoutingNumber routing, AccountNumber account, CheckNumber check, long amount) throws IOException {
+		if (amount < 0) {
+			throw new IllegalArgumentException("Negative amount: " + amount);
+		}
+		int routingValue = routing.toInt();
+		long accountValue = account.toLong();
+		long checkValue = check.longValue();
+		long hash = CheckKeys.hash(routingValue, accountValue, checkValue);
+		SpillBuffer partition = side[partition(hash, side.length)];
+		synchronized (partition) {
+			partition.add(routingValue, accountValue, checkValue, amount);
+		}
+	}
+	
+	/**
+	 * Reads an issue file: one check per line, as routing number, account
+	 * number, check number and amount separated by the delimiter.  The amount
+	 * is in cents, or in dollars if it has a decimal point.  Blank lines are
+	 * skipped.
+	 *
+	 * @return the number of checks read
+	 */
+	public long readIssueFile(File file, char delimiter) throws IOException, PositivePayException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "US-ASCII"));
+		try {
+			long count = 0;
+			int lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				
+				int[] ends = new int[4];
+				int fields = 0;
+				for (int i=0; i<line.length() && fields < 4; i++) {
+					if (line.charAt(i) == delimiter) {
+						ends[fields++] = i;
+					}
+				}
+				if (fields != 3) {
+					throw new PositivePayException(file + " line " + lineNumber + ": expected 4 fields");
+				}
+				ends[3] = line.length();
+				
+				ParseResult<RoutingNumber> routing = RoutingNumber.tryParse(line.substring(0, ends[0]));
+				ParseResult<AccountNumber> account = AccountNumber.tryParse(line.substring(ends[0] + 1, ends[1]));
+				ParseResult<CheckNumber> check = CheckNumber.tryParse(line.substring(ends[1] + 1, ends[2]));
+				long amount = parseAmount(line, ends[2] + 1, ends[3]);
+				if (!routing.isValid()) {
+					throw new PositivePayException(file + " line " + lineNumber + ": bad routing number (" + routing.error() + ")");
+				}
+				if (!account.isValid()) {
+					throw new PositivePayException(file + " line " + lineNumber + ": bad account number (" + account.error() + ")");
+				}
+				if (!check.isValid()) {
+					throw new PositivePayException(file + " line " + lineNumber + ": bad check number (" + check.error() + ")");
+				}
+				if (amount < 0) {
+					throw new PositivePayException(file + " line " + lineNumber + ": bad amount");
+				}
+				issued(routing.value(), account.value(), check.value(), amount);
+				count++;
+			}
+			return count;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Returns the amount in [start, end) in cents, or -1 if it isn't one.
+	 */
+	static long parseAmount(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		long value = 0;
+		int digits = 0;
+		int decimals = -1;
+		for (int i=start; i<end; i++) {
+			char c = text.charAt(i);
+			if (c == '.' && decimals < 0) {
+				decimals = 0;
+				continue;
+			}
+			if (c < '0' || c > '9' || digits == 17) {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+			digits++;
+			if (decimals >= 0 && ++decimals > 2) {
+				return -1;
+			}
+		}
+		if (digits == 0) {
+			return -1;
+		}
+		if (decimals >= 0) {
+			for (; decimals<2; decimals++) {
+				value *= 10;
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Adds the items of an X9 cash letter as presented checks.  Items whose
+	 * routing, account or check number or amount don't parse can't be matched,
+	 * and are skipped.
+	 *
+	 * @return the number of items skipped
+	 */
+	public long readPresentedItems(X9File file) throws IOException, X9Exception {
+		final IOException[] failure = new IOException[1];
+		final long[] skipped = new long[1];
+		try {
+			file.read(new X9ItemHandler() {
+				public void item(X9Item item) throws X9Exception {
+					long amount = item.amount();
+					if (!item.hasValidRoutingNumber() || amount < 0) {
+						skipped[0]++;
+						return;
+					}
+					RoutingNumber routing;
+					AccountNumber account;
+					CheckNumber check;
+					try {
+						routing = item.routingNumber();
+						account = item.accountNumber();
+						check = item.checkNumber();
+					}
+					catch (RoutingNumberException e) {
+						skipped[0]++;
+						return;
+					}
+					catch (AccountNumberException e) {
+						skipped[0]++;
+						return;
+					}
+					catch (CheckNumberException e) {
+						skipped[0]++;
+						return;
+					}
+					if (check == null) {
+						skipped[0]++;
+						return;
+					}
+					try {
+						presented(routing, account, check, amount);
+					}
+					catch (IOException e) {
+						failure[0] = e;
+						throw new X9Exception("Couldn't spill presented items: " + e.getMessage());
+					}
+				}
+			});
+		}
+		catch (X9Exception e) {
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+			throw e;
+		}
+		return skipped[0];
+	}
+	
+	/**
+	 * Matches the partitions on the calling thread.
+	 */
+	public void match(PositivePayHandler handler) throws IOException {
+		PositivePayItem item = new PositivePayItem();
+		for (int i=0; i<issued.length; i++) {
+			match(i, handler, item);
+		}
+	}
+	
+	/**
+	 * Matches the partitions concurrently on the executor.  The handler is
+	 * called from several threads at once, so it must be thread-safe; the
+	 * results of any one partition arrive in order from a single thread.
+	 */
+	public void match(final PositivePayHandler handler, ExecutorService executor) throws IOException {
+		List<Future<Object>> results = new ArrayList<Future<Object>>(issued.length);
+		for (int i=0; i<issued.length; i++) {
+			final int partition = i;
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					match(partition, handler, new PositivePayItem());
+					return null;
+				}
+			}));
+		}
+		
+		try {
+			for (Future<Object> result : results) {
+				result.get();
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(results);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e) {
+			cancel(results);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IOException(String.valueOf(cause));
+		}
+	}
+	
+	private static void cancel(List<Future<Object>> results) {
+		for (Future<Object> result : results) {
+			result.cancel(true);
+		}
+	}
+	
+	private void match(int partition, PositivePayHandler handler, PositivePayItem item) throws IOException {
+		synchronized (issued[partition]) {
+			synchronized (presented[partition]) {
+				match(issued[partition], presented[partition], 0, handler, item);
+			}
+		}
+	}
+	
+	private void match(SpillBuffer issued, SpillBuffer presented, int splits, final PositivePayHandler handler, final PositivePayItem item) throws IOException {
+		long count = issued.count();
+		long tableBytes = IssueTable.bytes(count);
+		long resident = issued.memory() + presented.memory() + Math.max(issued.readMemory(), presented.readMemory());
+		if (tableBytes + resident > partitionBudget) {
+			// make room for the table by spilling what is still buffered
+			issued.release();
+			presented.release();
+			resident = Math.max(issued.readMemory(), presented.readMemory());
+		}
+		if (tableBytes + resident > partitionBudget) {
+			// the pieces' buffers get what the parents' reads leave of the share
+			long pieceBudget = partitionBudget - resident;
+			int fanout = (int)Math.min(Math.min(MAX_FANOUT, tableBytes / (partitionBudget / 2) + 1), pieceBudget / (2 * SpillBuffer.RECORD_BYTES));
+			if (splits == MAX_SPLITS || fanout < 2) {
+				throw new IOException("A partition of " + count + " issued checks needs " + tableBytes + " bytes to match, more than its " + partitionBudget + " byte share of the memory budget; use more partitions or a bigger budget");
+			}
+			split(issued, presented, splits, fanout, records(pieceBudget / (2 * fanout)), handler, item);
+			return;
+		}
+		
+		meter.allocate(tableBytes);
+		try {
+			match(issued, presented, new IssueTable(count), handler, item);
+		} finally {
+			meter.free(tableBytes);
+		}
+	}
+	
+	private static void match(SpillBuffer issued, SpillBuffer presented, final IssueTable table, final PositivePayHandler handler, final PositivePayItem item) throws IOException {
+		issued.read(new SpillBuffer.Handler() {
+			public void record(int routing, long account, long check, long amount) throws IOException {
+				int slot = table.slot(CheckKeys.hash(routing, account, check), routing, account, check);
+				if (table.state(slot) != IssueTable.EMPTY) {
+					item.set(PositivePayResult.DUPLICATE, routing, account, check, amount, NO_AMOUNT);
+					handler.item(item);
+					return;
+				}
+				table.put(slot, routing, account, check, amount);
+			}
+		});
+		
+		presented.read(new SpillBuffer.Handler() {
+			public void record(int routing, long account, long check, long amount) throws IOException {
+				int slot = table.slot(CheckKeys.hash(routing, account, check), routing, account, check);
+				byte state = table.state(slot);
+				if (state == IssueTable.EMPTY) {
+					item.set(PositivePayResult.UNMATCHED, routing, account, check, NO_AMOUNT, amount);
+				}
+				else if (state == IssueTable.PRESENTED) {
+					item.set(PositivePayResult.DUPLICATE, routing, account, check, table.amount(slot), amount);
+				}
+				else {
+					table.setState(slot, IssueTable.PRESENTED);
+					long issuedAmount = table.amount(slot);
+					item.set(issuedAmount == amount ? PositivePayResult.MATCHED : PositivePayResult.AMOUNT_MISMATCH, routing, account, check, issuedAmount, amount);
+				}
+				handler.item(item);
+			}
+		});
+		
+		for (int slot=0; slot<table.capacity(); slot++) {
+			if (table.state(slot) == IssueTable.ISSUED) {
+				item.set(PositivePayResult.OUTSTANDING, table.routing(slot), table.account(slot), table.check(slot), table.amount(slot), NO_AMOUNT);
+				handler.item(item);
+			}
+		}
+	}
+	
+	/**
+	 * Splits both sides of a partition by the next bits of the key hash and
+	 * matches the pieces one at a time, deleting each when it is done.  The
+	 * pieces are spilled before any is matched, so that each gets the whole
+	 * share for its table.
+	 */
+	private void split(SpillBuffer issued, SpillBuffer presented, final int splits, final int fanout, int pieceCapacity, PositivePayHandler handler, PositivePayItem item) throws IOException {
+		final SpillBuffer[] issuedPieces = new SpillBuffer[fanout];
+		final SpillBuffer[] presentedPieces = new SpillBuffer[fanout];
+		for (int i=0; i<fanout; i++) {
+			issuedPieces[i] = new SpillBuffer(spillDirectory, pieceCapacity, meter);
+			presentedPieces[i] = new SpillBuffer(spillDirectory, pieceCapacity, meter);
+		}
+		try {
+			issued.read(new SpillBuffer.Handler() {
+				public void record(int routing, long account, long check, long amount) throws IOException {
+					issuedPieces[subpartition(CheckKeys.hash(routing, account, check), splits, fanout)].add(routing, account, check, amount);
+				}
+			});
+			presented.read(new SpillBuffer.Handler() {
+				public void record(int routing, long account, long check, long amount) throws IOException {
+					presentedPieces[subpartition(CheckKeys.hash(routing, account, check), splits, fanout)].add(routing, account, check, amount);
+				}
+			});
+			for (int i=0; i<fanout; i++) {
+				issuedPieces[i].release();
+				presentedPieces[i].release();
+			}
+			for (int i=0; i<fanout; i++) {
+				match(issuedPieces[i], presentedPieces[i], splits + 1, handler, item);
+				issuedPieces[i].delete();
+				presentedPieces[i].delete();
+			}
+		} finally {
+			for (int i=0; i<fanout; i++) {
+				issuedPieces[i].delete();
+				presentedPieces[i].delete();
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the spill files.
+	 */
+	public void close() {
+		for (int i=0; i<issued.length; i++) {
+			synchronized (issued[i]) {
+				issued[i].delete();
+			}
+			synchronized (presented[i]) {
+				presented[i].delete();
+			}
+		}
+	}
+	
+	static int partition(long hash, int partitions) {
+		return (int)((hash >>> 40) % partitions);
+	}
+	
+	/**
+	 * Picks a piece for a partition's nth split.  Each split takes the next
+	 * bits down from those {@link #partition} uses; the hash table probes
+	 * with a rehash, so the bits fixed here don't cluster it.
+	 */
+	static int subpartition(long hash, int splits, int fanout) {
+		int bits = (int)(hash >>> (40 - (splits + 1) * SPLIT_BITS)) & (MAX_FANOUT - 1);
+		return (bits * fanout) >>> SPLIT_BITS;
+	}
+	
+	/**
+	 * Rounds a byte count down to whole records, but to at least one.
+	 */
+	private static int records(long bytes) {
+		long records = Math.max(1, Math.min(bytes, Integer.MAX_VALUE) / SpillBuffer.RECORD_BYTES);
+		return (int)(records * SpillBuffer.RECORD_BYTES);
+	}
+}
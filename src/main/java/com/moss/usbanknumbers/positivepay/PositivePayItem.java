@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.AccountNumberException;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.CheckNumberException;
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * One result of {@link PositivePay#match}.
+ * <p>
+ * The engine hands the same instance to its handler for every result of a
+ * partition, so a PositivePayItem must not be kept past the handler call.
+ * The number types it returns are ordinary values.
+ */
+public final class PositivePayItem {
+	
+	private PositivePayResult result;
+	private int routing;
+	private long account;
+	private long check;
+	private long issuedAmount;
+	private long presentedAmount;
+	
+	PositivePayItem() {
+	}
+	
+	void set(PositivePayResult result, int routing, long account, long check, long issuedAmount, long presentedAmount) {
+		this.result = result;
+		this.routing = routing;
+		this.account = account;
+		this.check = check;
+		this.issuedAmount = issuedAmount;
+		this.presentedAmount = presentedAmount;
+	}
+	
+	public PositivePayResult result() {
+		return result;
+	}
+	
+	public RoutingNumber routingNumber() {
+		return RoutingNumber.fromDfiIdentity(routing / 10);
+	}
+	
+	public AccountNumber accountNumber() {
+		try {
+			return AccountNumber.fromLong(account);
+		}
+		catch (AccountNumberException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * The check number, without leading zeros: checks are matched by value,
+	 * so "0042" and "42" are the same check.
+	 */
+	public CheckNumber checkNumber() {
+		try {
+			return new CheckNumber(Long.toString(check));
+		}
+		catch (CheckNumberException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * The amount issued in cents, or {@link PositivePay#NO_AMOUNT} for a
+	 * check that wasn't issued.
+	 */
+	public long issuedAmount() {
+		return issuedAmount;
+	}
+	
+	/**
+	 * The amount presented in cents, or {@link PositivePay#NO_AMOUNT} for a
+	 * check that wasn't presented (an outstanding or duplicate issue).
+	 */
+	public long presentedAmount() {
+		return presentedAmount;
+	}
+	
+	@Override
+	public String toString() {
+		return result + " " + routingNumber() + " " + accountNumber() + " " + check + " " + issuedAmount + " " + presentedAmount;
+	}
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The records of one side of one partition: those received since the last
+ * spill in memory, and any before that in a temporary file.
+ * <p>
+ * The buffer starts small and grows to the capacity, and is only allocated
+ * once a record arrives; its bytes, and those of the chunks used to read
+ * the file back, are counted on a {@link MemoryMeter}.
+ * <p>
+ * A record is the routing number as an int, then the account number (as
+ * {@link com.moss.usbanknumbers.AccountNumber#toLong()}), the check number's
+ * value and the amount as longs.
+ */
+final class SpillBuffer {
+	
+	static final int RECORD_BYTES = 28;
+	
+	private static final int INITIAL_RECORDS = 64;
+	
+	/**
+	 * Records read back from the file at a time.
+	 */
+	private static final int READ_RECORDS = 4096;
+	
+	interface Handler {
+		void record(int routing, long account, long check, long amount) throws IOException;
+	}
+	
+	private final File directory;
+	private final int capacity;
+	private final MemoryMeter meter;
+	private ByteBuffer buffer;
+	private File file;
+	private long spilled;
+	
+	/**
+	 * @param capacity the most bytes held in memory at any time, whether
+	 * records waiting to be spilled or a chunk being read back
+	 */
+	SpillBuffer(File directory, int capacity, MemoryMeter meter) {
+		this.directory = directory;
+		this.capacity = capacity;
+		this.meter = meter;
+	}
+	
+	void add(int routing, long account, long check, long amount) throws IOException {
+		if (buffer == null) {
+			buffer = allocate(Math.min(capacity, INITIAL_RECORDS * RECORD_BYTES));
+		}
+		else if (buffer.remaining() < RECORD_BYTES) {
+			// grow only while the old and new buffers together fit the capacity
+			int grown = Math.min(buffer.capacity() * 2, capacity - buffer.capacity()) / RECORD_BYTES * RECORD_BYTES;
+			if (grown > buffer.capacity()) {
+				ByteBuffer bigger = allocate(grown);
+				buffer.flip();
+				bigger.put(buffer);
+				free(buffer);
+				buffer = bigger;
+			}
+			else {
+				spill();
+			}
+		}
+		buffer.putInt(routing);
+		buffer.putLong(account);
+		buffer.putLong(check);
+		buffer.putLong(amount);
+	}
+	
+	long count() {
+		return spilled + (buffer == null ? 0 : buffer.position() / RECORD_BYTES);
+	}
+	
+	/**
+	 * The bytes held in memory between reads.
+	 */
+	long memory() {
+		return buffer == null ? 0 : buffer.capacity();
+	}
+	
+	/**
+	 * The bytes {@link #read} allocates for reading back the spill file.
+	 */
+	long readMemory() {
+		return file == null ? 0 : Math.min(Math.min(capacity, READ_RECORDS * RECORD_BYTES), spilled * RECORD_BYTES);
+	}
+	
+	/**
+	 * Spills any records held in memory and frees the buffer.
+	 */
+	void release() throws IOException {
+		if (buffer != null) {
+			if (buffer.position() > 0) {
+				spill();
+			}
+			free(buffer);
+			buffer = null;
+		}
+	}
+	
+	private void spill() throws IOException {
+		if (file == null) {
+			file = File.createTempFile("positivepay", ".spill", directory);
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			channel.position(channel.size());
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			spilled += buffer.limit() / RECORD_BYTES;
+			buffer.clear();
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Hands every record to the handler, in the order they were added.
+	 */
+	void read(Handler handler) throws IOException {
+		if (file != null) {
+			ByteBuffer chunk = allocate((int)readMemory());
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				long remaining = spilled * RECORD_BYTES;
+				while (remaining > 0) {
+					chunk.clear();
+					if (remaining < chunk.capacity()) {
+						chunk.limit((int)remaining);
+					}
+					while (chunk.hasRemaining()) {
+						if (channel.read(chunk) < 0) {
+							throw new IOException(file + " is truncated");
+						}
+					}
+					remaining -= chunk.limit();
+					chunk.flip();
+					read(chunk, handler);
+				}
+			} finally {
+				raf.close();
+				free(chunk);
+			}
+		}
+		if (buffer != null) {
+			ByteBuffer view = buffer.duplicate();
+			view.flip();
+			read(view, handler);
+		}
+	}
+	
+	private static void read(ByteBuffer records, Handler handler) throws IOException {
+		while (records.hasRemaining()) {
+			handler.record(records.getInt(), records.getLong(), records.getLong(), records.getLong());
+		}
+	}
+	
+	void delete() {
+		if (file != null) {
+			file.delete();
+			file = null;
+		}
+		spilled = 0;
+		if (buffer != null) {
+			free(buffer);
+			buffer = null;
+		}
+	}
+	
+	private ByteBuffer allocate(int bytes) {
+		meter.allocate(bytes);
+		return ByteBuffer.allocate(bytes);
+	}
+	
+	private void free(ByteBuffer released) {
+		meter.free(released.capacity());
+	}
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.stax;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.BankNumberError;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.ParseResult;
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * Pulls bank numbers out of an XML document as it streams past, without
+ * building a tree: elements are bound by local name to a
+ * {@link BankNumberType}, and each one reached is parsed from its text with
+ * the types' <code>tryParse</code> methods.  Memory use doesn't grow with
+ * the document.
+ * <p>
+ * Use it as a cursor:
+ * <pre>
+ * BankNumberXmlReader reader = new BankNumberXmlReader(in)
+ * 	.bind("routing", BankNumberType.ROUTING_NUMBER)
+ * 	.bind("account", BankNumberType.ACCOUNT_NUMBER);
+ * while (reader.next()) {
+ * 	if (reader.isValid()) ...
+ * }
+ * </pre>
+ * or hand it a {@link BankNumberXmlHandler}.  Invalid values don't stop the
+ * reader; they are reported with their {@link #error()}.
+ */
+public final class BankNumberXmlReader {
+	
+	/**
+	 * The longest element text kept; anything longer is reported as
+	 * {@link BankNumberError#TOO_LONG} without being parsed.
+	 */
+	public static final int MAX_TEXT = 256;
+	
+	private final XMLStreamReader in;
+	private final Map<String, BankNumberType> bindings = new HashMap<String, BankNumberType>();
+	private final StringBuilder text = new StringBuilder();
+	
+	private String localName;
+	private BankNumberType type;
+	private Object value;
+	private BankNumberError error;
+	private Location location;
+	
+	public BankNumberXmlReader(XMLStreamReader in) {
+		this.in = in;
+	}
+	
+	/**
+	 * Binds the elements with the local name (in any namespace) to the type.
+	 */
+	public BankNumberXmlReader bind(String localName, BankNumberType type) {
+		bindings.put(localName, type);
+		return this;
+	}
+	
+	/**
+	 * Moves to the next bound element and parses its text, returning false
+	 * at the end of the document.
+	 */
+	public boolean next() throws XMLStreamException {
+		localName = null;
+		type = null;
+		value = null;
+		error = null;
+		location = null;
+		
+		while (in.hasNext()) {
+			if (in.next() == XMLStreamConstants.START_ELEMENT) {
+				BankNumberType bound = bindings.get(in.getLocalName());
+				if (bound != null) {
+					localName = in.getLocalName();
+					type = bound;
+					location = in.getLocation();
+					readText();
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Collects the element's text, leaving the reader on its end tag.
+	 */
+	private void readText() throws XMLStreamException {
+		text.setLength(0);
+		boolean tooLong = false;
+		boolean nested = false;
+		int depth = 0;
+		while (true) {
+			switch (in.next()) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (depth == 0 && !tooLong) {
+					int length = in.getTextLength();
+					if (text.length() + length > MAX_TEXT) {
+						tooLong = true;
+					}
+					else {
+						text.append(in.getTextCharacters(), in.getTextStart(), length);
+					}
+				}
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				nested = true;
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth == 0) {
+					if (nested) {
+						error = BankNumberError.MALFORMED;
+					}
+					else if (tooLong) {
+						error = BankNumberError.TOO_LONG;
+					}
+					else {
+						ParseResult<?> result = type.parse(text);
+						value = result.value();
+						error = result.error();
+					}
+					return;
+				}
+				depth--;
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				throw new XMLStreamException("Unexpected end of document in " + localName, location);
+			}
+		}
+	}
+	
+	/**
+	 * Calls the handler for every remaining bound element.
+	 *
+	 * @return the number of elements handled
+	 */
+	public long read(BankNumberXmlHandler handler) throws XMLStreamException {
+		long count = 0;
+		while (next()) {
+			handler.element(this);
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * The local name of the current element.
+	 */
+	public String localName() {
+		return localName;
+	}
+	
+	public BankNumberType type() {
+		return type;
+	}
+	
+	/**
+	 * Where the current element starts.
+	 */
+	public Location location() {
+		return location;
+	}
+	
+	/**
+	 * The current element's text, only valid until the next call to
+	 * {@link #next()}.
+	 */
+	public CharSequence text() {
+		return text;
+	}
+	
+	public boolean isValid() {
+		return error == null;
+	}
+	
+	/**
+	 * Why the current element's text was rejected, or null if it wasn't.
+	 */
+	public BankNumberError error() {
+		return error;
+	}
+	
+	/**
+	 * The current element's value, or null if its text was rejected.
+	 */
+	public Object value() {
+		return value;
+	}
+	
+	public RoutingNumber routingNumber() {
+		return (RoutingNumber)value(BankNumberType.ROUTING_NUMBER);
+	}
+	
+	public AccountNumber accountNumber() {
+		return (AccountNumber)value(BankNumberType.ACCOUNT_NUMBER);
+	}
+	
+	public CheckNumber checkNumber() {
+		return (CheckNumber)value(BankNumberType.CHECK_NUMBER);
+	}
+	
+	public FractionalRoutingNumber fractionalRoutingNumber() {
+		return (FractionalRoutingNumber)value(BankNumberType.FRACTIONAL_ROUTING_NUMBER);
+	}
+	
+	private Object value(BankNumberType expected) {
+		if (type != expected) {
+			throw new IllegalStateException("The current element is " + (type == null ? "not bound" : "a " + type));
+		}
+		return value;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.stax;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+/**
+ * Writes bank numbers as simple elements onto an XMLStreamWriter, rendering
+ * the digits of routing, account and check numbers into a reused buffer
+ * rather than through their strings.  The caller writes the surrounding
+ * document.
+ */
+public final class BankNumberXmlWriter {
+	
+	private final XMLStreamWriter out;
+	private final char[] digits = new char[AccountNumber.MAX_LENGTH];
+	
+	public BankNumberXmlWriter(XMLStreamWriter out) {
+		this.out = out;
+	}
+	
+	public void write(String localName, RoutingNumber number) throws XMLStreamException {
+		int value = number.toInt();
+		for (int i=8; i>=0; i--) {
+			digits[i] = (char)('0' + value % 10);
+			value /= 10;
+		}
+		element(localName, 9);
+	}
+	
+	public void write(String localName, AccountNumber number) throws XMLStreamException {
+		int length = number.length();
+		for (int i=0; i<length; i++) {
+			digits[i] = (char)('0' + number.digit(i));
+		}
+		element(localName, length);
+	}
+	
+	public void write(String localName, CheckNumber number) throws XMLStreamException {
+		int length = number.length();
+		for (int i=0; i<length; i++) {
+			digits[i] = (char)('0' + number.digit(i));
+		}
+		element(localName, length);
+	}
+	
+	public void write(String localName, FractionalRoutingNumber number) throws XMLStreamException {
+		out.writeStartElement(localName);
+		out.writeCharacters(number.toString());
+		out.writeEndElement();
+	}
+	
+	private void element(String localName, int length) throws XMLStreamException {
+		out.writeStartElement(localName);
+		out.writeCharacters(digits, 0, length);
+		out.writeEndElement();
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.x9;
+
+/**
+ * Decoding tables for the two encodings X9.37 files come in.  Only the
+ * characters that appear in the fields this package reads are mapped;
+ * anything else decodes to '?'.
+ */
+final class X9Charset {
+	
+	static final char[] ASCII = new char[256];
+	static final char[] EBCDIC = new char[256];
+	
+	static {
+		for (int i=0; i<256; i++) {
+			ASCII[i] = i >= ' ' && i <= '~' ? (char)i : '?';
+			EBCDIC[i] = '?';
+		}
+		for (int i=0; i<10; i++) {
+			EBCDIC[0xF0 + i] = (char)('0' + i);
+		}
+		for (int i=0; i<9; i++) {
+			EBCDIC[0xC1 + i] = (char)('A' + i);
+			EBCDIC[0xD1 + i] = (char)('J' + i);
+			EBCDIC[0x81 + i] = (char)('a' + i);
+			EBCDIC[0x91 + i] = (char)('j' + i);
+		}
+		for (int i=0; i<8; i++) {
+			EBCDIC[0xE2 + i] = (char)('S' + i);
+			EBCDIC[0xA2 + i] = (char)('s' + i);
+		}
+		EBCDIC[0x40] = ' ';
+		EBCDIC[0x4B] = '.';
+		EBCDIC[0x50] = '&';
+		EBCDIC[0x5C] = '*';
+		EBCDIC[0x60] = '-';
+		EBCDIC[0x61] = '/';
+		EBCDIC[0x6B] = ',';
+	}
+	
+	private X9Charset() {
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.x9;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An X9.37 (X9.100-187) image cash letter file, read straight out of a
+ * memory mapping.
+ * <p>
+ * Records are walked by their 4 byte length prefixes, so the image view
+ * data that makes up most of a file is skipped without being touched.
+ * Check detail records are handed to an {@link X9ItemHandler} as views over
+ * the mapped bytes, decoding EBCDIC (or ASCII) fields as they are asked
+ * for.
+ */
+public final class X9File implements Closeable {
+	
+	/**
+	 * The largest region mapped at once.  Windows are remapped as the walk
+	 * moves along, so files of any size can be read.
+	 */
+	private static final int WINDOW_BYTES = 1 << 28;
+	
+	private static final int PREFIX_LENGTH = 4;
+	private static final int FILE_HEADER = 1;
+	private static final int CHECK_DETAIL = 25;
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long length;
+	private final char[] charset;
+	
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long windowEnd;
+	
+	private X9File(RandomAccessFile file, long length, char[] charset) {
+		this.file = file;
+		this.channel = file.getChannel();
+		this.length = length;
+		this.charset = charset;
+	}
+	
+	public static X9File open(File path) throws IOException, X9Exception {
+		
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		boolean opened = false;
+		try {
+			ByteBuffer head = ByteBuffer.allocate(PREFIX_LENGTH + 2);
+			file.getChannel().read(head, 0);
+			if (head.position() < head.capacity()) {
+				throw new X9Exception("The file is too short to be an X9.37 file");
+			}
+			
+			char[] charset;
+			if (head.get(4) == (byte)0xF0 && head.get(5) == (byte)0xF1) {
+				charset = X9Charset.EBCDIC;
+			}
+			else if (head.get(4) == '0' && head.get(5) == '1') {
+				charset = X9Charset.ASCII;
+			}
+			else {
+				throw new X9Exception("An X9.37 file must begin with a file header record");
+			}
+			
+			X9File x9File = new X9File(file, file.length(), charset);
+			opened = true;
+			return x9File;
+		}
+		finally {
+			if (!opened) {
+				file.close();
+			}
+		}
+	}
+	
+	public boolean isEbcdic() {
+		return charset == X9Charset.EBCDIC;
+	}
+	
+	/**
+	 * Walks the file, passing each check detail record to the handler.
+	 *
+	 * @return the number of check detail records
+	 */
+	public long read(X9ItemHandler handler) throws IOException, X9Exception {
+		
+		X9Item item = new X9Item(charset);
+		long items = 0;
+		long position = 0;
+		
+		while (position < length) {
+			
+			if (length - position < PREFIX_LENGTH + 2) {
+				throw error("truncated record", position);
+			}
+			
+			int rel = map(position, Math.min(length - position, PREFIX_LENGTH + X9Item.RECORD_LENGTH));
+			long recordLength = window.getInt(rel) & 0xFFFFFFFFL;
+			if (recordLength < 2 || recordLength > length - position - PREFIX_LENGTH) {
+				throw error("bad record length " + recordLength, position);
+			}
+			
+			int type = recordType(rel + PREFIX_LENGTH);
+			if (type < 0) {
+				throw error("bad record type", position);
+			}
+			if (type == FILE_HEADER && position != 0) {
+				throw error("unexpected file header record", position);
+			}
+			if (type == CHECK_DETAIL) {
+				if (recordLength < X9Item.RECORD_LENGTH) {
+					throw error("check detail record is too short", position);
+				}
+				item.moveTo(window, windowStart, rel + PREFIX_LENGTH);
+				handler.item(item);
+				items++;
+			}
+			
+			position += PREFIX_LENGTH + recordLength;
+		}
+		
+		return items;
+	}
+	
+	/**
+	 * Makes sure [position, position + count) is mapped, returning the
+	 * position relative to the window.
+	 */
+	private int map(long position, long count) throws IOException {
+		if (window == null || position < windowStart || position + count > windowEnd) {
+			windowStart = position;
+			windowEnd = Math.min(length, position + WINDOW_BYTES);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+		}
+		return (int)(position - windowStart);
+	}
+	
+	private int recordType(int rel) {
+		int tens = charset[window.get(rel) & 0xFF] - '0';
+		int units = charset[window.get(rel + 1) & 0xFF] - '0';
+		if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+			return -1;
+		}
+		return tens * 10 + units;
+	}
+	
+	private static X9Exception error(String problem, long offset) {
+		return new X9Exception(problem + " (offset " + offset + ")");
+	}
+	
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+}
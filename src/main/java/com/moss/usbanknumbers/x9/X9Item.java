@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.x9;
+
+import java.nio.ByteBuffer;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.AccountNumberException;
+import com.moss.usbanknumbers.BankNumberError;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.CheckNumberException;
+import com.moss.usbanknumbers.ParseResult;
+import com.moss.usbanknumbers.RoutingNumber;
+import com.moss.usbanknumbers.RoutingNumberException;
+
+/**
+ * A check detail (type 25) record, decoded in place from the file.
+ * <p>
+ * The reader hands the same instance to its handler for every item, so an
+ * X9Item (and any CharSequence it returns) must not be kept past the
+ * handler call.  Each field has its own view, so different fields can be
+ * used together.  The number types it returns are ordinary values.
+ */
+public final class X9Item {
+	
+	/**
+	 * The length of a check detail record, not counting its length prefix.
+	 */
+	static final int RECORD_LENGTH = 80;
+	
+	// zero-based [start, end) offsets within the record
+	private static final int AUXILIARY_ON_US = 2;
+	private static final int EXTERNAL_PROCESSING_CODE = 17;
+	private static final int PAYOR_BANK_ROUTING = 18;
+	private static final int ROUTING_CHECK_DIGIT = 26;
+	private static final int ON_US = 27;
+	private static final int AMOUNT = 47;
+	private static final int ITEM_SEQUENCE = 57;
+	private static final int DOCUMENTATION_TYPE = 72;
+	
+	/**
+	 * X9 writes the MICR on-us symbol as a slash.
+	 */
+	private static final char ON_US_SYMBOL = '/';
+	
+	private final char[] charset;
+	private final X9Text auxiliaryOnUsText;
+	private final X9Text onUsText;
+	private final int[] routingDigits = new int[8];
+	private final StringBuilder scratch = new StringBuilder(20);
+	
+	private ByteBuffer buf;
+	private long base;
+	private int record;
+	
+	X9Item(char[] charset) {
+		this.charset = charset;
+		this.auxiliaryOnUsText = new X9Text(charset);
+		this.onUsText = new X9Text(charset);
+	}
+	
+	void moveTo(ByteBuffer buf, long base, int record) {
+		this.buf = buf;
+		this.base = base;
+		this.record = record;
+	}
+	
+	/**
+	 * The offset of the record (after its length prefix) within the file.
+	 */
+	public long offset() {
+		return base + record;
+	}
+	
+	/**
+	 * The 8 digit payor bank routing number field, or -1 if it isn't numeric.
+	 */
+	public int payorBankRoutingNumber() {
+		return (int)digits(PAYOR_BANK_ROUTING, ROUTING_CHECK_DIGIT);
+	}
+	
+	/**
+	 * The check digit field, or -1 if it isn't a digit.
+	 */
+	public int routingCheckDigit() {
+		return (int)digits(ROUTING_CHECK_DIGIT, ON_US);
+	}
+	
+	/**
+	 * Checks the routing number field against its check digit, allocating
+	 * nothing.
+	 */
+	public boolean hasValidRoutingNumber() {
+		return routingError() == null;
+	}
+	
+	public RoutingNumber routingNumber() throws RoutingNumberException {
+		BankNumberError error = routingError();
+		if (error != null) {
+			throw new RoutingNumberException(error);
+		}
+		return RoutingNumber.fromDfiIdentity(payorBankRoutingNumber());
+	}
+	
+	private BankNumberError routingError() {
+		for (int i=0; i<routingDigits.length; i++) {
+			int digit = digit(record + PAYOR_BANK_ROUTING + i);
+			if (digit < 0) {
+				return BankNumberError.NON_NUMERIC;
+			}
+			routingDigits[i] = digit;
+		}
+		int checkDigit = digit(record + ROUTING_CHECK_DIGIT);
+		if (checkDigit < 0) {
+			return BankNumberError.NON_NUMERIC;
+		}
+		return RoutingNumber.checksumAlgorithm(routingDigits) == checkDigit ? null : BankNumberError.CHECKSUM;
+	}
+	
+	public CharSequence auxiliaryOnUs() {
+		return auxiliaryOnUsText.set(buf, record + AUXILIARY_ON_US, record + EXTERNAL_PROCESSING_CODE);
+	}
+	
+	/**
+	 * The on-us field as printed, with '/' for the on-us symbol.
+	 */
+	public CharSequence onUs() {
+		return onUsText.set(buf, record + ON_US, record + AMOUNT);
+	}
+	
+	/**
+	 * The account number: the part of the on-us field before its last on-us
+	 * symbol, with any blanks and dashes dropped.
+	 */
+	public AccountNumber accountNumber() throws AccountNumberException {
+		CharSequence onUs = onUs();
+		int symbol = lastIndexOf(onUs, ON_US_SYMBOL);
+		ParseResult<AccountNumber> result = AccountNumber.tryParse(digits(onUs, 0, symbol == -1 ? onUs.length() : symbol));
+		if (!result.isValid()) {
+			throw new AccountNumberException(result.error());
+		}
+		return result.value();
+	}
+	
+	/**
+	 * The check serial number: the auxiliary on-us field if it is filled in,
+	 * as on business checks, otherwise whatever follows the last on-us
+	 * symbol of the on-us field.  Returns null if neither has one.
+	 */
+	public CheckNumber checkNumber() throws CheckNumberException {
+		CharSequence field = auxiliaryOnUs();
+		if (field.length() == 0) {
+			field = onUs();
+			int symbol = lastIndexOf(field, ON_US_SYMBOL);
+			if (symbol == -1 || symbol == field.length() - 1) {
+				return null;
+			}
+			field = field.subSequence(symbol + 1, field.length());
+		}
+		ParseResult<CheckNumber> result = CheckNumber.tryParse(digits(field, 0, field.length()));
+		if (!result.isValid()) {
+			throw new CheckNumberException(result.error());
+		}
+		return result.value();
+	}
+	
+	/**
+	 * The item amount in cents, or -1 if the field isn't numeric.
+	 */
+	public long amount() {
+		return digits(AMOUNT, ITEM_SEQUENCE);
+	}
+	
+	/**
+	 * The ECE institution item sequence number, or -1 if it isn't numeric.
+	 */
+	public long itemSequenceNumber() {
+		return digits(ITEM_SEQUENCE, DOCUMENTATION_TYPE);
+	}
+	
+	private int digit(int index) {
+		int digit = charset[buf.get(index) & 0xFF] - '0';
+		return digit < 0 || digit > 9 ? -1 : digit;
+	}
+	
+	private long digits(int start, int end) {
+		long value = 0;
+		for (int i=record + start; i<record + end; i++) {
+			int digit = digit(i);
+			if (digit < 0) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+	
+	/**
+	 * The characters in [start, end) without blanks and dashes, copied into
+	 * a reused buffer.
+	 */
+	private CharSequence digits(CharSequence field, int start, int end) {
+		scratch.setLength(0);
+		for (int i=start; i<end; i++) {
+			char c = field.charAt(i);
+			if (c != ' ' && c != '-') {
+				scratch.append(c);
+			}
+		}
+		return scratch;
+	}
+	
+	private static int lastIndexOf(CharSequence text, char c) {
+		for (int i=text.length() - 1; i>=0; i--) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -80,6 +80,36 @@ public class AbaNumberTest extends TestCase{
 		assertInvalid("33-232a");
 	}
 	
+	public void testCompactEncoding() throws Exception {
+		for(AbaNumber.Prefix prefix : AbaNumber.Prefix.values())
+			assertSame(prefix, AbaNumber.Prefix.forNumber(prefix.number()));
+		assertNull(AbaNumber.Prefix.forNumber(89));
+		assertNull(AbaNumber.Prefix.forNumber(-1));
+		assertNull(AbaNumber.Prefix.forNumber(1000));
+		
+		String[] texts = {"56-0250", "56-250", "6-12", "101-9999", "1-0"};
+		for(String text : texts){
+			AbaNumber aba = new AbaNumber(text);
+			AbaNumber decoded = AbaNumber.fromInt(aba.toInt());
+			assertEquals(text, decoded.toString());
+			assertEquals(aba.toInt(), decoded.toInt());
+		}
+		assertFalse(new AbaNumber("56-0250").toInt() == new AbaNumber("56-250").toInt());
+		
+		try {
+			AbaNumber.fromInt(89<<17 | 1<<14 | 1);
+			fail();
+		} catch (AbaNumberException e) {
+			assertEquals(BankNumberError.UNKNOWN_PREFIX, e.error());
+		}
+		try {
+			AbaNumber.fromInt(56<<17 | 1<<14 | 10);
+			fail();
+		} catch (AbaNumberException e) {
+			assertEquals(BankNumberError.MALFORMED, e.error());
+		}
+	}
+	
 	private void assertInvalid(String abaText){
 		try {
 			new AbaNumber(abaText);
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class BankNumberCodecTest extends TestCase {
+	
+	public void testBufferRoundTrip() throws Exception {
+		RoutingNumber routing = new RoutingNumber("076401251");
+		AccountNumber account = new AccountNumber("0012345");
+		CheckNumber check = new CheckNumber("1001");
+		
+		ByteBuffer buf = ByteBuffer.allocate(64);
+		BankNumberCodec.encode(routing, buf);
+		BankNumberCodec.encode(account, buf);
+		BankNumberCodec.encode(check, buf);
+		assertEquals(BankNumberCodec.ROUTING_NUMBER_BYTES
+				+ BankNumberCodec.encodedLength(account)
+				+ BankNumberCodec.encodedLength(check), buf.position());
+		assertEquals(5, BankNumberCodec.encodedLength(account));
+		byte[] expected = {7, 0x00, 0x12, 0x34, 0x5F, 4, 0x10, 0x01};
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], buf.get(BankNumberCodec.ROUTING_NUMBER_BYTES + i));
+		}
+		
+		ByteBuffer small = ByteBuffer.allocate(4);
+		try {
+			BankNumberCodec.encode(account, small);
+			fail();
+		} catch (BufferOverflowException e) {
+			assertEquals(0, small.position());
+		}
+		
+		buf.flip();
+		assertEquals(routing, BankNumberCodec.decodeRoutingNumber(buf));
+		assertEquals(account, BankNumberCodec.decodeAccountNumber(buf));
+		assertEquals(check, BankNumberCodec.decodeCheckNumber(buf));
+		assertFalse(buf.hasRemaining());
+	}
+	
+	public void testPackedDigits() throws Exception {
+		AccountNumber account = new AccountNumber(" 00012345678901234 ");
+		assertEquals(17, account.length());
+		assertEquals(0, account.digit(0));
+		assertEquals(1, account.digit(3));
+		assertEquals(4, account.digit(16));
+		assertEquals(12345678901234L, account.longValue());
+		assertEquals("00012345678901234", account.toString());
+		assertEquals(account, AccountNumber.fromLong(account.toLong()));
+		assertFalse(account.equals(new AccountNumber("12345678901234")));
+		
+		assertEquals(BankNumberError.TOO_LONG, AccountNumber.check("000123456789012345"));
+		assertEquals(BankNumberError.TOO_LONG, CheckNumber.check("0001234567890123"));
+		assertEquals(BankNumberError.NON_NUMERIC, CheckNumber.check("12-3"));
+		try {
+			CheckNumber.fromLong(account.toLong());
+			fail();
+		} catch (CheckNumberException e) {
+			assertEquals(BankNumberError.MALFORMED, e.error());
+		}
+		
+		ByteBuffer buf = ByteBuffer.allocate(BankNumberCodec.encodedLength(account));
+		BankNumberCodec.encode(account, buf);
+		buf.flip();
+		try {
+			BankNumberCodec.decodeCheckNumber(buf);
+			fail();
+		} catch (CheckNumberException e) {
+			assertEquals(BankNumberError.TOO_LONG, e.error());
+		}
+	}
+	
+	public void testRejectsCorruptInput() {
+		try {
+			BankNumberCodec.decodeRoutingNumber(ByteBuffer.wrap(new byte[] {0, 0x48, (byte)0xBE, 0x42}));
+			fail();
+		} catch (RoutingNumberException e) {
+			assertEquals(BankNumberError.CHECKSUM, e.error());
+		}
+		try {
+			BankNumberCodec.decodeAccountNumber(ByteBuffer.wrap(new byte[] {2, (byte)0x1A}));
+			fail();
+		} catch (AccountNumberException e) {
+			assertEquals(BankNumberError.NON_NUMERIC, e.error());
+		}
+		try {
+			BankNumberCodec.decodeCheckNumber(ByteBuffer.wrap(new byte[] {0}));
+			fail();
+		} catch (CheckNumberException e) {
+			assertEquals(BankNumberError.EMPTY, e.error());
+		}
+	}
+	
+	public void testSerializedFormIsCompact() throws Exception {
+		RoutingNumber routing = new RoutingNumber("076401251");
+		Object read = roundTrip(routing);
+		assertEquals(routing, read);
+		assertSame(RoutingNumber.intern(routing), read);
+		
+		AccountNumber account = new AccountNumber("000123456789");
+		assertEquals(account, roundTrip(account));
+		assertEquals(new CheckNumber("0042"), roundTrip(new CheckNumber("0042")));
+		
+		assertTrue(serialize(account).length < legacyAccountNumber("000123456789").length);
+	}
+	
+	public void testLegacyAccountNumberStillReads() throws Exception {
+		byte[] legacy = legacyAccountNumber("0012");
+		Object read = new ObjectInputStream(new ByteArrayInputStream(legacy)).readObject();
+		assertEquals(new AccountNumber("0012"), read);
+		
+		try {
+			new ObjectInputStream(new ByteArrayInputStream(legacyAccountNumber("12-3"))).readObject();
+			fail();
+		} catch (InvalidObjectException e) {
+		}
+	}
+	
+	private static Object roundTrip(Serializable o) throws Exception {
+		return new ObjectInputStream(new ByteArrayInputStream(serialize(o))).readObject();
+	}
+	
+	private static byte[] serialize(Serializable o) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream objects = new ObjectOutputStream(out);
+		objects.writeObject(o);
+		objects.close();
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Builds the stream an earlier AccountNumber, with its single "number"
+	 * field and default serialization, would have written.
+	 */
+	private static byte[] legacyAccountNumber(String number) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeShort(0xACED);
+		data.writeShort(5);
+		data.writeByte(0x73);
+		data.writeByte(0x72);
+		data.writeUTF(AccountNumber.class.getName());
+		data.writeLong(8041362728643276000L);
+		data.writeByte(0x02);
+		data.writeShort(1);
+		data.writeByte('L');
+		data.writeUTF("number");
+		data.writeByte(0x74);
+		data.writeUTF("Ljava/lang/String;");
+		data.writeByte(0x78);
+		data.writeByte(0x70);
+		data.writeByte(0x74);
+		data.writeUTF(number);
+		data.close();
+		return out.toByteArray();
+	}
+}
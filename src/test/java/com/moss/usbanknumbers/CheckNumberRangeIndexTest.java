@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import junit.framework.TestCase;
+
+public class CheckNumberRangeIndexTest extends TestCase {
+	
+	private RoutingNumber routing;
+	private AccountNumber account;
+	private CheckNumberRangeIndex index;
+	
+	@Override
+	protected void setUp() throws Exception {
+		routing = new RoutingNumber("076401251");
+		account = new AccountNumber("0012345");
+		index = new CheckNumberRangeIndex();
+	}
+	
+	public void testRanges() throws Exception {
+		index.add(routing, account, check("1001"), check("1250"), CheckNumberRangeIndex.NEVER);
+		index.add(routing, account, check("2000"), CheckNumberRangeIndex.NEVER);
+		
+		assertTrue(index.isStopped(routing, account, check("1001")));
+		assertTrue(index.isStopped(routing, account, check("001100")));
+		assertTrue(index.isStopped(routing, account, check("1250")));
+		assertTrue(index.isStopped(routing, account, check("2000")));
+		assertFalse(index.isStopped(routing, account, check("1000")));
+		assertFalse(index.isStopped(routing, account, check("1251")));
+		assertFalse(index.isStopped(routing, account, check("1999")));
+		assertFalse(index.isStopped(routing, new AccountNumber("12345"), check("1001")));
+		assertFalse(index.isStopped(new RoutingNumber("123456780"), account, check("1001")));
+		assertEquals(2, index.size());
+		
+		index.add(routing, account, check("1251"), check("1999"), CheckNumberRangeIndex.NEVER);
+		assertEquals(1, index.size());
+		assertTrue(index.isStopped(routing, account, check("1500")));
+	}
+	
+	public void testOverlappingOrdersExpireSeparately() throws Exception {
+		index.add(routing, account, check("100"), check("200"), 10);
+		index.add(routing, account, check("150"), check("300"), 20);
+		index.add(routing, account, check("50"), check("60"), 30);
+		assertEquals(3, index.size());
+		assertTrue(index.isStopped(routing, account, check("120")));
+		
+		assertEquals(1, index.expire(10));
+		assertFalse(index.isStopped(routing, account, check("120")));
+		assertTrue(index.isStopped(routing, account, check("150")));
+		assertTrue(index.isStopped(routing, account, check("300")));
+		assertTrue(index.isStopped(routing, account, check("55")));
+		
+		assertEquals(2, index.expire(30));
+		assertEquals(0, index.size());
+		assertFalse(index.isStopped(routing, account, check("55")));
+	}
+	
+	public void testManyAccounts() throws Exception {
+		for (int i=0; i<1000; i++) {
+			index.add(routing, new AccountNumber(Integer.toString(i)), check(Integer.toString(i)), i);
+		}
+		for (int i=0; i<1000; i++) {
+			assertTrue(index.isStopped(routing, new AccountNumber(Integer.toString(i)), check(Integer.toString(i))));
+			assertFalse(index.isStopped(routing, new AccountNumber(Integer.toString(i)), check(Integer.toString(i + 1))));
+		}
+		assertEquals(500, index.expire(499));
+		assertFalse(index.isStopped(routing, new AccountNumber("499"), check("499")));
+		assertTrue(index.isStopped(routing, new AccountNumber("500"), check("500")));
+		assertEquals(500, index.size());
+	}
+	
+	public void testRejectsBackwardsRange() throws Exception {
+		try {
+			index.add(routing, account, check("20"), check("10"), CheckNumberRangeIndex.NEVER);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	private static CheckNumber check(String text) throws CheckNumberException {
+		return new CheckNumber(text);
+	}
+}
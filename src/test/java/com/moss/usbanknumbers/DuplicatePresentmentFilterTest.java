@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class DuplicatePresentmentFilterTest extends TestCase {
+	
+	private static final long DAY = 24L * 60 * 60 * 1000;
+	
+	private File directory;
+	private RoutingNumber routing;
+	
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("presentments", "");
+		directory.delete();
+		routing = new RoutingNumber("076401251");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	public void testDuplicatesAcrossWindowsAndRestarts() throws Exception {
+		DuplicatePresentmentFilter filter = DuplicatePresentmentFilter.open(directory, DAY, 3, 1000, 0.01);
+		long day = 1000 * DAY;
+		assertFalse(filter.add(routing, account("0012"), check("1001"), day));
+		assertTrue(filter.add(routing, account("0012"), check("1001"), day + 1));
+		assertFalse(filter.add(routing, account("12"), check("1001"), day + 2));
+		assertFalse(filter.add(routing, account("0012"), check("2001"), day + 3));
+		
+		assertFalse(filter.add(routing, account("0012"), check("1002"), day + DAY));
+		assertFalse(filter.add(routing, account("0012"), check("1003"), day + 2 * DAY));
+		assertTrue(filter.add(routing, account("0012"), check("001001"), day + 2 * DAY));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1002")));
+		filter.close();
+		
+		filter = DuplicatePresentmentFilter.open(directory, DAY, 3, 1000, 0.01);
+		assertTrue(filter.mightContain(routing, account("0012"), check("1001")));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1002")));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1003")));
+		
+		assertFalse(filter.add(routing, account("0012"), check("1004"), day + 3 * DAY));
+		assertFalse(filter.mightContain(routing, account("0012"), check("2001")));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1001")));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1002")));
+		assertFalse(filter.add(routing, account("0012"), check("1005"), day + 4 * DAY));
+		assertFalse(filter.mightContain(routing, account("0012"), check("1002")));
+		assertTrue(filter.mightContain(routing, account("0012"), check("1003")));
+		filter.close();
+		
+		assertEquals(3, directory.list().length);
+		try {
+			DuplicatePresentmentFilter.open(directory, DAY, 3, 5000, 0.01);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+	
+	public void testFalsePositiveRate() throws Exception {
+		DuplicatePresentmentFilter filter = DuplicatePresentmentFilter.open(directory, DAY, 1, 10000, 0.01);
+		for (int i=0; i<10000; i++) {
+			filter.add(routing, account(Integer.toString(i)), check("1"), 0);
+		}
+		int falsePositives = 0;
+		for (int i=0; i<10000; i++) {
+			assertTrue(filter.mightContain(routing, account(Integer.toString(i)), check("1")));
+			if (filter.mightContain(routing, account(Integer.toString(i)), check("2"))) {
+				falsePositives++;
+			}
+		}
+		assertTrue("false positives: " + falsePositives, falsePositives < 250);
+	}
+	
+	private static AccountNumber account(String text) throws AccountNumberException {
+		return new AccountNumber(text);
+	}
+	
+	private static CheckNumber check(String text) throws CheckNumberException {
+		return new CheckNumber(text);
+	}
+}
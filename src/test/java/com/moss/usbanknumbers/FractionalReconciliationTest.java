@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+public class FractionalReconciliationTest extends TestCase {
+	
+	private static final int ROUTING = 244172095;
+	
+	public void testCompare() throws Exception {
+		assertEquals(0, FractionalReconciliation.compare("56-7209/2441", ROUTING));
+		assertEquals(0, FractionalReconciliation.compare(new FractionalRoutingNumber(AbaNumber.Prefix.Ohio, new RoutingNumber("044202505")).toString(), 44202505));
+		assertEquals(0, FractionalReconciliation.compare("56-0250/0442", 44202505));
+		assertEquals(FractionalReconciliation.DENOMINATOR_MISMATCH, FractionalReconciliation.compare("56-7209/2442", ROUTING));
+		assertEquals(FractionalReconciliation.SUFFIX_MISMATCH, FractionalReconciliation.compare("56-7208/2441", ROUTING));
+		assertEquals(FractionalReconciliation.UNPARSEABLE, FractionalReconciliation.compare("56-7209", ROUTING));
+		assertEquals(FractionalReconciliation.UNPARSEABLE, FractionalReconciliation.compare(null, ROUTING));
+		assertEquals(FractionalReconciliation.INVALID_ROUTING_NUMBER, FractionalReconciliation.compare("56-7209/2441", ROUTING + 1));
+	}
+	
+	public void testParallelReportMatchesSequential() throws Exception {
+		int n = 10000;
+		CharSequence[] fractional = new CharSequence[n];
+		int[] routing = new int[n];
+		for (int i=0; i<n; i++) {
+			routing[i] = ROUTING;
+			fractional[i] = i % 97 == 0 ? "56-7208/2441" : i % 101 == 0 ? "bad" : "56-7209/2441";
+		}
+		
+		ReconciliationReport sequential = FractionalReconciliation.reconcile(fractional, routing);
+		assertEquals(n, sequential.size());
+		assertEquals(104 + 99 - 1, sequential.mismatchCount());
+		assertEquals(99 - 1, sequential.count(FractionalReconciliation.UNPARSEABLE));
+		assertEquals(0, sequential.index(0));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ReconciliationReport parallel = FractionalReconciliation.reconcile(fractional, routing, executor, 7);
+			assertEquals(sequential.mismatchCount(), parallel.mismatchCount());
+			for (int i=0; i<sequential.mismatchCount(); i++) {
+				assertEquals(sequential.index(i), parallel.index(i));
+				assertEquals(sequential.reasons(i), parallel.reasons(i));
+			}
+			assertEquals(sequential.toString(), parallel.toString());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import junit.framework.TestCase;
+
+public class MicrLineTest extends TestCase {
+	
+	public void testPersonalCheck() {
+		MicrLine line = MicrLine.parse("T076401251T 12345678U 1001");
+		assertTrue(line.isValid());
+		assertEquals("076401251", line.routingNumber().toString());
+		assertEquals("12345678", line.accountNumber().toString());
+		assertEquals("1001", line.checkNumber().toString());
+		assertEquals(-1, line.amount());
+		assertEquals(1, line.transitStart());
+		assertEquals(10, line.transitEnd());
+		assertEquals(12, line.accountNumberStart());
+		assertEquals(20, line.accountNumberEnd());
+		assertEquals(22, line.checkNumberStart());
+		assertEquals(-1, line.auxiliaryOnUsStart());
+	}
+	
+	public void testBusinessCheckWithAmount() {
+		char t = MicrLine.TRANSIT_SYMBOL;
+		char u = MicrLine.ON_US_SYMBOL;
+		char a = MicrLine.AMOUNT_SYMBOL;
+		String text = u + "2002" + u + " " + t + "044202505" + t + " 98" + MicrLine.DASH_SYMBOL + "7654" + u + " " + a + "0000012500" + a;
+		MicrLine line = MicrLine.parse(text);
+		assertTrue(line.isValid());
+		assertEquals("044202505", line.routingNumber().toString());
+		assertEquals("987654", line.accountNumber().toString());
+		assertEquals("2002", line.checkNumber().toString());
+		assertEquals(12500, line.amount());
+		assertEquals(1, line.auxiliaryOnUsStart());
+		assertEquals(5, line.auxiliaryOnUsEnd());
+		
+		byte[] ascii = ("xx" + text.replace(u, 'U').replace(t, 'T').replace(a, 'A').replace(MicrLine.DASH_SYMBOL, 'D')).getBytes();
+		MicrLine fromBytes = MicrLine.parse(ascii, 2, ascii.length - 2);
+		assertEquals(line.routingNumber(), fromBytes.routingNumber());
+		assertEquals(line.accountNumber(), fromBytes.accountNumber());
+		assertEquals(line.checkNumber(), fromBytes.checkNumber());
+		assertEquals(line.amount(), fromBytes.amount());
+		assertEquals(line.accountNumberStart(), fromBytes.accountNumberStart());
+	}
+	
+	public void testErrorsAreReportedPerField() {
+		MicrLine line = MicrLine.parse("T076401250T 1234?678U");
+		assertFalse(line.isValid());
+		assertNull(line.routingNumber());
+		assertEquals(BankNumberError.CHECKSUM, line.routingNumberError());
+		assertEquals(BankNumberError.NON_NUMERIC, line.accountNumberError());
+		assertEquals(BankNumberError.EMPTY, line.checkNumberError());
+		assertEquals(12, line.accountNumberStart());
+		
+		MicrLine noTransit = MicrLine.parse("076401251 12345678U");
+		assertEquals(BankNumberError.MALFORMED, noTransit.routingNumberError());
+		assertEquals(-1, noTransit.transitStart());
+	}
+}
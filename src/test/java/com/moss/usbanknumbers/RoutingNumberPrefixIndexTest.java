@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class RoutingNumberPrefixIndexTest extends TestCase {
+	
+	public void testMatchesLinearScan() throws Exception {
+		Random random = new Random(17);
+		List<RoutingNumber> numbers = new ArrayList<RoutingNumber>();
+		for (int i=0; i<5000; i++) {
+			numbers.add(RoutingNumber.fromDfiIdentity(random.nextInt(3000000)));
+		}
+		numbers.add(numbers.get(0));
+		RoutingNumberPrefixIndex index = new RoutingNumberPrefixIndex(numbers);
+		
+		String[] prefixes = {"", "0", "00", "002", "0012", "00123", "001234", "0012345", "00123456", numbers.get(7).toString(), numbers.get(7).toString().substring(0, 8), "x", "0012345678901"};
+		for (String prefix : prefixes) {
+			List<String> expected = new ArrayList<String>();
+			for (RoutingNumber number : numbers) {
+				if (number.toString().startsWith(prefix) && !expected.contains(number.toString()) && prefix.length() <= 9) {
+					expected.add(number.toString());
+				}
+			}
+			Collections.sort(expected);
+			
+			assertEquals(prefix, expected.size(), index.count(prefix));
+			List<RoutingNumber> completions = index.complete(prefix, 10);
+			assertEquals(prefix, Math.min(10, expected.size()), completions.size());
+			for (int i=0; i<completions.size(); i++) {
+				assertEquals(expected.get(i), completions.get(i).toString());
+			}
+		}
+		assertEquals(new HashSet<RoutingNumber>(numbers).size(), index.size());
+	}
+	
+	public void testCheckDigitPruning() throws Exception {
+		RoutingNumberPrefixIndex index = new RoutingNumberPrefixIndex(new int[] {76401251, 76401250, 44202505});
+		assertEquals(2, index.size());
+		assertEquals(1, index.count("07640125"));
+		assertEquals(0, index.count("076401250"));
+		
+		int[] out = new int[1];
+		assertEquals(1, index.complete("0", out));
+		assertEquals(44202505, out[0]);
+	}
+}
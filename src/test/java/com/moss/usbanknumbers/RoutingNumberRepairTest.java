@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class RoutingNumberRepairTest extends TestCase {
+	
+	private final RoutingNumberRepair repair = new RoutingNumberRepair();
+	
+	public void testEverySuggestionIsValidAndOneEditAway() throws Exception {
+		String[] inputs = {"076401250", "074601251", "07640125", "0764012511", "07640x251"};
+		for (String input : inputs) {
+			List<RoutingNumber> suggestions = repair.suggest(input);
+			assertFalse(input, suggestions.isEmpty());
+			for (RoutingNumber suggestion : suggestions) {
+				assertTrue(RoutingNumber.isValid(suggestion.toString()));
+				assertEquals(input + " -> " + suggestion, 1, distance(input, suggestion.toString()));
+			}
+			assertTrue(input, suggestions.contains(new RoutingNumber("076401251")));
+		}
+	}
+	
+	public void testTranspositionsRankFirst() throws Exception {
+		assertEquals("076401251", repair.suggest("074601251").get(0).toString());
+	}
+	
+	public void testSubstitutionsAreExhaustive() throws Exception {
+		// brute force: every single-digit change of the input that checks out
+		String input = "123456789";
+		int expected = 0;
+		for (int i=0; i<9; i++) {
+			for (char c='0'; c<='9'; c++) {
+				if (c != input.charAt(i) && RoutingNumber.isValid(input.substring(0, i) + c + input.substring(i + 1))) {
+					expected++;
+				}
+			}
+		}
+		int substitutions = 0;
+		for (RoutingNumber suggestion : repair.suggest(input)) {
+			if (distance(input, suggestion.toString()) == 1 && hamming(input, suggestion.toString()) == 1) {
+				substitutions++;
+			}
+		}
+		assertEquals(expected, substitutions);
+	}
+	
+	public void testKnownNumbers() throws Exception {
+		RoutingNumberSet known = new RoutingNumberSet();
+		known.add(new RoutingNumber("076401251"));
+		
+		List<RoutingNumber> ranked = new RoutingNumberRepair(known, false).suggest("076401250");
+		assertEquals("076401251", ranked.get(0).toString());
+		assertTrue(ranked.size() > 1);
+		
+		List<RoutingNumber> filtered = new RoutingNumberRepair(known, true).suggest("076401250");
+		assertEquals(1, filtered.size());
+		
+		assertTrue(repair.suggest("0764").isEmpty());
+		assertTrue(repair.suggest("07640xx51").isEmpty());
+	}
+	
+	private static int hamming(String a, String b) {
+		int d = 0;
+		for (int i=0; i<a.length(); i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				d++;
+			}
+		}
+		return d;
+	}
+	
+	/**
+	 * Edit distance counting an adjacent transposition as one edit.
+	 */
+	private static int distance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i=0; i<=a.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j=0; j<=b.length(); j++) {
+			d[0][j] = j;
+		}
+		for (int i=1; i<=a.length(); i++) {
+			for (int j=1; j<=b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+public class RoutingNumberSetTest extends TestCase {
+	
+	public void testSetOperations() throws Exception {
+		RoutingNumberSet blocked = new RoutingNumberSet();
+		assertTrue(blocked.add(new RoutingNumber("076401251")));
+		assertTrue(blocked.add(new RoutingNumber("041000124")));
+		assertFalse(blocked.add(new RoutingNumber("041000124")));
+		assertTrue(blocked.contains(new RoutingNumber("076401251")));
+		assertFalse(blocked.contains(new RoutingNumber("044202505")));
+		assertEquals(2, blocked.size());
+		
+		Iterator<RoutingNumber> i = blocked.iterator();
+		assertEquals(new RoutingNumber("041000124"), i.next());
+		assertEquals(new RoutingNumber("076401251"), i.next());
+		assertFalse(i.hasNext());
+		
+		RoutingNumberSet allowed = new RoutingNumberSet();
+		allowed.add(new RoutingNumber("041000124"));
+		allowed.add(new RoutingNumber("044202505"));
+		
+		RoutingNumberSet both = new RoutingNumberSet();
+		assertTrue(both.or(blocked));
+		assertTrue(both.and(allowed));
+		assertFalse(both.and(allowed));
+		assertEquals(1, both.size());
+		assertTrue(both.contains(new RoutingNumber("041000124")));
+		
+		blocked.or(allowed);
+		assertEquals(3, blocked.size());
+		assertTrue(blocked.remove(new RoutingNumber("076401251")));
+		assertEquals(2, blocked.size());
+	}
+	
+	public void testRemovingThroughCollections() throws Exception {
+		RoutingNumber a = new RoutingNumber("041000124");
+		RoutingNumber b = new RoutingNumber("044202505");
+		RoutingNumber c = new RoutingNumber("076401251");
+		RoutingNumberSet set = new RoutingNumberSet();
+		set.addAll(Arrays.asList(a, b, c));
+		
+		Iterator<RoutingNumber> i = set.iterator();
+		assertEquals(a, i.next());
+		i.remove();
+		try {
+			i.remove();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		assertEquals(b, i.next());
+		assertEquals(c, i.next());
+		assertFalse(i.hasNext());
+		assertFalse(set.contains(a));
+		
+		assertTrue(set.retainAll(new HashSet<RoutingNumber>(Arrays.asList(a, b))));
+		assertFalse(set.retainAll(new HashSet<RoutingNumber>(Arrays.asList(a, b))));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(b));
+		
+		set.add(c);
+		assertTrue(set.removeAll(new HashSet<RoutingNumber>(Arrays.asList(a, b, c))));
+		assertTrue(set.isEmpty());
+		
+		RoutingNumberSet other = new RoutingNumberSet();
+		other.add(a);
+		set.add(a);
+		set.add(b);
+		assertTrue(set.removeAll(other));
+		assertFalse(set.removeAll(other));
+		assertEquals(1, set.size());
+	}
+	
+	public void testMappedFile() throws Exception {
+		File file = File.createTempFile("routing-numbers", ".set");
+		try {
+			RoutingNumberSet set = new RoutingNumberSet();
+			set.add(new RoutingNumber("076401251"));
+			set.save(file);
+			assertEquals(RoutingNumberSet.BYTES, file.length());
+			
+			RoutingNumberSet mapped = RoutingNumberSet.map(file, false);
+			assertTrue(mapped.contains(new RoutingNumber("076401251")));
+			assertEquals(1, mapped.size());
+		} finally {
+			file.delete();
+		}
+	}
+}
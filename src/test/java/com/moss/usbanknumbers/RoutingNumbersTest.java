@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class RoutingNumbersTest extends TestCase {
+	
+	private static final String[] NUMBERS = {
+		"076401251", // valid
+		"076401250",
+		"044202505", // valid
+		"07640125a",
+		"041000124", // valid
+	};
+	
+	public void testBytes() throws Exception {
+		StringBuilder text = new StringBuilder("--");
+		for (int i=0; i<70; i++) {
+			text.append(NUMBERS[i % NUMBERS.length]);
+		}
+		byte[] records = text.toString().getBytes("US-ASCII");
+		
+		long[] bitmap = RoutingNumbers.validateBatch(records, 2, 70);
+		assertEquals(2, bitmap.length);
+		for (int i=0; i<70; i++) {
+			assertEquals("record " + i, RoutingNumber.isValid(NUMBERS[i % NUMBERS.length]), RoutingNumbers.isSet(bitmap, i));
+		}
+		
+		long[] fromBuffer = RoutingNumbers.newBitmap(70);
+		assertEquals(42, RoutingNumbers.validateBatch(ByteBuffer.wrap(records), 2, 70, fromBuffer));
+		assertTrue(java.util.Arrays.equals(bitmap, fromBuffer));
+	}
+	
+	public void testInts() throws Exception {
+		int[] values = {76401251, 76401250, 44202505, -1, 1000000000, 41000124};
+		long[] bitmap = RoutingNumbers.validateBatch(values);
+		assertEquals(0x25L, bitmap[0]);
+	}
+}
@@ -37,6 +37,13 @@
  */
 package com.moss.usbanknumbers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.moss.usbanknumbers.RoutingNumber;
@@ -53,4 +60,80 @@ public class TestRoutingNumber {
 	public void invalidNumber() throws Exception {
 		new RoutingNumber("076401250");
 	}
+	
+	@Test
+	public void validFromCharSequence() throws Exception {
+		Assert.assertTrue(RoutingNumber.isValid(new StringBuilder(" 076401251 ")));
+		Assert.assertEquals(new RoutingNumber("076401251"), RoutingNumber.valueOf(new StringBuilder(" 076401251 ")));
+	}
+	
+	@Test
+	public void invalidFromCharSequence() throws Exception {
+		Assert.assertFalse(RoutingNumber.isValid("076401250"));
+		Assert.assertFalse(RoutingNumber.isValid("07640125"));
+		Assert.assertFalse(RoutingNumber.isValid("07640125a"));
+		Assert.assertFalse(RoutingNumber.isValid(null));
+	}
+	
+	@Test
+	public void validFromSlices() throws Exception {
+		byte[] record = "xx076401251yy".getBytes("US-ASCII");
+		Assert.assertTrue(RoutingNumber.isValid(record, 2));
+		Assert.assertFalse(RoutingNumber.isValid(record, 1));
+		Assert.assertEquals("076401251", RoutingNumber.valueOf(record, 2).toString());
+		Assert.assertEquals("076401251", RoutingNumber.valueOf(ByteBuffer.wrap(record), 2).toString());
+		Assert.assertEquals("076401251", RoutingNumber.valueOf("xx076401251yy".toCharArray(), 2, 9).toString());
+	}
+	
+	@Test(expected=RoutingNumberException.class)
+	public void invalidFromBytes() throws Exception {
+		RoutingNumber.valueOf("076401250".getBytes("US-ASCII"), 0);
+	}
+	
+	@Test
+	public void checksumAlgorithm() throws Exception {
+		Assert.assertEquals(1, RoutingNumber.checksumAlgorithm(new int[]{0, 7, 6, 4, 0, 1, 2, 5}));
+		Assert.assertEquals("076401251", RoutingNumber.fromNoChecksum("07640125").toString());
+	}
+	
+	@Test
+	public void packedInt() throws Exception {
+		RoutingNumber n = new RoutingNumber("076401251");
+		Assert.assertEquals(76401251, n.toInt());
+		Assert.assertEquals(7640125, n.dfiIdentity());
+		Assert.assertEquals(1, n.checkDigit());
+		Assert.assertEquals(n, RoutingNumber.fromInt(76401251));
+		Assert.assertEquals(n.hashCode(), RoutingNumber.fromInt(76401251).hashCode());
+		Assert.assertEquals("076401251", RoutingNumber.fromInt(76401251).toString());
+	}
+	
+	@Test(expected=RoutingNumberException.class)
+	public void invalidInt() throws Exception {
+		RoutingNumber.fromInt(76401250);
+	}
+	
+	/**
+	 * A RoutingNumber("076401251") as written by the original String-backed class.
+	 */
+	private static final String LEGACY_SERIALIZED =
+		"aced000573720024636f6d2e6d6f73732e757362616e6b6e756d626572732e526f7574696e674e756d6265725b7152ab179fb04c" +
+		"0200014c00066e756d6265727400124c6a6176612f6c616e672f537472696e673b7870740009303736343031323531";
+	
+	@Test
+	public void serializedFormIsCompatible() throws Exception {
+		byte[] legacy = new byte[LEGACY_SERIALIZED.length() / 2];
+		for (int i=0; i<legacy.length; i++) {
+			legacy[i] = (byte)Integer.parseInt(LEGACY_SERIALIZED.substring(i * 2, i * 2 + 2), 16);
+		}
+		
+		Object read = new ObjectInputStream(new ByteArrayInputStream(legacy)).readObject();
+		Assert.assertEquals(new RoutingNumber("076401251"), read);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream objects = new ObjectOutputStream(out);
+		objects.writeObject(read);
+		objects.close();
+		read = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+		Assert.assertEquals(new RoutingNumber("076401251"), read);
+	}
 }
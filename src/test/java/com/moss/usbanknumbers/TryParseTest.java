@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers;
+
+import junit.framework.TestCase;
+
+public class TryParseTest extends TestCase {
+	
+	public void testRoutingNumber() {
+		assertEquals("076401251", RoutingNumber.tryParse(" 076401251 ").value().toString());
+		assertNull(RoutingNumber.check("076401251"));
+		assertEquals(BankNumberError.EMPTY, RoutingNumber.check("  "));
+		assertEquals(BankNumberError.EMPTY, RoutingNumber.check(null));
+		assertEquals(BankNumberError.LENGTH, RoutingNumber.check("07640125"));
+		assertEquals(BankNumberError.NON_NUMERIC, RoutingNumber.check("07640125x"));
+		assertEquals(BankNumberError.CHECKSUM, RoutingNumber.check("076401250"));
+		
+		ParseResult<RoutingNumber> result = RoutingNumber.tryParse("076401250");
+		assertFalse(result.isValid());
+		assertNull(result.value());
+		assertSame(result, RoutingNumber.tryParse("123456789"));
+	}
+	
+	public void testAccountAndCheckNumbers() {
+		assertEquals("0012", AccountNumber.tryParse(" 0012 ").value().toString());
+		assertEquals(BankNumberError.EMPTY, AccountNumber.check(""));
+		assertEquals(BankNumberError.NON_NUMERIC, AccountNumber.check("12-3"));
+		assertEquals("1001", CheckNumber.tryParse("1001").value().toString());
+		assertEquals(BankNumberError.NON_NUMERIC, CheckNumber.tryParse("1o01").error());
+		
+		// valid numbers whose packed form is negative when narrowed to an int
+		assertNull(CheckNumber.check("999999999999999"));
+		assertNull(AccountNumber.check("999999999999999"));
+		assertNull(AccountNumber.check("99999999999999999"));
+	}
+	
+	public void testAbaNumber() {
+		AbaNumber aba = AbaNumber.tryParse(" 56-0250 ").value();
+		assertEquals(AbaNumber.Prefix.Ohio, aba.prefix());
+		assertEquals("0250", aba.suffix());
+		assertEquals(BankNumberError.MALFORMED, AbaNumber.check("56250"));
+		assertEquals(BankNumberError.MALFORMED, AbaNumber.check("56-2-50"));
+		assertEquals(BankNumberError.NON_NUMERIC, AbaNumber.check("a-2323"));
+		assertEquals(BankNumberError.UNKNOWN_PREFIX, AbaNumber.check("89-2323"));
+		assertEquals(BankNumberError.TOO_LONG, AbaNumber.check("56-12345"));
+		assertEquals(BankNumberError.EMPTY, AbaNumber.check("56- "));
+	}
+	
+	public void testFractionalRoutingNumber() {
+		assertEquals("56-7209/2441", FractionalRoutingNumber.tryParse("56-7209/2441").value().toString());
+		assertEquals(BankNumberError.MALFORMED, FractionalRoutingNumber.check("56-7209"));
+		assertEquals(BankNumberError.UNKNOWN_PREFIX, FractionalRoutingNumber.check("89-7209/2441"));
+		assertEquals(BankNumberError.TOO_LONG, FractionalRoutingNumber.check("56-7209/24411"));
+	}
+	
+	public void testExceptionsCarryTheError() {
+		try {
+			new RoutingNumber("076401250");
+			fail();
+		} catch (RoutingNumberException e) {
+			assertEquals(BankNumberError.CHECKSUM, e.error());
+			assertEquals("This routing number is not valid.", e.getMessage());
+		}
+		try {
+			new FractionalRoutingNumber("89-7209/2441");
+			fail();
+		} catch (FractionalRoutingNumberException e) {
+			fail();
+		} catch (AbaNumberException e) {
+			assertEquals(BankNumberError.UNKNOWN_PREFIX, e.error());
+			assertEquals("\"89-7209\" is not a valid aba number (unknown prefix).", e.getMessage());
+		}
+	}
+}
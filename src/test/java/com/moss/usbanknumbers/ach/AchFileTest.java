@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class AchFileTest extends TestCase {
+	
+	private File file;
+	
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("ach", ".txt");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	public void testRead() throws Exception {
+		write(sampleFile(false), "\n");
+		
+		final List<String> seen = new ArrayList<String>();
+		AchFile ach = AchFile.open(file);
+		try {
+			assertEquals(10, ach.recordCount());
+			AchTotals totals = ach.read(new AchEntryHandler() {
+				public void entry(AchEntry entry) throws AchException {
+					try {
+						seen.add(
+							entry.standardEntryClass() + " " + entry.transactionCode() + " " +
+							entry.routingNumber() + " " + entry.accountNumber() + " " + entry.amount() + " " +
+							entry.individualName() + " " + entry.checkSerialNumber() + " " + entry.hasAddenda()
+						);
+					}
+					catch (Exception e) {
+						throw new AchException(e.getMessage());
+					}
+				}
+			});
+			
+			assertEquals(2, totals.batchCount());
+			assertEquals(3, totals.entryCount());
+			assertEquals(4, totals.entryAndAddendaCount());
+			assertEquals(1250L, totals.totalDebit());
+			assertEquals(10000L, totals.totalCredit());
+			assertEquals(76401251 / 10 + 4420250 + 4100012, totals.entryHash());
+		}
+		finally {
+			ach.close();
+		}
+		
+		assertEquals(3, seen.size());
+		assertEquals("PPD 22 076401251 12345 10000 JANE DOE null true", seen.get(0));
+		assertEquals("ARC 27 044202505 991 1000 ACME CORP 1001 false", seen.get(1));
+		assertEquals("ARC 27 041000124 4321 250 SMITH 1002 false", seen.get(2));
+	}
+	
+	public void testParallelReadMatchesSequential() throws Exception {
+		write(sampleFile(false), "\r\n");
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		AchFile ach = AchFile.open(file);
+		try {
+			final List<Long> traces = Collections.synchronizedList(new ArrayList<Long>());
+			AchEntryHandler handler = new AchEntryHandler() {
+				public void entry(AchEntry entry) {
+					traces.add(entry.traceNumber());
+				}
+			};
+			for (int parts=1; parts<=8; parts++) {
+				traces.clear();
+				AchTotals totals = ach.read(handler, executor, parts);
+				assertEquals(2, totals.batchCount());
+				Collections.sort(traces);
+				assertEquals("parts " + parts, "[76401250000001, 76401250000002, 76401250000003]", traces.toString());
+			}
+			assertEquals(4, ach.split(8).size());
+		}
+		finally {
+			ach.close();
+			executor.shutdown();
+		}
+	}
+	
+	public void testBadBatchControl() throws Exception {
+		write(sampleFile(true), "");
+		AchFile ach = AchFile.open(file);
+		try {
+			ach.read(new AchEntryHandler() {
+				public void entry(AchEntry entry) {
+				}
+			});
+			fail();
+		}
+		catch (AchException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("batch control totals"));
+		}
+		finally {
+			ach.close();
+		}
+	}
+	
+	private List<String> sampleFile(boolean badTotals) {
+		List<String> records = new ArrayList<String>();
+		records.add(record("101 076401251 1234567890", 23, "2610171200A094101FIRST BANK             ACME CORP"));
+		
+		records.add(batchHeader("PPD", 1));
+		records.add(entry(22, "076401251", "12345", 10000, "", "JANE DOE", true, 1));
+		records.add(record("705PAYROLL", 83, "00010000001"));
+		records.add(batchControl(2, 7640125, 0, badTotals ? 10001 : 10000, 1));
+		
+		records.add(batchHeader("ARC", 2));
+		records.add(entry(27, "044202505", "991", 1000, "1001", "ACME CORP", false, 2));
+		records.add(entry(27, "041000124", "4321", 250, "1002", "SMITH", false, 3));
+		records.add(batchControl(2, 4420250 + 4100012, 1250, 0, 2));
+		
+		records.add(record("9000002000002000000040016160387", 31, "000000001250000000010000"));
+		while (records.size() % 10 != 0) {
+			records.add(record("", 0, "").replace(' ', '9'));
+		}
+		return records;
+	}
+	
+	private static String batchHeader(String secCode, int batchNumber) {
+		return record("5200ACME CORP", 40, "1234567890" + secCode + "PAYMENT   261017261017   1" + "07640125" + pad(batchNumber, 7));
+	}
+	
+	private static String entry(int transactionCode, String routingNumber, String account, long amount, String id, String name, boolean addenda, int sequence) {
+		StringBuilder text = new StringBuilder();
+		text.append('6').append(transactionCode).append(routingNumber);
+		text.append(String.format("%-17s", account)).append(pad(amount, 10));
+		text.append(String.format("%-15s", id)).append(String.format("%-22s", name)).append("  ");
+		text.append(addenda ? '1' : '0').append("07640125").append(pad(sequence, 7));
+		return text.toString();
+	}
+	
+	private static String batchControl(int entries, long hash, long debit, long credit, int batchNumber) {
+		return record("8200" + pad(entries, 6) + pad(hash, 10) + pad(debit, 12) + pad(credit, 12) + "1234567890", 79, "07640125" + pad(batchNumber, 7));
+	}
+	
+	private static String record(String start, int column, String rest) {
+		StringBuilder text = new StringBuilder(start);
+		while (text.length() < column) {
+			text.append(' ');
+		}
+		text.append(rest);
+		while (text.length() < 94) {
+			text.append(' ');
+		}
+		assertEquals(text.toString(), 94, text.length());
+		return text.toString();
+	}
+	
+	private static String pad(long value, int width) {
+		return String.format("%0" + width + "d", value);
+	}
+	
+	private void write(List<String> records, String lineEnding) throws Exception {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			for (int i=0; i<records.size(); i++) {
+				out.write(records.get(i).getBytes("US-ASCII"));
+				if (i < records.size() - 1) {
+					out.write(lineEnding.getBytes("US-ASCII"));
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+}
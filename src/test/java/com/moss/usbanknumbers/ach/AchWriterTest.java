@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.ach;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.nio.channels.Channels;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class AchWriterTest extends TestCase {
+	
+	private File file;
+	
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("ach", ".txt");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	public void testRoundTrip() throws Exception {
+		RoutingNumber odfi = new RoutingNumber("076401251");
+		RoutingNumber[] receivers = {odfi, new RoutingNumber("044202505"), new RoutingNumber("041000124")};
+		Date today = new Date();
+		
+		AchWriter writer = new AchWriter(new FileOutputStream(file).getChannel(), "\r\n");
+		writer.beginFile(odfi, "1234567890", "FIRST BANK", "ACME CORP", today, 'A');
+		
+		writer.beginBatch(220, "ACME CORP", "1234567890", "PPD", "PAYROLL", today, odfi);
+		for (int i=0; i<1000; i++) {
+			writer.entry(22, receivers[i % 3], new AccountNumber(String.valueOf(1000 + i)), 100 + i, "EMP" + i, "EMPLOYEE " + i, i % 100 == 0);
+			if (i % 100 == 0) {
+				writer.addenda("BONUS");
+			}
+		}
+		writer.endBatch();
+		
+		writer.beginBatch(225, "ACME CORP", "1234567890", "ARC", "CHECK PYMT", today, odfi);
+		long trace = writer.entry(27, receivers[1], new AccountNumber("555"), 2500, new CheckNumber("1001"), "SMITH");
+		writer.endBatch();
+		
+		AchTotals written = writer.endFile();
+		writer.close();
+		
+		assertEquals(7640125 * 10000000L + 1001, trace);
+		assertEquals(0, writer.recordCount() % 10);
+		assertEquals(1011, written.entryAndAddendaCount());
+		
+		final List<String> checks = new ArrayList<String>();
+		AchFile ach = AchFile.open(file);
+		try {
+			assertEquals(writer.recordCount(), ach.recordCount());
+			AchTotals read = ach.read(new AchEntryHandler() {
+				public void entry(AchEntry entry) throws AchException {
+					if (entry.isCheckEntry()) {
+						try {
+							checks.add(entry.checkSerialNumber() + " " + entry.routingNumber() + " " + entry.amount());
+						}
+						catch (Exception e) {
+							throw new AchException(e.getMessage());
+						}
+					}
+				}
+			});
+			assertTrue(read.agreesWith(written));
+			assertEquals(1001, read.entryCount());
+			assertEquals(2500, read.totalDebit());
+			assertEquals(100 * 1000 + 999 * 1000 / 2, read.totalCredit());
+		}
+		finally {
+			ach.close();
+		}
+		assertEquals("[1001 044202505 2500]", checks.toString());
+	}
+	
+	public void testRejectedFieldLeavesOutputIntact() throws Exception {
+		RoutingNumber odfi = new RoutingNumber("076401251");
+		Date today = new Date();
+		
+		AchWriter writer = new AchWriter(new FileOutputStream(file).getChannel());
+		writer.beginFile(odfi, "1234567890", "FIRST BANK", "ACME CORP", today, 'A');
+		writer.beginBatch(200, "ACME CORP", "1234567890", "PPD", "PAYROLL", today, odfi);
+		try {
+			writer.entry(22, odfi, new AccountNumber("1"), 1, "", "A NAME MUCH TOO LONG FOR THE FIELD", false);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			writer.addenda("none yet");
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+		writer.entry(22, odfi, new AccountNumber("1"), 1, "", "SHORT", false);
+		writer.endBatch();
+		writer.endFile();
+		writer.close();
+		
+		AchFile ach = AchFile.open(file);
+		try {
+			AchTotals totals = ach.read(new AchEntryHandler() {
+				public void entry(AchEntry entry) {
+					assertEquals(7640125 * 10000000L + 1, entry.traceNumber());
+				}
+			});
+			assertEquals(1, totals.entryCount());
+		}
+		finally {
+			ach.close();
+		}
+	}
+	
+	public void testOverflowingControlTotalLeavesOutputIntact() throws Exception {
+		RoutingNumber odfi = new RoutingNumber("076401251");
+		Date today = new Date();
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		AchWriter writer = new AchWriter(Channels.newChannel(bytes));
+		writer.beginFile(odfi, "1234567890", "FIRST BANK", "ACME CORP", today, 'A');
+		writer.beginBatch(225, "ACME CORP", "1234567890", "ARC", "CHECK PYMT", today, odfi);
+		for (int i=0; i<101; i++) {
+			writer.entry(27, odfi, new AccountNumber("0012"), 9999999999L, new CheckNumber("001001"), "SMITH");
+		}
+		try {
+			writer.endBatch();
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		writer.flush();
+		
+		String text = bytes.toString("US-ASCII");
+		assertEquals(103 * 94 + 102, text.length());
+		String entry = text.substring(2 * 95, 3 * 95 - 1);
+		assertEquals("0012             ", entry.substring(12, 29));
+		assertEquals("001001         ", entry.substring(39, 54));
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class BankDirectoryTest extends TestCase {
+	
+	static String fedAchRecord(String routingNumber, String name, String city, String state, char status) {
+		StringBuilder line = new StringBuilder();
+		line.append(routingNumber).append("O0110000151020391000000000");
+		pad(line, 35).append(name);
+		pad(line, 71).append("1 MAIN ST");
+		pad(line, 107).append(city);
+		pad(line, 127).append(state).append("432150000614555121");
+		pad(line, 148).append(status).append('1');
+		return pad(line, 155).toString();
+	}
+	
+	private static StringBuilder pad(StringBuilder line, int length) {
+		while (line.length() < length) {
+			line.append(' ');
+		}
+		line.setLength(length);
+		return line;
+	}
+	
+	public void testCompileAndOpen() throws Exception {
+		File text = File.createTempFile("fedach", ".txt");
+		File index = File.createTempFile("fedach", ".idx");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(text), "ISO-8859-1");
+			out.write(fedAchRecord("076401251", "FIRST BANK OF TESTING", "CLEVELAND", "OH", '1') + "\r\n");
+			out.write(fedAchRecord("041000124", "SECOND NATIONAL", "COLUMBUS", "OH", '1') + "\r\n");
+			out.write(fedAchRecord("044202505", "THIRD SAVINGS", "DAYTON", "OH", '2') + "\r\n");
+			out.close();
+			
+			BankDirectory directory = BankDirectory.compile(text, DirectoryFormat.FEDACH, index);
+			assertEquals(3, directory.size());
+			
+			int i = directory.find("076401251");
+			assertTrue(i >= 0);
+			assertEquals("FIRST BANK OF TESTING", directory.appendName(i, new StringBuilder()).toString());
+			assertEquals('1', directory.status(i));
+			assertEquals(i, directory.find("x076401251".getBytes("US-ASCII"), 1));
+			
+			DirectoryEntry entry = directory.lookup(new RoutingNumber("044202505"));
+			assertEquals("THIRD SAVINGS", entry.name());
+			assertEquals("DAYTON", entry.city());
+			assertEquals("OH", entry.state());
+			assertEquals('2', entry.status());
+			
+			assertEquals(-1, directory.find("076401250"));
+			assertNull(directory.lookup(new RoutingNumber("011000015")));
+			
+			assertEquals(41000124, directory.key(0));
+			assertEquals(new RoutingNumber("076401251"), directory.routingNumber(2));
+		} finally {
+			text.delete();
+			index.delete();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.directory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class LiveBankDirectoryTest extends TestCase {
+	
+	private static DirectoryEntry entry(String routingNumber, String name) throws Exception {
+		return new DirectoryEntry(new RoutingNumber(routingNumber), name, "CLEVELAND", "OH", '1');
+	}
+	
+	public void testDeltaRoundTrip() throws Exception {
+		BankDirectory before = BankDirectory.build(Arrays.asList(
+			entry("011000015", "A"),
+			entry("041000124", "B"),
+			entry("044202505", "C"),
+			entry("076401251", "D")));
+		BankDirectory after = BankDirectory.build(Arrays.asList(
+			entry("011000015", "A"),
+			entry("041000124", "B RENAMED"),
+			entry("076401251", "D"),
+			entry("244172095", "E")));
+		
+		DirectoryDelta delta = DirectoryDelta.between(before, after);
+		assertEquals(1, delta.added().size());
+		assertEquals(1, delta.changed().size());
+		assertEquals(Collections.singletonList(new RoutingNumber("044202505")), delta.removed());
+		
+		BankDirectory applied = before.apply(delta);
+		assertTrue(DirectoryDelta.between(applied, after).isEmpty());
+		assertEquals(4, applied.size());
+		assertEquals("B RENAMED", applied.lookup(new RoutingNumber("041000124")).name());
+	}
+	
+	public void testSwapNotifiesListeners() throws Exception {
+		LiveBankDirectory live = new LiveBankDirectory(BankDirectory.build(Arrays.asList(entry("011000015", "A"))));
+		final List<RoutingNumber> notified = new ArrayList<RoutingNumber>();
+		live.addListener(new DirectoryListener() {
+			public void directoryChanged(DirectorySnapshot previous, DirectorySnapshot current, DirectoryDelta delta) {
+				notified.addAll(delta.routingNumbers());
+			}
+		});
+		
+		DirectorySnapshot first = live.snapshot();
+		DirectorySnapshot second = live.apply(new DirectoryDelta(
+			Arrays.asList(entry("076401251", "D")),
+			Collections.<DirectoryEntry>emptyList(),
+			Arrays.asList(new RoutingNumber("011000015"))));
+		
+		assertEquals(first.version() + 1, second.version());
+		assertSame(second, live.snapshot());
+		assertTrue(first.directory().contains(new RoutingNumber("011000015")));
+		assertFalse(live.contains(new RoutingNumber("011000015")));
+		assertEquals("D", live.lookup(new RoutingNumber("076401251")).name());
+		assertEquals(Arrays.asList(new RoutingNumber("076401251"), new RoutingNumber("011000015")), notified);
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.AbaNumber;
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.BankNumberError;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class BankNumberJsonTest extends TestCase {
+	
+	private static final String[] FIELDS = {"routing", "account", "check", "amount", "aba", "fraction"};
+	
+	public void testBatch() throws Exception {
+		BankNumberJsonReader reader = reader(
+			"[ {\"routing\": \"076401251\", \"account\": \"0012\", \"check\": null, \"amount\": 5000,"
+			+ " \"memo\": {\"tags\": [1, 2.5e3, true, \"x\\\"y\"]}},\n"
+			+ "  {\"aba\": \"56-0250\", \"fraction\": \"56-7209/2441\", \"check\": \"\\u0031\\u0030\"} ]");
+		
+		reader.beginArray();
+		assertTrue(reader.hasNext());
+		reader.beginObject();
+		assertEquals(0, reader.nextName(FIELDS));
+		assertEquals(new RoutingNumber("076401251"), reader.nextRoutingNumber());
+		assertEquals(1, reader.nextName(FIELDS));
+		assertEquals(new AccountNumber("0012"), reader.nextAccountNumber());
+		assertEquals(2, reader.nextName(FIELDS));
+		assertNull(reader.nextCheckNumber());
+		assertEquals(3, reader.nextName(FIELDS));
+		assertEquals(5000, reader.nextLong());
+		assertEquals(-1, reader.nextName(FIELDS));
+		reader.skipValue();
+		assertFalse(reader.hasNext());
+		reader.endObject();
+		
+		reader.beginObject();
+		assertEquals("aba", reader.nextName());
+		AbaNumber aba = reader.nextAbaNumber();
+		assertEquals(AbaNumber.Prefix.Ohio, aba.prefix());
+		assertEquals("fraction", reader.nextName());
+		assertEquals("56-7209/2441", reader.nextFractionalRoutingNumber().toString());
+		assertEquals("check", reader.nextName());
+		assertEquals(new CheckNumber("10"), reader.nextCheckNumber());
+		reader.endObject();
+		
+		assertFalse(reader.hasNext());
+		reader.endArray();
+		assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+	}
+	
+	public void testStrings() throws Exception {
+		BankNumberJsonReader reader = reader("[\"caf\u00e9 \\ud83d\\ude00\", \"\ud83d\ude00\", false, -12]");
+		reader.beginArray();
+		assertEquals("caf\u00e9 \ud83d\ude00", reader.nextString());
+		assertEquals("\ud83d\ude00", reader.nextString());
+		assertFalse(reader.nextBoolean());
+		assertEquals(-12, reader.nextLong());
+		reader.endArray();
+	}
+	
+	public void testInvalidNumbers() throws Exception {
+		BankNumberJsonReader reader = reader("{\"routing\": \"076401250\", \"account\": \"12-3\"}");
+		reader.beginObject();
+		reader.nextName();
+		try {
+			reader.nextRoutingNumber();
+			fail();
+		} catch (BankNumberJsonException e) {
+			assertEquals(BankNumberError.CHECKSUM, e.error());
+			assertEquals(23, e.offset());
+		}
+		reader.nextName();
+		try {
+			reader.nextAccountNumber();
+			fail();
+		} catch (BankNumberJsonException e) {
+			assertEquals(BankNumberError.NON_NUMERIC, e.error());
+		}
+	}
+	
+	public void testMalformed() throws Exception {
+		assertMalformed("{\"a\" 1}");
+		assertMalformed("[1 2]");
+		assertMalformed("[\"open");
+		assertMalformed("[1] 2");
+		assertMalformed("[tru]");
+		
+		BankNumberJsonReader reader = reader("[1.5]");
+		reader.beginArray();
+		try {
+			reader.nextLong();
+			fail();
+		} catch (BankNumberJsonException e) {
+			assertNull(e.error());
+		}
+	}
+	
+	private static void assertMalformed(String json) throws IOException {
+		BankNumberJsonReader reader = reader(json);
+		try {
+			reader.skipValue();
+			reader.peek();
+			fail(json);
+		} catch (BankNumberJsonException e) {
+			assertNull(e.error());
+		}
+	}
+	
+	public void testWriterRoundTrip() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BankNumberJsonWriter writer = new BankNumberJsonWriter(bytes);
+		writer.beginArray();
+		for (int i=0; i<2000; i++) {
+			writer.beginObject()
+				.name("routing").value(new RoutingNumber("076401251"))
+				.name("account").value(new AccountNumber("00012345678901234"))
+				.name("check").value(i == 0 ? null : new CheckNumber("0042"))
+				.name("amount").value(-i)
+				.name("memo").value("line\n\"caf\u00e9\"")
+				.endObject();
+		}
+		writer.value(new FractionalRoutingNumber("56-7209/2441"));
+		writer.endArray();
+		writer.close();
+		
+		String text = new String(bytes.toByteArray(), "UTF-8");
+		assertTrue(text, text.startsWith("[{\"routing\":\"076401251\",\"account\":\"00012345678901234\",\"check\":null,\"amount\":0,\"memo\":\"line\\u000a\\\"caf\u00e9\\\"\"},"));
+		
+		BankNumberJsonReader reader = new BankNumberJsonReader(new ByteArrayInputStream(bytes.toByteArray()));
+		reader.beginArray();
+		for (int i=0; i<2000; i++) {
+			reader.beginObject();
+			reader.nextName();
+			assertEquals("076401251", reader.nextRoutingNumber().toString());
+			reader.nextName();
+			assertEquals("00012345678901234", reader.nextAccountNumber().toString());
+			reader.nextName();
+			CheckNumber check = reader.nextCheckNumber();
+			if (i == 0) {
+				assertNull(check);
+			} else {
+				assertEquals("0042", check.toString());
+			}
+			reader.nextName();
+			assertEquals(-i, reader.nextLong());
+			reader.nextName();
+			assertEquals("line\n\"caf\u00e9\"", reader.nextString());
+			reader.endObject();
+		}
+		assertEquals("56-7209/2441", reader.nextFractionalRoutingNumber().toString());
+		reader.endArray();
+		assertFalse(reader.hasNext());
+		
+		try {
+			new BankNumberJsonWriter(new ByteArrayOutputStream()).beginObject().value(1);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+	
+	private static BankNumberJsonReader reader(String json) throws IOException {
+		return new BankNumberJsonReader(new ByteArrayInputStream(json.getBytes("UTF-8")));
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.positivepay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class PositivePayTest extends TestCase {
+	
+	private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+	
+	private final PositivePayHandler collect = new PositivePayHandler() {
+		public void item(PositivePayItem item) {
+			results.add(item.result() + " " + item.accountNumber() + " " + item.checkNumber() + " " + item.issuedAmount() + " " + item.presentedAmount());
+		}
+	};
+	
+	public void testResults() throws Exception {
+		RoutingNumber routing = new RoutingNumber("076401251");
+		PositivePay pay = new PositivePay(4, 1 << 20, null);
+		try {
+			pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1001"), 5000);
+			pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1002"), 2500);
+			pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1003"), 100);
+			pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1004"), 100);
+			pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1004"), 200);
+			
+			pay.presented(routing, new AccountNumber("0012"), new CheckNumber("001001"), 5000);
+			pay.presented(routing, new AccountNumber("0012"), new CheckNumber("1002"), 2600);
+			pay.presented(routing, new AccountNumber("0012"), new CheckNumber("1001"), 5000);
+			pay.presented(routing, new AccountNumber("12"), new CheckNumber("1003"), 100);
+			
+			pay.match(collect);
+			assertTrue("peak " + pay.peakMemory(), pay.peakMemory() <= 1 << 20);
+		} finally {
+			pay.close();
+		}
+		
+		Collections.sort(results);
+		assertEquals(7, results.size());
+		assertEquals("AMOUNT_MISMATCH 0012 1002 2500 2600", results.get(0));
+		assertEquals("DUPLICATE 0012 1001 5000 5000", results.get(1));
+		assertEquals("DUPLICATE 0012 1004 200 -1", results.get(2));
+		assertEquals("MATCHED 0012 1001 5000 5000", results.get(3));
+		assertEquals("OUTSTANDING 0012 1003 100 -1", results.get(4));
+		assertEquals("OUTSTANDING 0012 1004 100 -1", results.get(5));
+		assertEquals("UNMATCHED 12 1003 -1 100", results.get(6));
+	}
+	
+	public void testSpillsAndMatchesInParallel() throws Exception {
+		RoutingNumber routing = new RoutingNumber("076401251");
+		int count = 20000;
+		PositivePay pay = new PositivePay(8, 16 * 1024, null);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i=0; i<count; i++) {
+				pay.issued(routing, new AccountNumber(Integer.toString(i % 97)), new CheckNumber(Integer.toString(i)), i);
+			}
+			for (int i=count-1; i>=count/2; i--) {
+				pay.presented(routing, new AccountNumber(Integer.toString(i % 97)), new CheckNumber(Integer.toString(i)), i % 10 == 0 ? i + 1 : i);
+			}
+			pay.match(collect, executor);
+			assertTrue(pay.peakMemory() > 8 * 1024);
+			assertTrue("peak " + pay.peakMemory(), pay.peakMemory() <= 16 * 1024);
+		} finally {
+			executor.shutdown();
+			pay.close();
+		}
+		
+		Map<String, Integer> tally = new HashMap<String, Integer>();
+		for (String result : results) {
+			String kind = result.substring(0, result.indexOf(' '));
+			Integer n = tally.get(kind);
+			tally.put(kind, n == null ? 1 : n + 1);
+		}
+		assertEquals(Integer.valueOf(count / 2), tally.get("OUTSTANDING"));
+		assertEquals(Integer.valueOf(count / 2 / 10), tally.get("AMOUNT_MISMATCH"));
+		assertEquals(Integer.valueOf(count / 2 - count / 2 / 10), tally.get("MATCHED"));
+		assertEquals(3, tally.size());
+	}
+	
+	public void testPartitionTooBigToSplitFailsBeforeMatching() throws Exception {
+		RoutingNumber routing = new RoutingNumber("076401251");
+		PositivePay pay = new PositivePay(1, 2048, null);
+		try {
+			for (int i=0; i<1000; i++) {
+				pay.issued(routing, new AccountNumber("0012"), new CheckNumber("1001"), i);
+			}
+			pay.match(collect);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("A partition of 1000 issued checks"));
+		} finally {
+			pay.close();
+		}
+		assertTrue(results.isEmpty());
+	}
+	
+	public void testIssueFile() throws Exception {
+		File file = File.createTempFile("issues", ".csv");
+		try {
+			write(file, "076401251,0012,1001,50.00\n\n076401251,0012,1002,2500\n");
+			PositivePay pay = new PositivePay(2, 1 << 16, null);
+			try {
+				assertEquals(2, pay.readIssueFile(file, ','));
+				pay.presented(new RoutingNumber("076401251"), new AccountNumber("0012"), new CheckNumber("1001"), 5000);
+				pay.match(collect);
+			} finally {
+				pay.close();
+			}
+			Collections.sort(results);
+			assertEquals("[MATCHED 0012 1001 5000 5000, OUTSTANDING 0012 1002 2500 -1]", results.toString());
+			
+			write(file, "076401251,0012,1001,50.00\n076401250,0012,1002,2500\n");
+			pay = new PositivePay(2, 1 << 16, null);
+			try {
+				pay.readIssueFile(file, ',');
+				fail();
+			} catch (PositivePayException e) {
+				assertTrue(e.getMessage(), e.getMessage().endsWith("line 2: bad routing number (CHECKSUM)"));
+			} finally {
+				pay.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	public void testParseAmount() {
+		assertEquals(5000, PositivePay.parseAmount("50.00", 0, 5));
+		assertEquals(5000, PositivePay.parseAmount(" 50. ", 0, 5));
+		assertEquals(5010, PositivePay.parseAmount("50.1", 0, 4));
+		assertEquals(5000, PositivePay.parseAmount("5000", 0, 4));
+		assertEquals(-1, PositivePay.parseAmount("50.001", 0, 6));
+		assertEquals(-1, PositivePay.parseAmount("5,000", 0, 5));
+		assertEquals(-1, PositivePay.parseAmount(".", 0, 1));
+		assertEquals(-1, PositivePay.parseAmount("", 0, 0));
+	}
+	
+	private static void write(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.stax;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.AccountNumber;
+import com.moss.usbanknumbers.BankNumberError;
+import com.moss.usbanknumbers.CheckNumber;
+import com.moss.usbanknumbers.FractionalRoutingNumber;
+import com.moss.usbanknumbers.RoutingNumber;
+
+public class BankNumberXmlTest extends TestCase {
+	
+	private static final String DOCUMENT =
+		"<?xml version=\"1.0\"?>" +
+		"<payments xmlns:p=\"urn:partner\">" +
+		"<payment><p:routing> 076401251 </p:routing><account>0012</account><check><![CDATA[1001]]></check><memo>076401251</memo></payment>" +
+		"<payment><routing>076401250</routing><account>12<b>3</b></account><fraction>56-7209/2441</fraction></payment>" +
+		"</payments>";
+	
+	public void testCursor() throws Exception {
+		BankNumberXmlReader reader = reader(DOCUMENT);
+		
+		assertTrue(reader.next());
+		assertEquals("routing", reader.localName());
+		assertEquals(new RoutingNumber("076401251"), reader.routingNumber());
+		assertTrue(reader.next());
+		assertEquals(new AccountNumber("0012"), reader.accountNumber());
+		assertTrue(reader.next());
+		assertEquals(new CheckNumber("1001"), reader.checkNumber());
+		
+		assertTrue(reader.next());
+		assertFalse(reader.isValid());
+		assertEquals(BankNumberError.CHECKSUM, reader.error());
+		assertEquals("076401250", reader.text().toString());
+		assertNull(reader.routingNumber());
+		assertTrue(reader.next());
+		assertEquals(BankNumberError.MALFORMED, reader.error());
+		assertTrue(reader.next());
+		assertEquals("56-7209/2441", reader.fractionalRoutingNumber().toString());
+		try {
+			reader.routingNumber();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		
+		assertFalse(reader.next());
+	}
+	
+	public void testHandler() throws Exception {
+		final List<String> seen = new ArrayList<String>();
+		long count = reader(DOCUMENT).read(new BankNumberXmlHandler() {
+			public void element(BankNumberXmlReader reader) {
+				seen.add(reader.localName() + "=" + (reader.isValid() ? reader.value() : reader.error()));
+			}
+		});
+		assertEquals(6, count);
+		assertEquals("[routing=076401251, account=0012, check=1001, routing=CHECKSUM, account=MALFORMED, fraction=56-7209/2441]", seen.toString());
+	}
+	
+	public void testWriterRoundTrip() throws Exception {
+		StringWriter text = new StringWriter();
+		XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(text);
+		BankNumberXmlWriter writer = new BankNumberXmlWriter(out);
+		out.writeStartDocument();
+		out.writeStartElement("payments");
+		out.writeStartElement("payment");
+		writer.write("routing", new RoutingNumber("076401251"));
+		writer.write("account", new AccountNumber("00012345678901234"));
+		writer.write("check", new CheckNumber("0042"));
+		writer.write("fraction", new FractionalRoutingNumber("56-7209/2441"));
+		out.writeEndElement();
+		out.writeEndElement();
+		out.writeEndDocument();
+		out.close();
+		
+		BankNumberXmlReader reader = reader(text.toString());
+		assertTrue(reader.next());
+		assertEquals("076401251", reader.routingNumber().toString());
+		assertTrue(reader.next());
+		assertEquals("00012345678901234", reader.accountNumber().toString());
+		assertTrue(reader.next());
+		assertEquals("0042", reader.checkNumber().toString());
+		assertTrue(reader.next());
+		assertEquals("56-7209/2441", reader.fractionalRoutingNumber().toString());
+		assertFalse(reader.next());
+	}
+	
+	private static BankNumberXmlReader reader(String document) throws XMLStreamException {
+		return new BankNumberXmlReader(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(document)))
+			.bind("routing", BankNumberType.ROUTING_NUMBER)
+			.bind("account", BankNumberType.ACCOUNT_NUMBER)
+			.bind("check", BankNumberType.CHECK_NUMBER)
+			.bind("fraction", BankNumberType.FRACTIONAL_ROUTING_NUMBER);
+	}
+}
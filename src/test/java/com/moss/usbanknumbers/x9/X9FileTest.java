@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013, Moss Computing Inc.
+ *
+ * This file is part of us-bank-numbers.
+ *
+ * us-bank-numbers is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * us-bank-numbers is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with us-bank-numbers; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.moss.usbanknumbers.x9;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.moss.usbanknumbers.RoutingNumberException;
+
+public class X9FileTest extends TestCase {
+	
+	private File file;
+	
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("cashletter", ".x937");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	public void testEbcdic() throws Exception {
+		write(true);
+		assertEquals("[076401251 12345678 1001 1500 1 |12345678/1001, 044202505 987654 2002 250 2 2002|98-7654/, bad CHECKSUM]", read(true));
+	}
+	
+	public void testAscii() throws Exception {
+		write(false);
+		assertEquals("[076401251 12345678 1001 1500 1 |12345678/1001, 044202505 987654 2002 250 2 2002|98-7654/, bad CHECKSUM]", read(false));
+	}
+	
+	private String read(boolean ebcdic) throws Exception {
+		final List<String> seen = new ArrayList<String>();
+		X9File x9 = X9File.open(file);
+		try {
+			assertEquals(ebcdic, x9.isEbcdic());
+			long items = x9.read(new X9ItemHandler() {
+				public void item(X9Item item) throws X9Exception {
+					try {
+						if (item.hasValidRoutingNumber()) {
+							seen.add(item.routingNumber() + " " + item.accountNumber() + " " + item.checkNumber() + " " + item.amount() + " " + item.itemSequenceNumber() + " " + item.auxiliaryOnUs() + "|" + item.onUs());
+						}
+						else {
+							try {
+								item.routingNumber();
+							}
+							catch (RoutingNumberException e) {
+								seen.add("bad " + e.error());
+							}
+						}
+					}
+					catch (Exception e) {
+						throw new X9Exception(e.getMessage());
+					}
+				}
+			});
+			assertEquals(3, items);
+		}
+		finally {
+			x9.close();
+		}
+		return seen.toString();
+	}
+	
+	private void write(boolean ebcdic) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		
+		record(out, ebcdic, "0103T076401251076401251", 80);
+		record(out, ebcdic, "100107640125107640125", 80);
+		record(out, ebcdic, "200107640125107640125", 80);
+		record(out, ebcdic, detail("", "07640125", '1', "12345678/1001", 1500, 1), 80);
+		record(out, ebcdic, "50", 100);
+		
+		// image view data: binary, and not valid in either encoding
+		byte[] image = new byte[5000];
+		for (int i=0; i<image.length; i++) {
+			image[i] = (byte)(i * 31);
+		}
+		out.writeInt(2 + image.length);
+		out.write(encode(ebcdic, "52"));
+		out.write(image);
+		
+		record(out, ebcdic, detail("2002", "04420250", '5', "98-7654/", 250, 2), 80);
+		record(out, ebcdic, detail("", "07640125", '0', "1/", 1, 3), 80);
+		record(out, ebcdic, "70", 80);
+		record(out, ebcdic, "90", 80);
+		record(out, ebcdic, "99", 80);
+		out.close();
+		
+		FileOutputStream file = new FileOutputStream(this.file);
+		file.write(bytes.toByteArray());
+		file.close();
+	}
+	
+	private static String detail(String auxiliaryOnUs, String routing, char checkDigit, String onUs, long amount, long sequence) {
+		return
+			"25" + String.format("%15s", auxiliaryOnUs) + " " + routing + checkDigit +
+			String.format("%20s", onUs) + String.format("%010d", amount) + String.format("%015d", sequence) + "G";
+	}
+	
+	private static void record(DataOutputStream out, boolean ebcdic, String text, int length) throws Exception {
+		StringBuilder padded = new StringBuilder(text);
+		while (padded.length() < length) {
+			padded.append(' ');
+		}
+		out.writeInt(length);
+		out.write(encode(ebcdic, padded.toString()));
+	}
+	
+	private static byte[] encode(boolean ebcdic, String text) {
+		byte[] bytes = new byte[text.length()];
+		for (int i=0; i<bytes.length; i++) {
+			char c = text.charAt(i);
+			if (ebcdic) {
+				for (int b=0; b<256; b++) {
+					if (X9Charset.EBCDIC[b] == c) {
+						bytes[i] = (byte)b;
+					}
+				}
+			}
+			else {
+				bytes[i] = (byte)c;
+			}
+		}
+		return bytes;
+	}
+}